@@ -0,0 +1,17 @@
+-- Index cho phân trang keyset (created_at, id) giảm dần
+-- Truy vấn dạng: created_at <= :c AND (created_at < :c OR id < :id) ORDER BY created_at DESC, id DESC LIMIT n
+-- đi thẳng tới vị trí cursor trên index nên trang thứ N tốn như trang đầu
+
+-- Lịch sử ticket của nhân viên
+CREATE INDEX IF NOT EXISTS idx_tickets_requester_created_id
+    ON tickets (requester_id, created_at DESC, id DESC);
+
+-- Hàng chờ duyệt của approver
+CREATE INDEX IF NOT EXISTS idx_ticket_approvals_pending_keyset
+    ON ticket_approvals (approver_id, created_at DESC, id DESC)
+    WHERE action = 'PENDING';
+
+-- Ticket approver đã xử lý
+CREATE INDEX IF NOT EXISTS idx_ticket_approvals_processed_keyset
+    ON ticket_approvals (approver_id, created_at DESC, id DESC)
+    WHERE action IN ('APPROVE', 'REJECT');
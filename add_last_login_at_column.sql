@@ -0,0 +1,14 @@
+-- Add last_login_at column to users table if it doesn't exist
+DO $$ 
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 FROM information_schema.columns 
+        WHERE table_name = 'users' 
+        AND column_name = 'last_login_at'
+    ) THEN
+        ALTER TABLE users ADD COLUMN last_login_at TIMESTAMP;
+    END IF;
+END $$;
+
+-- Index for counting tickets per requester (recent users widget)
+CREATE INDEX IF NOT EXISTS idx_tickets_requester_id ON tickets(requester_id);
@@ -0,0 +1,31 @@
+-- SLA engine: đánh dấu ticket quá hạn / bước duyệt đã escalate, index cho việc nạp hạn lúc khởi động
+ALTER TABLE tickets ADD COLUMN IF NOT EXISTS sla_breached_at TIMESTAMP;
+ALTER TABLE approval_tasks ADD COLUMN IF NOT EXISTS escalated_at TIMESTAMP;
+
+-- Chỉ chứa các hạn còn mở nên nhỏ và nạp nhanh
+CREATE INDEX IF NOT EXISTS idx_tickets_sla_open
+    ON tickets (due_date)
+    WHERE due_date IS NOT NULL AND sla_breached_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_approval_tasks_timeout_open
+    ON approval_tasks (timeout_at)
+    WHERE status = 'PENDING' AND timeout_at IS NOT NULL AND escalated_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_approval_tasks_ticket_id ON approval_tasks (ticket_id);
+
+-- Hạn cho các bước duyệt đang chờ đã tạo trước đây (bước thứ n = n x 48 giờ, khớp sla.approval-step-timeout-hours)
+UPDATE approval_tasks
+SET timeout_at = assigned_at + (48 * GREATEST(COALESCE(step_index, 1), 1)) * INTERVAL '1 hour'
+WHERE status = 'PENDING' AND timeout_at IS NULL AND assigned_at IS NOT NULL;
+
+-- Notification chuyển sang sequence pooled để ghi theo lô (giống create_pooled_id_sequences.sql)
+-- Phải chạy TRƯỚC khi khởi động bản mới của app
+DO $$
+DECLARE
+    next_id BIGINT;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_class WHERE relkind = 'S' AND relname = 'notifications_pooled_seq') THEN
+        SELECT COALESCE(MAX(id), 0) + 51 INTO next_id FROM notifications;
+        EXECUTE format('CREATE SEQUENCE notifications_pooled_seq START WITH %s INCREMENT BY 50', next_id);
+    END IF;
+END $$;
@@ -0,0 +1,23 @@
+-- Lọc ticket theo giá trị trong form_data (JSONB)
+-- POST /api/tickets/form-data/search biên dịch điều kiện thành:
+--   =, IN trên field chữ (TEXT, SELECT, RADIO, ...)  -> form_data @> '{"key": "value"}'  (GIN jsonb_path_ops bên dưới)
+--   so sánh khoảng trên NUMBER                        -> form_data_numeric(form_data, 'key')   (expression index theo template)
+--   so sánh khoảng trên DATE / DATETIME               -> form_data ->> 'key' (chuỗi ISO)     (expression index theo template)
+-- Expression index cho từng field có meta.filterable = true được ứng dụng tự tạo (CREATE INDEX CONCURRENTLY)
+-- khi khởi động và khi lưu template, tên dạng idx_tickets_fd_<templateId>_<key>_<hash>
+
+-- Containment cho mọi template; jsonb_path_ops nhỏ hơn và nhanh hơn jsonb_ops với toán tử @>
+CREATE INDEX IF NOT EXISTS idx_tickets_form_data_path_ops
+    ON tickets USING gin (form_data jsonb_path_ops);
+
+-- Mọi truy vấn lọc đều giới hạn trong 1 template, sắp xếp mới nhất trước
+CREATE INDEX IF NOT EXISTS idx_tickets_form_template_created_id
+    ON tickets (form_template_id, created_at DESC, id DESC);
+
+-- Giá trị số của 1 key: chấp nhận cả số JSON lẫn chuỗi số ("12.5"); giá trị khác trả về NULL thay vì lỗi cast
+-- IMMUTABLE để dùng được trong expression index
+CREATE OR REPLACE FUNCTION form_data_numeric(data JSONB, field_key TEXT) RETURNS NUMERIC AS $$
+    SELECT CASE
+        WHEN data ->> field_key ~ '^\s*-?[0-9]+(\.[0-9]+)?\s*$' THEN trim(data ->> field_key)::numeric
+    END
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT;
@@ -0,0 +1,68 @@
+-- Tìm kiếm toàn văn cho ticket: cột search_vector (tsvector) + GIN index
+-- Chuẩn hóa bỏ dấu tiếng Việt bằng unaccent ("Nghỉ phép" khớp "nghi phep"), cấu hình 'simple' (không stemming)
+-- Trọng số: mã ticket, tiêu đề = A; tên người yêu cầu = B; mô tả = C
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+-- unaccent() là STABLE nên không dùng được trong index/trigger biểu thức; bọc lại thành IMMUTABLE
+CREATE OR REPLACE FUNCTION f_unaccent(input TEXT) RETURNS TEXT AS $$
+    SELECT public.unaccent('public.unaccent'::regdictionary, COALESCE(input, ''))
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT;
+
+ALTER TABLE tickets ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION ticket_search_vector(p_ticket_code TEXT, p_title TEXT, p_description TEXT, p_requester_name TEXT)
+RETURNS tsvector AS $$
+    SELECT setweight(to_tsvector('simple', f_unaccent(COALESCE(p_ticket_code, ''))), 'A')
+        || setweight(to_tsvector('simple', f_unaccent(COALESCE(p_title, ''))), 'A')
+        || setweight(to_tsvector('simple', f_unaccent(COALESCE(p_requester_name, ''))), 'B')
+        || setweight(to_tsvector('simple', f_unaccent(COALESCE(p_description, ''))), 'C')
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+-- Cập nhật search_vector khi ticket được tạo hoặc đổi các cột được index
+CREATE OR REPLACE FUNCTION tickets_search_vector_trigger() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector := ticket_search_vector(
+        NEW.ticket_code, NEW.title, NEW.description,
+        (SELECT u.full_name FROM users u WHERE u.id = NEW.requester_id));
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_tickets_search_vector ON tickets;
+CREATE TRIGGER trg_tickets_search_vector
+    BEFORE INSERT OR UPDATE OF ticket_code, title, description, requester_id ON tickets
+    FOR EACH ROW EXECUTE FUNCTION tickets_search_vector_trigger();
+
+-- Đổi tên người dùng thì tính lại vector cho các ticket của họ
+CREATE OR REPLACE FUNCTION users_full_name_search_trigger() RETURNS trigger AS $$
+BEGIN
+    UPDATE tickets t
+    SET search_vector = ticket_search_vector(t.ticket_code, t.title, t.description, NEW.full_name)
+    WHERE t.requester_id = NEW.id;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_users_full_name_search ON users;
+CREATE TRIGGER trg_users_full_name_search
+    AFTER UPDATE OF full_name ON users
+    FOR EACH ROW WHEN (OLD.full_name IS DISTINCT FROM NEW.full_name)
+    EXECUTE FUNCTION users_full_name_search_trigger();
+
+-- Dữ liệu cũ
+UPDATE tickets t
+SET search_vector = ticket_search_vector(t.ticket_code, t.title, t.description, u.full_name)
+FROM users u
+WHERE u.id = t.requester_id;
+
+CREATE INDEX IF NOT EXISTS idx_tickets_search_vector ON tickets USING GIN (search_vector);
+
+-- Điều kiện từ khóa bên trong truy vấn JPQL (hàng chờ / đã xử lý của approver):
+--   function('ticket_matches_search', t.id, :tsQuery) = true
+-- search_vector không map vào entity Ticket nên đọc qua khóa chính của dòng ticket đang join
+CREATE OR REPLACE FUNCTION ticket_matches_search(p_ticket_id BIGINT, p_query TEXT) RETURNS BOOLEAN AS $$
+    SELECT EXISTS (
+        SELECT 1 FROM tickets
+        WHERE id = p_ticket_id AND search_vector @@ to_tsquery('simple', f_unaccent(p_query))
+    )
+$$ LANGUAGE sql STABLE PARALLEL SAFE;
@@ -0,0 +1,66 @@
+-- Mã trạng thái (smallint) phi chuẩn hóa trên tickets: lọc / đếm theo trạng thái không cần join ticket_status
+-- Mã = ordinal của enum TicketStatusCode (Java); 2 nơi phải khớp nhau, chỉ thêm mã mới vào cuối
+-- Phải chạy TRƯỚC khi khởi động bản mới của app (cột status_code NOT NULL, chỉ trigger ghi)
+
+CREATE OR REPLACE FUNCTION ticket_status_code(p_name TEXT) RETURNS SMALLINT AS $$
+    SELECT CAST(CASE p_name
+        WHEN 'PENDING' THEN 0
+        WHEN 'IN_PROGRESS' THEN 1
+        WHEN 'APPROVED' THEN 2
+        WHEN 'COMPLETED' THEN 3
+        WHEN 'REJECTED' THEN 4
+        WHEN 'CANCELLED' THEN 5
+        WHEN 'FORWARDED' THEN 6
+        ELSE 7
+    END AS SMALLINT)
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+ALTER TABLE tickets ADD COLUMN IF NOT EXISTS status_code SMALLINT;
+
+UPDATE tickets t
+SET status_code = ticket_status_code(s.name)
+FROM ticket_status s
+WHERE s.id = t.current_status_id
+  AND t.status_code IS DISTINCT FROM ticket_status_code(s.name);
+
+ALTER TABLE tickets ALTER COLUMN status_code SET NOT NULL;
+
+-- Đồng bộ khi ghi current_status_id (JPA, StatelessSession của bulk import, SQL tay)
+CREATE OR REPLACE FUNCTION tickets_sync_status_code() RETURNS TRIGGER AS $$
+BEGIN
+    SELECT ticket_status_code(s.name) INTO NEW.status_code
+    FROM ticket_status s
+    WHERE s.id = NEW.current_status_id;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_tickets_status_code ON tickets;
+CREATE TRIGGER trg_tickets_status_code
+    BEFORE INSERT OR UPDATE OF current_status_id ON tickets
+    FOR EACH ROW EXECUTE FUNCTION tickets_sync_status_code();
+
+-- Đổi tên trạng thái thì tính lại mã của các ticket đang ở trạng thái đó
+CREATE OR REPLACE FUNCTION ticket_status_sync_codes() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE tickets SET status_code = ticket_status_code(NEW.name) WHERE current_status_id = NEW.id;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_ticket_status_sync_codes ON ticket_status;
+CREATE TRIGGER trg_ticket_status_sync_codes
+    AFTER UPDATE OF name ON ticket_status
+    FOR EACH ROW WHEN (OLD.name IS DISTINCT FROM NEW.name)
+    EXECUTE FUNCTION ticket_status_sync_codes();
+
+-- Đếm dashboard nhân viên (index-only scan), lọc theo người yêu cầu + trạng thái
+CREATE INDEX IF NOT EXISTS idx_tickets_requester_status ON tickets (requester_id, status_code);
+-- Ticket PENDING theo ngày tạo (thống kê theo ngày), ứng viên lưu trữ
+CREATE INDEX IF NOT EXISTS idx_tickets_status_created ON tickets (status_code, created_at);
+-- Ứng viên lưu trữ (TicketArchiveService) giờ lọc theo status_code, index theo current_status_id không còn dùng
+DROP INDEX IF EXISTS idx_tickets_status_updated;
+
+-- Sau khi chạy file này, chạy riêng (ngoài transaction, VACUUM không chạy được trong BEGIN ... COMMIT):
+--   VACUUM ANALYZE tickets;
+-- để cập nhật visibility map, đếm dashboard nhân viên dùng được index-only scan ngay
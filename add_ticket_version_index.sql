@@ -0,0 +1,8 @@
+-- Conditional GET (ETag) cho chi tiết ticket: MAX(updated_at) / COUNT(*) approvals của 1 ticket
+-- đọc bằng index-only scan, không chạm heap ticket_approvals
+CREATE INDEX IF NOT EXISTS idx_ticket_approvals_ticket_updated
+    ON ticket_approvals (ticket_id) INCLUDE (updated_at);
+
+-- Biểu diễn có kèm lịch sử: COUNT(*) / MAX(created_at) của ticket_history 1 ticket (index-only scan)
+CREATE INDEX IF NOT EXISTS idx_ticket_history_ticket_created
+    ON ticket_history (ticket_id) INCLUDE (created_at);
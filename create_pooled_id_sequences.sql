@@ -0,0 +1,22 @@
+-- Tạo các sequence pooled (INCREMENT 50) cho tickets, approval_tasks, ticket_approvals, ticket_history
+-- Hibernate cấp id theo khối 50 từ các sequence này để gom batch INSERT (IDENTITY không batch được)
+-- Phải chạy TRƯỚC khi khởi động bản mới của app: sequence bắt đầu sau id lớn nhất hiện có (+51 để an toàn với optimizer pooled)
+DO $$
+DECLARE
+    seq RECORD;
+    next_id BIGINT;
+BEGIN
+    FOR seq IN
+        SELECT * FROM (VALUES
+            ('tickets', 'tickets_pooled_seq'),
+            ('approval_tasks', 'approval_tasks_pooled_seq'),
+            ('ticket_approvals', 'ticket_approvals_pooled_seq'),
+            ('ticket_history', 'ticket_history_pooled_seq')
+        ) AS s(table_name, sequence_name)
+    LOOP
+        IF NOT EXISTS (SELECT 1 FROM pg_class WHERE relkind = 'S' AND relname = seq.sequence_name) THEN
+            EXECUTE format('SELECT COALESCE(MAX(id), 0) + 51 FROM %I', seq.table_name) INTO next_id;
+            EXECUTE format('CREATE SEQUENCE %I START WITH %s INCREMENT BY 50', seq.sequence_name, next_id);
+        END IF;
+    END LOOP;
+END $$;
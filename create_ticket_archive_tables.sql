@@ -0,0 +1,52 @@
+-- Lưu trữ lạnh ticket đã đóng (COMPLETED / REJECTED / CANCELLED) lâu ngày
+-- Bảng live tickets / ticket_approvals / ticket_history KHÔNG partition tại chỗ được:
+--   - notifications, approval_tasks, ticket_form_data, ticket_approvals, ticket_history có FK tới tickets(id),
+--     còn PostgreSQL bắt khóa chính / unique của bảng partition phải chứa cột partition (created_at)
+--   - các bảng này do Hibernate quản lý (ddl-auto=update) với khóa chính chỉ gồm id
+-- Thay vào đó: bảng *_archive partition theo created_at (mỗi năm 1 partition + DEFAULT);
+-- TicketArchiveService chuyển ticket đã đóng sang đây theo lô nên bảng live chỉ còn dữ liệu "nóng".
+-- Cột mới Hibernate thêm vào bảng live được job tự thêm vào bảng archive trước mỗi lần chuyển.
+
+CREATE TABLE IF NOT EXISTS tickets_archive (
+    LIKE tickets,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE IF NOT EXISTS ticket_approvals_archive (
+    LIKE ticket_approvals,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE IF NOT EXISTS ticket_history_archive (
+    LIKE ticket_history,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Dòng không rơi vào partition năm nào (partition chưa kịp tạo) vẫn được nhận
+CREATE TABLE IF NOT EXISTS tickets_archive_default PARTITION OF tickets_archive DEFAULT;
+CREATE TABLE IF NOT EXISTS ticket_approvals_archive_default PARTITION OF ticket_approvals_archive DEFAULT;
+CREATE TABLE IF NOT EXISTS ticket_history_archive_default PARTITION OF ticket_history_archive DEFAULT;
+
+-- Đọc ticket lưu trữ theo id (getTicketById) và theo ticket_id cho approvals / history
+CREATE INDEX IF NOT EXISTS idx_tickets_archive_id ON tickets_archive (id);
+CREATE INDEX IF NOT EXISTS idx_tickets_archive_requester_created ON tickets_archive (requester_id, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_ticket_approvals_archive_ticket ON ticket_approvals_archive (ticket_id);
+CREATE INDEX IF NOT EXISTS idx_ticket_history_archive_ticket ON ticket_history_archive (ticket_id);
+
+-- Tìm ứng viên lưu trữ: ticket theo trạng thái, cập nhật lần cuối trước mốc
+CREATE INDEX IF NOT EXISTS idx_tickets_status_updated ON tickets (current_status_id, updated_at);
+
+-- Tạo partition năm p_year cho cả 3 bảng archive (gọi trước khi chuyển dữ liệu của năm đó)
+CREATE OR REPLACE FUNCTION ensure_ticket_archive_partitions(p_year INT) RETURNS VOID AS $$
+DECLARE
+    base TEXT;
+BEGIN
+    FOREACH base IN ARRAY ARRAY['tickets_archive', 'ticket_approvals_archive', 'ticket_history_archive'] LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                       base || '_' || p_year, base, make_date(p_year, 1, 1), make_date(p_year + 1, 1, 1));
+    END LOOP;
+END
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,19 @@
+-- Tạo bảng ticket_code_counters: bộ đếm mã ticket TICKET-YYYY-NNNNN theo năm
+-- next_value là số thứ tự đầu tiên chưa được cấp, app đặt trước từng khối số (ticket.code.block-size)
+CREATE TABLE IF NOT EXISTS ticket_code_counters (
+    code_year INTEGER PRIMARY KEY,
+    next_value BIGINT NOT NULL,
+    updated_at TIMESTAMP
+);
+
+-- Khởi tạo bộ đếm cho các năm đã có ticket, bắt đầu sau mã lớn nhất của từng năm
+INSERT INTO ticket_code_counters (code_year, next_value, updated_at)
+SELECT CAST(SUBSTRING(ticket_code FROM 8 FOR 4) AS INTEGER),
+       MAX(CAST(SUBSTRING(ticket_code FROM 13) AS BIGINT)) + 1,
+       CURRENT_TIMESTAMP
+FROM tickets
+WHERE ticket_code ~ '^TICKET-[0-9]{4}-[0-9]+$'
+GROUP BY CAST(SUBSTRING(ticket_code FROM 8 FOR 4) AS INTEGER)
+ON CONFLICT (code_year) DO UPDATE
+SET next_value = GREATEST(ticket_code_counters.next_value, EXCLUDED.next_value),
+    updated_at = CURRENT_TIMESTAMP;
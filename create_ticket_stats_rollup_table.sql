@@ -0,0 +1,38 @@
+-- Tạo bảng ticket_stats_rollup: số lượng ticket theo (ngày tạo, phòng ban, form template, trạng thái)
+-- Bảng được cập nhật tăng dần khi ticket được tạo / duyệt / từ chối, admin dashboard đọc trực tiếp từ đây
+CREATE TABLE IF NOT EXISTS ticket_stats_rollup (
+    id BIGSERIAL PRIMARY KEY,
+    stat_date DATE NOT NULL,
+    department_id BIGINT NOT NULL,
+    form_template_id BIGINT NOT NULL DEFAULT 0,
+    status_name VARCHAR(50) NOT NULL,
+    ticket_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP,
+
+    CONSTRAINT uk_ticket_stats_rollup_bucket UNIQUE (stat_date, department_id, form_template_id, status_name)
+);
+
+CREATE INDEX IF NOT EXISTS idx_ticket_stats_rollup_status ON ticket_stats_rollup(status_name);
+
+-- Dựng dữ liệu ban đầu từ ticket_history (có thể chạy lại qua POST /api/admin/stats/rollup/rebuild)
+DELETE FROM ticket_stats_rollup;
+INSERT INTO ticket_stats_rollup (stat_date, department_id, form_template_id, status_name, ticket_count, updated_at)
+SELECT CAST(t.created_at AS date),
+       t.department_id,
+       COALESCE(t.form_template_id, 0),
+       COALESCE(h.to_status, s.name),
+       COUNT(*),
+       CURRENT_TIMESTAMP
+FROM tickets t
+JOIN ticket_status s ON s.id = t.current_status_id
+LEFT JOIN LATERAL (
+    SELECT th.to_status
+    FROM ticket_history th
+    WHERE th.ticket_id = t.id AND th.to_status IS NOT NULL
+    ORDER BY th.created_at DESC, th.id DESC
+    LIMIT 1
+) h ON TRUE
+GROUP BY 1, 2, 3, 4;
+
+COMMENT ON TABLE ticket_stats_rollup IS 'Số lượng ticket tổng hợp theo ngày tạo, phòng ban, form template và trạng thái hiện tại';
+COMMENT ON COLUMN ticket_stats_rollup.form_template_id IS '0 nếu ticket không gắn form template';
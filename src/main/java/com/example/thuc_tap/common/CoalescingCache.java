@@ -0,0 +1,259 @@
+package com.example.thuc_tap.common;
+
+import com.example.thuc_tap.dto.response.CacheMetricsDto;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cache trong bộ nhớ có giới hạn kích thước (LRU) và thời gian sống (TTL)
+ * - Các request miss cùng một key đồng thời sẽ dùng chung một lần load (single-flight)
+ * - Giá trị load xong sau khi bị invalidate sẽ không được lưu lại (tránh ghi đè dữ liệu cũ)
+ */
+public class CoalescingCache<K, V> {
+
+    private final String name;
+    private final int maximumSize;
+    private final Duration ttl;
+
+    // LinkedHashMap theo thứ tự truy cập để loại bỏ phần tử ít dùng nhất, truy cập qua synchronized(entries)
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    // Tăng khi invalidate; chỉ đọc/ghi trong synchronized(entries) để so sánh và lưu kết quả load là 1 thao tác
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CoalescingCache(String name, int maximumSize, Duration ttl) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > CoalescingCache.this.maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Lấy giá trị từ cache, nếu chưa có (hoặc hết hạn) thì load bằng loader
+     * Nếu đã có thread khác đang load key này thì chờ và dùng chung kết quả
+     */
+    public V getOrLoad(K key, Function<? super K, ? extends V> loader) {
+        return getOrLoad(key, loader, value -> true);
+    }
+
+    /**
+     * Như getOrLoad(key, loader) nhưng chỉ lưu kết quả vào cache khi shouldCache trả về true
+     * (ví dụ không cache kết quả thiếu dữ liệu)
+     */
+    public V getOrLoad(K key, Function<? super K, ? extends V> loader, Predicate<? super V> shouldCache) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedLoads.increment();
+            return await(existing);
+        }
+
+        try {
+            // Thread load trước có thể vừa lưu xong giữa lúc kiểm tra cache và đăng ký in-flight
+            V raced = getIfPresent(key);
+            if (raced != null) {
+                future.complete(raced);
+                return raced;
+            }
+
+            long loadGeneration = currentGeneration();
+            long start = System.nanoTime();
+            V value;
+            try {
+                value = loader.apply(key);
+            } finally {
+                totalLoadNanos.add(System.nanoTime() - start);
+            }
+            loads.increment();
+
+            if (value != null && shouldCache.test(value)) {
+                putIfNotInvalidated(key, value, loadGeneration);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Lấy giá trị còn hạn trong cache, null nếu không có
+     */
+    public V getIfPresent(K key) {
+        synchronized (entries) {
+            CacheEntry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, new CacheEntry<>(value, System.nanoTime() + ttl.toNanos()));
+        }
+    }
+
+    /**
+     * Cập nhật tại chỗ giá trị đang có trong cache (giữ nguyên hạn TTL)
+     * remapping trả về null thì phần tử bị xóa khỏi cache
+     */
+    public void computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        synchronized (entries) {
+            CacheEntry<V> entry = entries.get(key);
+            if (entry == null || entry.isExpired()) {
+                entries.remove(key);
+                // Lần load đang chạy có thể đã đọc dữ liệu trước thay đổi này, không để nó lưu vào cache
+                if (inFlight.containsKey(key)) {
+                    generation++;
+                }
+                return;
+            }
+            V updated = remapping.apply(key, entry.value());
+            if (updated == null) {
+                entries.remove(key);
+            } else {
+                entries.put(key, new CacheEntry<>(updated, entry.expiresAtNanos()));
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        invalidations.increment();
+        synchronized (entries) {
+            generation++;
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.increment();
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            Iterator<CacheEntry<V>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isExpired()) {
+                    iterator.remove();
+                }
+            }
+            return entries.size();
+        }
+    }
+
+    /**
+     * Snapshot số liệu hoạt động của cache
+     */
+    public CacheMetricsDto metrics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long loadCount = loads.sum() + loadFailures.sum();
+        long requests = hitCount + missCount;
+        return CacheMetricsDto.builder()
+                .name(name)
+                .size(size())
+                .maximumSize(maximumSize)
+                .ttlSeconds(ttl.getSeconds())
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRate(requests > 0 ? (double) hitCount / requests * 100 : 0.0)
+                .loads(loads.sum())
+                .coalescedLoads(coalescedLoads.sum())
+                .loadFailures(loadFailures.sum())
+                .averageLoadMillis(loadCount > 0 ? totalLoadNanos.sum() / 1_000_000.0 / loadCount : 0.0)
+                .evictions(evictions.sum())
+                .invalidations(invalidations.sum())
+                .build();
+    }
+
+    private long currentGeneration() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * Lưu kết quả load nếu không có invalidate nào xảy ra kể từ lúc bắt đầu load
+     * So sánh generation và ghi trong cùng 1 khóa: invalidate chen giữa 2 bước không thể bị mất
+     */
+    private void putIfNotInvalidated(K key, V value, long loadGeneration) {
+        synchronized (entries) {
+            if (generation == loadGeneration) {
+                entries.put(key, new CacheEntry<>(value, System.nanoTime() + ttl.toNanos()));
+            }
+        }
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record CacheEntry<V>(V value, long expiresAtNanos) {
+        boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+}
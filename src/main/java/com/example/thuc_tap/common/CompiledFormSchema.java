@@ -0,0 +1,139 @@
+package com.example.thuc_tap.common;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bản biên dịch (bất biến) của FormSchema một form template
+ * - Tra field theo key bằng HashMap thay vì duyệt danh sách fields
+ * - subFields (table/repeater) được làm phẳng với key dạng "parentKey.childKey"
+ * Dùng chung cho convertToDto, validate form data và hiển thị
+ */
+public final class CompiledFormSchema {
+
+    private final Long templateId;
+    private final Integer version;
+    private final LocalDateTime templateUpdatedAt;
+    private final Map<String, FieldDescriptor> fields;
+    private final List<FieldDescriptor> topLevelFields;
+
+    private CompiledFormSchema(Long templateId, Integer version, LocalDateTime templateUpdatedAt,
+                               Map<String, FieldDescriptor> fields, List<FieldDescriptor> topLevelFields) {
+        this.templateId = templateId;
+        this.version = version;
+        this.templateUpdatedAt = templateUpdatedAt;
+        this.fields = Collections.unmodifiableMap(fields);
+        this.topLevelFields = Collections.unmodifiableList(topLevelFields);
+    }
+
+    /**
+     * Biên dịch schema của template; schema null cho ra bản rỗng
+     */
+    public static CompiledFormSchema compile(Long templateId, LocalDateTime templateUpdatedAt, FormSchema schema) {
+        Map<String, FieldDescriptor> fields = new LinkedHashMap<>();
+        List<FieldDescriptor> topLevelFields = new ArrayList<>();
+        if (schema != null && schema.getFields() != null) {
+            for (FormSchema.FieldSchema field : schema.getFields()) {
+                if (field == null || field.getKey() == null) {
+                    continue;
+                }
+                FieldDescriptor descriptor = FieldDescriptor.of(field, null);
+                topLevelFields.add(descriptor);
+                fields.putIfAbsent(descriptor.path(), descriptor);
+                if (field.getSubFields() != null) {
+                    for (FormSchema.FieldSchema subField : field.getSubFields()) {
+                        if (subField == null || subField.getKey() == null) {
+                            continue;
+                        }
+                        FieldDescriptor subDescriptor = FieldDescriptor.of(subField, field.getKey());
+                        fields.putIfAbsent(subDescriptor.path(), subDescriptor);
+                    }
+                }
+            }
+        }
+        return new CompiledFormSchema(templateId, schema != null ? schema.getVersion() : null,
+                templateUpdatedAt, fields, topLevelFields);
+    }
+
+    /**
+     * Schema đã biên dịch có còn khớp với template hiện tại không (so version và updatedAt)
+     */
+    public boolean matches(LocalDateTime updatedAt, FormSchema schema) {
+        Integer currentVersion = schema != null ? schema.getVersion() : null;
+        return Objects.equals(templateUpdatedAt, updatedAt) && Objects.equals(version, currentVersion);
+    }
+
+    /**
+     * Tìm field theo key ("key" hoặc "parentKey.childKey"), null nếu không có
+     */
+    public FieldDescriptor getField(String path) {
+        return fields.get(path);
+    }
+
+    public Map<String, FieldDescriptor> getFields() {
+        return fields;
+    }
+
+    public List<FieldDescriptor> getTopLevelFields() {
+        return topLevelFields;
+    }
+
+    public Long getTemplateId() {
+        return templateId;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    /**
+     * Các key cấp 1 bắt buộc nhập và không thể bị ẩn/miễn theo điều kiện
+     * (field có visibility hoặc conditionalRequired phụ thuộc giá trị khác nên không kiểm tra ở đây)
+     */
+    public List<String> getUnconditionallyRequiredKeys() {
+        return topLevelFields.stream()
+                .filter(FieldDescriptor::unconditionallyRequired)
+                .map(FieldDescriptor::key)
+                .toList();
+    }
+
+    /**
+     * Mô tả 1 field đã biên dịch
+     */
+    public record FieldDescriptor(
+            String key,
+            String path,          // key đầy đủ, "parentKey.childKey" với subField
+            String parentKey,     // null với field cấp 1
+            String label,
+            String type,
+            boolean required,
+            boolean conditional,  // có visibility hoặc conditionalRequired
+            Map<String, Object> meta) {
+
+        static FieldDescriptor of(FormSchema.FieldSchema field, String parentKey) {
+            FormSchema.ValidationConfig validation = field.getValidation();
+            boolean required = validation != null && Boolean.TRUE.equals(validation.getRequired());
+            boolean conditional = (validation != null && validation.getConditionalRequired() != null)
+                    || (field.getVisibility() != null && field.getVisibility().getConditions() != null
+                        && !field.getVisibility().getConditions().isEmpty());
+            return new FieldDescriptor(
+                    field.getKey(),
+                    parentKey != null ? parentKey + "." + field.getKey() : field.getKey(),
+                    parentKey,
+                    field.getLabel() != null ? field.getLabel().toString() : null,
+                    field.getType(),
+                    required,
+                    conditional,
+                    field.getMeta() != null ? Collections.unmodifiableMap(new LinkedHashMap<>(field.getMeta())) : Map.of());
+        }
+
+        public boolean unconditionallyRequired() {
+            return required && !conditional;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.thuc_tap.common;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Quy ước dùng chung giữa bộ lọc formData và việc tạo expression index
+ * - Biểu thức SQL sinh ra ở đây phải giống hệt nhau ở cả 2 phía thì planner mới chọn được index
+ * - Key chỉ được nhúng vào SQL sau khi qua isSafeKey (chữ, số, gạch dưới)
+ */
+public final class FormDataFields {
+
+    public static final String INDEX_PREFIX = "idx_tickets_fd_";
+
+    private static final Pattern SAFE_KEY = Pattern.compile("^[A-Za-z][A-Za-z0-9_]{0,62}$");
+    private static final int INDEX_KEY_PART_LENGTH = 21;
+
+    /**
+     * Cách so sánh giá trị của 1 loại field
+     */
+    public enum Kind {
+        TEXT,       // so khớp chính xác bằng containment (@>)
+        NUMBER,     // so sánh số qua form_data_numeric()
+        DATE,       // chuỗi ISO yyyy-MM-dd, so sánh theo thứ tự chuỗi
+        DATETIME;   // chuỗi ISO yyyy-MM-ddTHH:mm[:ss]
+
+        public boolean supportsRange() {
+            return this != TEXT;
+        }
+    }
+
+    private FormDataFields() {
+    }
+
+    /**
+     * Loại so sánh theo type của field trong FormSchema; null nếu không lọc được (FILE, table, repeater...)
+     */
+    public static Kind kindOf(String fieldType) {
+        if (fieldType == null) {
+            return null;
+        }
+        return switch (fieldType.toUpperCase(Locale.ROOT)) {
+            case "TEXT", "TEXTAREA", "SELECT", "DROPDOWN", "RADIO", "CHECKBOX", "EMAIL", "PHONE" -> Kind.TEXT;
+            case "NUMBER" -> Kind.NUMBER;
+            case "DATE" -> Kind.DATE;
+            case "DATETIME" -> Kind.DATETIME;
+            default -> null;
+        };
+    }
+
+    /**
+     * Field được đánh dấu meta.filterable = true (nhận cả boolean lẫn chuỗi "true")
+     */
+    public static boolean isFilterable(CompiledFormSchema.FieldDescriptor field) {
+        Object filterable = field.meta().get("filterable");
+        return Boolean.TRUE.equals(filterable) || "true".equalsIgnoreCase(String.valueOf(filterable));
+    }
+
+    public static boolean isSafeKey(String key) {
+        return key != null && SAFE_KEY.matcher(key).matches();
+    }
+
+    /**
+     * Biểu thức lấy giá trị của key cho các phép so sánh khoảng
+     * @param column cột form_data kèm alias, vd "t.form_data" (index dùng "form_data")
+     */
+    public static String valueExpression(Kind kind, String column, String key) {
+        requireSafeKey(key);
+        return kind == Kind.NUMBER
+                ? "form_data_numeric(" + column + ", '" + key + "')"
+                : "(" + column + " ->> '" + key + "')";
+    }
+
+    /**
+     * Tên index cho (template, key): key viết thường + hash của key gốc để không trùng khi chỉ khác hoa/thường,
+     * tổng độ dài luôn dưới giới hạn 63 ký tự của PostgreSQL
+     */
+    public static String indexName(Long templateId, String key) {
+        requireSafeKey(key);
+        String keyPart = key.toLowerCase(Locale.ROOT);
+        if (keyPart.length() > INDEX_KEY_PART_LENGTH) {
+            keyPart = keyPart.substring(0, INDEX_KEY_PART_LENGTH);
+        }
+        return INDEX_PREFIX + templateId + "_" + keyPart + "_" + String.format("%08x", key.hashCode());
+    }
+
+    private static void requireSafeKey(String key) {
+        if (!isSafeKey(key)) {
+            throw new IllegalArgumentException("Unsupported form field key: " + key);
+        }
+    }
+}
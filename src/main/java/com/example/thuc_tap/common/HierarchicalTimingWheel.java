@@ -0,0 +1,186 @@
+package com.example.thuc_tap.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bánh xe thời gian phân cấp (hierarchical hashed timing wheel) cho các hạn chót
+ * - Tầng 0 có wheelSize ô, mỗi ô = 1 tick; tầng k mỗi ô = wheelSize^k tick
+ * - Thêm / hủy / đổi hạn O(1); mỗi tick chỉ xử lý 1 ô tầng 0 (cộng ô tầng cao khi tới lượt dồn xuống)
+ * - Hạn xa hơn tầng cao nhất nằm ở vùng tràn và được xếp lại mỗi khi tầng cao nhất quay hết 1 vòng
+ *
+ * Không thread-safe: bên gọi tự đồng bộ
+ */
+public class HierarchicalTimingWheel<K> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final int levels;
+    private final long[] levelSpans;          // levelSpans[k] = wheelSize^k (số tick của 1 ô tầng k)
+    private final List<Set<K>>[] slots;        // slots[level][index]
+    private final Set<K> overflow = new LinkedHashSet<>();
+    private final Set<K> expired = new LinkedHashSet<>();       // đã tới hạn, chờ advance() trả về
+    private final Map<K, Entry> entries = new HashMap<>();
+
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levels < 1) {
+            throw new IllegalArgumentException("Invalid timing wheel configuration");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levels = levels;
+        this.levelSpans = new long[levels + 1];
+        this.levelSpans[0] = 1;
+        for (int level = 1; level <= levels; level++) {
+            this.levelSpans[level] = Math.multiplyExact(levelSpans[level - 1], wheelSize);
+        }
+        this.slots = new List[levels];
+        for (int level = 0; level < levels; level++) {
+            List<Set<K>> wheel = new ArrayList<>(wheelSize);
+            for (int index = 0; index < wheelSize; index++) {
+                wheel.add(new LinkedHashSet<>());
+            }
+            this.slots[level] = wheel;
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Đặt (hoặc đổi) hạn chót cho key; hạn đã qua sẽ được trả về ở lần advance kế tiếp
+     */
+    public void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        // Làm tròn lên: không bao giờ bắn sớm hơn hạn
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        Entry entry = new Entry(deadlineTick);
+        entries.put(key, entry);
+        place(key, entry);
+    }
+
+    public boolean cancel(K key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        bucketOf(entry).remove(key);
+        return true;
+    }
+
+    public boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Quay bánh xe tới thời điểm nowMillis
+     * @return các key đã tới hạn (bị xóa khỏi bánh xe)
+     */
+    public List<K> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        if (targetTick - currentTick > levelSpans[levels]) {
+            // Bị dừng quá lâu (lâu hơn 1 vòng tầng cao nhất): xếp lại toàn bộ thay vì quay từng tick
+            currentTick = targetTick;
+            rebuild();
+        }
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = levels - 1; level >= 1; level--) {
+                if (currentTick % levelSpans[level] == 0) {
+                    cascade(slots[level].get(slotIndex(currentTick, level)));
+                }
+            }
+            if (currentTick % levelSpans[levels] == 0) {
+                cascade(overflow);
+            }
+            Set<K> bucket = slots[0].get(slotIndex(currentTick, 0));
+            if (!bucket.isEmpty()) {
+                List<K> due = new ArrayList<>(bucket);
+                bucket.clear();
+                for (K key : due) {
+                    place(key, entries.get(key));
+                }
+            }
+        }
+
+        if (expired.isEmpty()) {
+            return List.of();
+        }
+        List<K> fired = new ArrayList<>(expired);
+        expired.clear();
+        fired.forEach(entries::remove);
+        return fired;
+    }
+
+    private void cascade(Set<K> bucket) {
+        if (bucket.isEmpty()) {
+            return;
+        }
+        List<K> keys = new ArrayList<>(bucket);
+        bucket.clear();
+        for (K key : keys) {
+            place(key, entries.get(key));
+        }
+    }
+
+    private void rebuild() {
+        for (List<Set<K>> wheel : slots) {
+            wheel.forEach(Set::clear);
+        }
+        overflow.clear();
+        expired.clear();
+        entries.forEach(this::place);
+    }
+
+    /**
+     * Xếp entry vào tầng thấp nhất chứa được khoảng cách tới hạn
+     */
+    private void place(K key, Entry entry) {
+        long delta = entry.deadlineTick - currentTick;
+        if (delta <= 0) {
+            entry.level = -1;
+            expired.add(key);
+            return;
+        }
+        for (int level = 0; level < levels; level++) {
+            if (delta < levelSpans[level + 1]) {
+                entry.level = level;
+                entry.index = slotIndex(entry.deadlineTick, level);
+                slots[level].get(entry.index).add(key);
+                return;
+            }
+        }
+        entry.level = levels;
+        overflow.add(key);
+    }
+
+    private Set<K> bucketOf(Entry entry) {
+        if (entry.level < 0) {
+            return expired;
+        }
+        return entry.level == levels ? overflow : slots[entry.level].get(entry.index);
+    }
+
+    private int slotIndex(long tick, int level) {
+        return (int) Math.floorMod(tick / levelSpans[level], (long) wheelSize);
+    }
+
+    private static final class Entry {
+        final long deadlineTick;
+        int level;
+        int index;
+
+        Entry(long deadlineTick) {
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.thuc_tap.common;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Vị trí (created_at, id) của phần tử cuối trang, dùng cho phân trang keyset (seek)
+ * Client chỉ thấy chuỗi Base64 "mờ" và gửi lại nguyên văn để lấy trang tiếp theo
+ *
+ * Trang đầu dùng FIRST (mốc lớn hơn mọi bản ghi) để truy vấn trang đầu và trang sau dùng chung 1 câu SQL:
+ * created_at <= :createdAt AND (created_at < :createdAt OR id < :id) ORDER BY created_at DESC, id DESC
+ */
+public record KeysetCursor(LocalDateTime createdAt, Long id) {
+
+    public static final KeysetCursor FIRST = new KeysetCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Giải mã cursor từ client; null/rỗng nghĩa là trang đầu
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // NumberFormatException cũng là IllegalArgumentException
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.thuc_tap.common;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Phiên bản của ticket dùng cho conditional GET (ETag / Last-Modified)
+ * Đổi khi ticket được cập nhật (updatedAt), khi 1 bước duyệt được cập nhật (max updatedAt của approvals)
+ * hoặc khi số bước duyệt thay đổi
+ * Biểu diễn có kèm lịch sử thì thêm số bản ghi / thời điểm mới nhất của ticket_history (historyCount != null)
+ */
+public record TicketVersion(Long ticketId, LocalDateTime ticketUpdatedAt, LocalDateTime approvalsUpdatedAt, long approvalCount,
+                            Long historyCount, LocalDateTime historyUpdatedAt) {
+
+    public TicketVersion(Long ticketId, LocalDateTime ticketUpdatedAt, LocalDateTime approvalsUpdatedAt, long approvalCount) {
+        this(ticketId, ticketUpdatedAt, approvalsUpdatedAt, approvalCount, null, null);
+    }
+
+    /**
+     * Bản sao có tính cả lịch sử ticket
+     */
+    public TicketVersion withHistory(long historyCount, LocalDateTime historyUpdatedAt) {
+        return new TicketVersion(ticketId, ticketUpdatedAt, approvalsUpdatedAt, approvalCount, historyCount, historyUpdatedAt);
+    }
+
+    /**
+     * ETag (chưa có dấu ngoặc kép, WebRequest.checkNotModified tự thêm)
+     * @param variant phân biệt các biểu diễn khác nhau của cùng ticket, vd: có / không kèm lịch sử
+     */
+    public String etag(String variant) {
+        String etag = variant + "-" + ticketId + "-" + toMicros(ticketUpdatedAt) + "-" + toMicros(approvalsUpdatedAt) + "-" + approvalCount;
+        if (historyCount != null) {
+            etag += "-" + historyCount + "-" + toMicros(historyUpdatedAt);
+        }
+        return etag;
+    }
+
+    /**
+     * Thời điểm thay đổi gần nhất (epoch millis) cho header Last-Modified; -1 nếu không xác định
+     */
+    public long lastModified() {
+        LocalDateTime latest = later(later(ticketUpdatedAt, approvalsUpdatedAt), historyUpdatedAt);
+        return latest != null ? latest.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+
+    private static LocalDateTime later(LocalDateTime first, LocalDateTime second) {
+        if (first == null) {
+            return second;
+        }
+        return second != null && second.isAfter(first) ? second : first;
+    }
+
+    private static String toMicros(LocalDateTime time) {
+        if (time == null) {
+            return "0";
+        }
+        return Long.toString(time.atZone(ZoneId.systemDefault()).toEpochSecond() * 1_000_000 + time.getNano() / 1_000, 36);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.thuc_tap.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Thread pool cho các phần thống kê chạy song song (mỗi phần dùng 1 connection DB riêng)
+     * Giữ pool nhỏ để không chiếm hết connection pool; khi đầy thì từ chối (phần thống kê đó bị đánh dấu thất bại)
+     * thay vì chạy trên thread request
+     */
+    @Bean(name = "statsExecutor")
+    public ThreadPoolTaskExecutor statsExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(32);
+        executor.setThreadNamePrefix("stats-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Thread pool gửi dữ liệu SSE tới client, tách khỏi thread xử lý sự kiện
+     * để client chậm không chặn các client khác
+     */
+    @Bean(name = "sseExecutor")
+    public ThreadPoolTaskExecutor sseExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("sse-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 1 thread tạo expression index cho formData (CREATE INDEX CONCURRENTLY không chạy trong transaction
+     * và không nên chạy song song trên cùng bảng tickets)
+     */
+    @Bean(name = "formDataIndexExecutor")
+    public ThreadPoolTaskExecutor formDataIndexExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("form-index-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 1 thread cho job lưu trữ ticket (chạy lâu, không được chặn thread scheduler của SLA tick / heartbeat SSE)
+     * Không có hàng đợi: lần chạy trước chưa xong thì lần sau bị từ chối
+     */
+    @Bean(name = "archiveExecutor")
+    public ThreadPoolTaskExecutor archiveExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("archive-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.thuc_tap.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật các tác vụ định kỳ (@Scheduled): heartbeat/flush luồng SSE dashboard, ...
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,16 +1,25 @@
 package com.example.thuc_tap.controller;
 
 import com.example.thuc_tap.dto.response.AdminDashboardStatsDto;
+import com.example.thuc_tap.dto.response.CacheMetricsDto;
 import com.example.thuc_tap.dto.response.DailyTicketStatsDto;
 import com.example.thuc_tap.dto.response.DepartmentStatsDto;
+import com.example.thuc_tap.dto.response.ProcessingTimeStatsDto;
+import com.example.thuc_tap.dto.response.QuickStatsDto;
 import com.example.thuc_tap.dto.response.UserGrowthStatsDto;
 import com.example.thuc_tap.dto.response.RecentUserDto;
 import com.example.thuc_tap.service.AdminStatsService;
+import com.example.thuc_tap.service.DashboardStreamService;
+import com.example.thuc_tap.service.ReferenceDataRegistry;
+import com.example.thuc_tap.service.TicketStatsRollupService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller xử lý các API cho Admin Dashboard và thống kê
@@ -23,6 +32,9 @@ import java.util.List;
 public class AdminController {
 
     private final AdminStatsService adminStatsService;
+    private final TicketStatsRollupService ticketStatsRollupService;
+    private final DashboardStreamService dashboardStreamService;
+    private final ReferenceDataRegistry referenceDataRegistry;
 
     /**
      * API lấy thống kê tổng quan cho dashboard
@@ -74,6 +86,23 @@ public class AdminController {
         return ResponseEntity.ok(dailyStats);
     }
 
+    /**
+     * API lấy thống kê thời gian xử lý ticket (SLA) theo phòng ban và form template
+     * GET /api/admin/stats/processing-time?period=week|month|year
+     * - Trả về mean, p50, p90, p99 (giờ) và thời gian xử lý từng bước duyệt
+     */
+    @GetMapping("/stats/processing-time")
+    public ResponseEntity<List<ProcessingTimeStatsDto>> getProcessingTimeStats(
+            @RequestParam(defaultValue = "month") String period) {
+        
+        if (!isValidPeriod(period)) {
+            period = "month";
+        }
+        
+        List<ProcessingTimeStatsDto> processingTimeStats = adminStatsService.getProcessingTimeStats(period);
+        return ResponseEntity.ok(processingTimeStats);
+    }
+
     /**
      * API lấy thống kê nhanh (metrics đơn giản)
      * GET /api/admin/stats/quick
@@ -81,18 +110,23 @@ public class AdminController {
      */
     @GetMapping("/stats/quick")
     public ResponseEntity<QuickStatsDto> getQuickStats() {
-        AdminDashboardStatsDto fullStats = adminStatsService.getOverviewStats("month");
-        
-        QuickStatsDto quickStats = QuickStatsDto.builder()
-                .totalTickets(fullStats.getTotalTickets())
-                .totalUsers(fullStats.getTotalUsers())
-                .pendingTickets(fullStats.getPendingTickets())
-                .approvalRate(fullStats.getApprovalRate())
-                .build();
+        QuickStatsDto quickStats = adminStatsService.getQuickStats();
         
         return ResponseEntity.ok(quickStats);
     }
 
+    /**
+     * Luồng SSE thống kê nhanh, thay cho việc poll /stats/quick
+     * GET /api/admin/stats/stream
+     * - Sự kiện "snapshot" khi kết nối, "delta" (chỉ các trường thay đổi) khi có ticket được tạo/duyệt/từ chối
+     * - Trình duyệt tự gửi Last-Event-ID khi reconnect để nhận lại các delta bị lỡ
+     */
+    @GetMapping(value = "/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamQuickStats(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return dashboardStreamService.subscribeAdmin(lastEventId);
+    }
+
     /**
      * API lấy thống kê tăng trưởng người dùng theo thời gian
      * GET /api/admin/stats/user-growth?period=week|month|year
@@ -127,6 +161,38 @@ public class AdminController {
         return ResponseEntity.ok(recentUsers);
     }
 
+    /**
+     * API dựng lại bảng tổng hợp ticket_stats_rollup từ ticket_history
+     * POST /api/admin/stats/rollup/rebuild
+     * - Dùng khi rollup bị lệch (import dữ liệu trực tiếp vào DB, sửa tay...)
+     */
+    @PostMapping("/stats/rollup/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildStatsRollup() {
+        int buckets = ticketStatsRollupService.rebuildFromHistory();
+        return ResponseEntity.ok(Map.of("buckets", buckets));
+    }
+
+    /**
+     * API xem số liệu cache thống kê (hit/miss, thời gian tính toán)
+     * GET /api/admin/stats/cache-metrics
+     */
+    @GetMapping("/stats/cache-metrics")
+    public ResponseEntity<List<CacheMetricsDto>> getStatsCacheMetrics() {
+        return ResponseEntity.ok(List.of(
+                adminStatsService.getOverviewStatsCacheMetrics(),
+                adminStatsService.getProcessingTimeStatsCacheMetrics()));
+    }
+
+    /**
+     * API nạp lại danh mục trong bộ nhớ (trạng thái, mức ưu tiên, role, loại field)
+     * POST /api/admin/reference-data/reload
+     * - Dùng sau khi sửa danh mục trực tiếp trong DB
+     */
+    @PostMapping("/reference-data/reload")
+    public ResponseEntity<Map<String, Integer>> reloadReferenceData() {
+        return ResponseEntity.ok(referenceDataRegistry.reload());
+    }
+
     // ========== HELPER METHODS ==========
     
     /**
@@ -136,18 +202,4 @@ public class AdminController {
         return period != null && 
                (period.equals("week") || period.equals("month") || period.equals("year"));
     }
-
-    // ========== INNER DTO CLASS ==========
-    
-    /**
-     * DTO cho thống kê nhanh (metrics cơ bản)
-     */
-    @lombok.Builder
-    @lombok.Data
-    public static class QuickStatsDto {
-        private Long totalTickets;
-        private Long totalUsers;
-        private Long pendingTickets;
-        private Double approvalRate;
-    }
 }
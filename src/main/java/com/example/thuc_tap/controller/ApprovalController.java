@@ -1,19 +1,28 @@
 package com.example.thuc_tap.controller;
 
+import com.example.thuc_tap.common.TicketVersion;
 import com.example.thuc_tap.dto.request.ApproveRequest;
 import com.example.thuc_tap.dto.request.RejectRequest;
 import com.example.thuc_tap.dto.request.ForwardRequest;
+import com.example.thuc_tap.dto.response.CursorPage;
+import com.example.thuc_tap.dto.response.ApprovalQueueItemDto;
 import com.example.thuc_tap.dto.response.TicketApprovalsResponse;
 import com.example.thuc_tap.entity.ApprovalTask;
 import com.example.thuc_tap.entity.Ticket;
-import com.example.thuc_tap.entity.TicketApproval;
 import com.example.thuc_tap.service.ApprovalService;
 import com.example.thuc_tap.repository.ApprovalTaskRepository;
+import com.example.thuc_tap.service.DashboardStreamService;
 import com.example.thuc_tap.service.TicketApprovalService;
+import com.example.thuc_tap.service.TicketService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/approvals")
@@ -23,12 +32,17 @@ public class ApprovalController {
     private final ApprovalService approvalService;
     private final ApprovalTaskRepository approvalTaskRepository;
     private final TicketApprovalService ticketApprovalService;
+    private final DashboardStreamService dashboardStreamService;
+    private final TicketService ticketService;
 
     public ApprovalController(ApprovalService approvalService,
-                              ApprovalTaskRepository approvalTaskRepository, TicketApprovalService ticketApprovalService) {
+                              ApprovalTaskRepository approvalTaskRepository, TicketApprovalService ticketApprovalService,
+                              DashboardStreamService dashboardStreamService, TicketService ticketService) {
         this.approvalService = approvalService;
         this.approvalTaskRepository = approvalTaskRepository;
         this.ticketApprovalService = ticketApprovalService;
+        this.dashboardStreamService = dashboardStreamService;
+        this.ticketService = ticketService;
     }
 
     // Statistics for approver dashboard
@@ -37,36 +51,80 @@ public class ApprovalController {
         return ResponseEntity.ok(approvalService.getApprovalStats(approverId));
     }
 
+    // Live statistics stream (SSE) for approver dashboard - replaces polling /stats
+    @GetMapping(value = "/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamApprovalStats(@RequestParam(required = true) Long approverId,
+                                          @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return dashboardStreamService.subscribeApprover(approverId, lastEventId);
+    }
+
     // Pending queue with filters (pageable)
     @GetMapping("/pending")
-    public ResponseEntity<Page<TicketApproval>> pending(@RequestParam(required=true) Long approverId,
+    public ResponseEntity<Page<ApprovalQueueItemDto>> pending(@RequestParam(required=true) Long approverId,
                                                       @RequestParam(required=false) Long departmentId,
                                                       @RequestParam(required=false) Long formTemplateId,
                                                       @RequestParam(required=false) String priority,
                                                       @RequestParam(required=false) String employeeCode,
                                                       @RequestParam(required=false) String q,
                                                       Pageable pageable) {
-        Page<TicketApproval> page = approvalService.getPendingTicketsForApprover(approverId, departmentId, formTemplateId, priority, employeeCode, q, pageable);
+        Page<ApprovalQueueItemDto> page = approvalService.getPendingTicketsForApprover(approverId, departmentId, formTemplateId, priority, employeeCode, q, pageable);
         return ResponseEntity.ok(page);
     }
 
     // Processed tickets by approver
     @GetMapping("/processed")
-    public ResponseEntity<Page<TicketApproval>> processed(@RequestParam(required=true) Long approverId,
+    public ResponseEntity<Page<ApprovalQueueItemDto>> processed(@RequestParam(required=true) Long approverId,
                                                         @RequestParam(required=false) Long departmentId,
                                                         @RequestParam(required=false) Long formTemplateId,
                                                         @RequestParam(required=false) String priority,
                                                         @RequestParam(required=false) String employeeCode,
                                                         @RequestParam(required=false) String q,
                                                         Pageable pageable) {
-        Page<TicketApproval> page = approvalService.getProcessedTicketsForApprover(approverId, departmentId, formTemplateId, priority, employeeCode, q, pageable);
+        Page<ApprovalQueueItemDto> page = approvalService.getProcessedTicketsForApprover(approverId, departmentId, formTemplateId, priority, employeeCode, q, pageable);
         return ResponseEntity.ok(page);
     }
 
-    // Ticket details + approvals history — you can implement a DTO wrapper
+    // Pending queue with keyset pagination: pass nextCursor of the previous page to get the next one
+    @GetMapping("/pending/cursor")
+    public ResponseEntity<CursorPage<ApprovalQueueItemDto>> pendingByCursor(@RequestParam(required=true) Long approverId,
+                                                                      @RequestParam(required=false) Long departmentId,
+                                                                      @RequestParam(required=false) Long formTemplateId,
+                                                                      @RequestParam(required=false) String priority,
+                                                                      @RequestParam(required=false) String employeeCode,
+                                                                      @RequestParam(required=false) String q,
+                                                                      @RequestParam(required=false) String cursor,
+                                                                      @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(approvalService.getPendingTicketsForApproverByCursor(approverId, departmentId, formTemplateId,
+                priority, employeeCode, q, cursor, clampPageSize(size)));
+    }
+
+    // Processed tickets with keyset pagination
+    @GetMapping("/processed/cursor")
+    public ResponseEntity<CursorPage<ApprovalQueueItemDto>> processedByCursor(@RequestParam(required=true) Long approverId,
+                                                                        @RequestParam(required=false) Long departmentId,
+                                                                        @RequestParam(required=false) Long formTemplateId,
+                                                                        @RequestParam(required=false) String priority,
+                                                                        @RequestParam(required=false) String employeeCode,
+                                                                        @RequestParam(required=false) String q,
+                                                                        @RequestParam(required=false) String cursor,
+                                                                        @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(approvalService.getProcessedTicketsForApproverByCursor(approverId, departmentId, formTemplateId,
+                priority, employeeCode, q, cursor, clampPageSize(size)));
+    }
+
+    // Ticket details + approvals (+ lịch sử khi includeHistory=true)
+    // Hỗ trợ If-None-Match / If-Modified-Since: trả 304 trước khi dựng payload nếu ticket và approvals
+    // (và lịch sử, khi includeHistory=true) không đổi
     @GetMapping("/{ticketId}/detail")
-    public ResponseEntity<TicketApprovalsResponse> ticketApprovals(@PathVariable Long ticketId) {
-        TicketApprovalsResponse payload = ticketApprovalService.getTicketApprovalsPayload(ticketId);
+    public ResponseEntity<TicketApprovalsResponse> ticketApprovals(@PathVariable Long ticketId,
+                                                                   @RequestParam(defaultValue = "false") boolean includeHistory,
+                                                                   WebRequest webRequest) {
+        Optional<TicketVersion> version = ticketService.getTicketVersion(ticketId, includeHistory);
+        if (version.isPresent() && webRequest.checkNotModified(
+                version.get().etag(includeHistory ? "approvals-history" : "approvals"), version.get().lastModified())) {
+            return null;
+        }
+        TicketApprovalsResponse payload = ticketApprovalService.getTicketApprovalsPayload(ticketId, includeHistory);
         return ResponseEntity.ok(payload);
     }
 
@@ -96,4 +154,8 @@ public class ApprovalController {
 //        // PROD: replace with SecurityContextHolder retrieval
 //        return 4L; // TODO: Get from SecurityContextHolder
 //    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, 100));
+    }
 }
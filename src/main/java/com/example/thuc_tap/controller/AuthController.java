@@ -41,6 +41,8 @@ public class AuthController {
                 .body(new LoginResponse(null, "Bearer", null, "Account is deactivated"));
         }
 
+        userService.recordLogin(userDto.getId());
+
         // Tạo token đơn giản và response nhanh chóng
         String token = "token_" + userDto.getId() + "_" + System.currentTimeMillis();
         
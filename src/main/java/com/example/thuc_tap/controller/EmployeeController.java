@@ -1,6 +1,7 @@
 package com.example.thuc_tap.controller;
 
 import com.example.thuc_tap.dto.TicketDto;
+import com.example.thuc_tap.dto.response.CursorPage;
 import com.example.thuc_tap.service.TicketService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -54,6 +55,19 @@ public class EmployeeController {
         return ResponseEntity.ok(tickets);
     }
 
+    /**
+     * Lịch sử ticket theo cursor (mới nhất trước) - truyền nextCursor của trang trước để lấy trang tiếp
+     */
+    @GetMapping("/{employeeId}/tickets/cursor")
+    public ResponseEntity<CursorPage<TicketDto>> getEmployeeTicketsByCursor(
+            @PathVariable Long employeeId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+
+        int pageSize = Math.max(1, Math.min(size, 100));
+        return ResponseEntity.ok(ticketService.getEmployeeTicketsByCursor(employeeId, cursor, pageSize));
+    }
+
     /**
      * Lọc ticket theo trạng thái
      */
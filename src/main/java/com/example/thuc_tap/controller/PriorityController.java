@@ -1,7 +1,7 @@
 package com.example.thuc_tap.controller;
 
 import com.example.thuc_tap.entity.PriorityLevel;
-import com.example.thuc_tap.repository.PriorityLevelRepository;
+import com.example.thuc_tap.service.ReferenceDataRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -14,12 +14,12 @@ import java.util.List;
 public class PriorityController {
 
     @Autowired
-    private PriorityLevelRepository priorityLevelRepository;
+    private ReferenceDataRegistry referenceDataRegistry;
 
+    // Đọc từ danh mục trong bộ nhớ, không truy vấn DB
     @GetMapping
     public ResponseEntity<List<PriorityLevel>> getAll() {
-        return ResponseEntity.ok(priorityLevelRepository.findAll());
+        return ResponseEntity.ok(referenceDataRegistry.getPriorities());
     }
 }
 
-
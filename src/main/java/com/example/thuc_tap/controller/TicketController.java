@@ -1,7 +1,13 @@
 package com.example.thuc_tap.controller;
 
+import com.example.thuc_tap.common.TicketVersion;
 import com.example.thuc_tap.dto.TicketDto;
 import com.example.thuc_tap.dto.request.CreateTicketFromTemplateRequest;
+import com.example.thuc_tap.dto.request.TicketFormDataFilterRequest;
+import com.example.thuc_tap.dto.response.TicketImportResultDto;
+import com.example.thuc_tap.service.TicketExportService;
+import com.example.thuc_tap.service.TicketFormDataFilterService;
+import com.example.thuc_tap.service.TicketImportService;
 import com.example.thuc_tap.service.TicketService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -10,10 +16,22 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Controller xử lý CRUD ticket
@@ -27,6 +45,15 @@ public class TicketController {
     @Autowired
     private TicketService ticketService;
 
+    @Autowired
+    private TicketImportService ticketImportService;
+
+    @Autowired
+    private TicketFormDataFilterService ticketFormDataFilterService;
+
+    @Autowired
+    private TicketExportService ticketExportService;
+
     // Deprecated: form-data APIs removed since ticket stores JSON form_data directly
 
     // Removed legacy createTicket(TicketDto) since we now create from template JSON map
@@ -94,12 +121,98 @@ public class TicketController {
         return ResponseEntity.ok(createdTicket);
     }
 
+    /**
+     * Import ticket hàng loạt từ file NDJSON (mỗi dòng 1 ticket) hoặc CSV có header
+     * format không truyền thì suy ra từ đuôi file (.csv → csv, còn lại ndjson)
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<TicketImportResultDto> importTickets(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) Integer batchSize) throws IOException {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("Import file is empty");
+        }
+        String resolvedFormat = format != null ? format.toLowerCase()
+                : (file.getOriginalFilename() != null && file.getOriginalFilename().toLowerCase().endsWith(".csv")
+                        ? TicketImportService.FORMAT_CSV : TicketImportService.FORMAT_NDJSON);
+        if (!TicketImportService.FORMAT_CSV.equals(resolvedFormat) && !TicketImportService.FORMAT_NDJSON.equals(resolvedFormat)) {
+            throw new IllegalArgumentException("Unsupported import format: " + format);
+        }
+        try (InputStream inputStream = file.getInputStream()) {
+            return ResponseEntity.ok(ticketImportService.importTickets(inputStream, resolvedFormat, batchSize));
+        }
+    }
+
+
+    /**
+     * Tìm kiếm toàn văn ticket (mã, tiêu đề, mô tả, tên người yêu cầu; không phân biệt dấu), xếp theo độ liên quan
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<TicketDto>> searchTickets(
+            @RequestParam String q,
+            @RequestParam(required = false) Long requesterId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(ticketService.searchTickets(q, requesterId, limit));
+    }
+
+    /**
+     * Export ticket tạo trong [from, to) kèm formData và approval trail cho kiểm toán
+     * Dữ liệu được ghi dần ra response (StreamingResponseBody), gzip=true nén thành file .gz
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTickets(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = TicketExportService.FORMAT_CSV) String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        String resolvedFormat = format.toLowerCase();
+        if (!TicketExportService.FORMAT_CSV.equals(resolvedFormat) && !TicketExportService.FORMAT_NDJSON.equals(resolvedFormat)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("'to' must be after 'from'");
+        }
+
+        String fileName = "tickets_" + from + "_" + to + "." + resolvedFormat + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : TicketExportService.FORMAT_CSV.equals(resolvedFormat) ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                : MediaType.parseMediaType("application/x-ndjson;charset=UTF-8");
+
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, 64 * 1024);
+                ticketExportService.exportTickets(from.atStartOfDay(), to.atStartOfDay(), resolvedFormat, gzipStream);
+                gzipStream.finish();
+            } else {
+                ticketExportService.exportTickets(from.atStartOfDay(), to.atStartOfDay(), resolvedFormat, outputStream);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    /**
+     * Lọc ticket của 1 form template theo giá trị formData, vd: fromDate BETWEEN, equipment_type EQ laptop
+     * Field và toán tử được kiểm tra theo FormSchema của template (400 nếu không hợp lệ)
+     */
+    @PostMapping("/form-data/search")
+    public ResponseEntity<Page<TicketDto>> filterByFormData(@Valid @RequestBody TicketFormDataFilterRequest request) {
+        return ResponseEntity.ok(ticketFormDataFilterService.filterTickets(request));
+    }
 
     /**
      * Lấy chi tiết ticket
+     * Hỗ trợ If-None-Match / If-Modified-Since: trả 304 trước khi nạp ticket nếu ticket và approvals không đổi
      */
     @GetMapping("/{ticketId}")
-    public ResponseEntity<TicketDto> getTicketById(@PathVariable Long ticketId) {
+    public ResponseEntity<TicketDto> getTicketById(@PathVariable Long ticketId, WebRequest webRequest) {
+        Optional<TicketVersion> version = ticketService.getTicketVersion(ticketId);
+        if (version.isPresent() && webRequest.checkNotModified(version.get().etag("ticket"), version.get().lastModified())) {
+            return null;
+        }
         Optional<TicketDto> ticket = ticketService.getTicketById(ticketId);
         return ticket.map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
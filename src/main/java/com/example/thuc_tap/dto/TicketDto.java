@@ -50,4 +50,34 @@ public class TicketDto {
     
     private List<TicketFormDataDto> formData;
     private List<TicketApprovalDto> approvals;
+
+    /**
+     * Constructor cho projection JPQL của các màn hình danh sách: chỉ các cột vô hướng,
+     * formData / approvals để null (xem chi tiết qua GET /api/tickets/{id})
+     */
+    public TicketDto(Long id, String ticketCode, String title, String description,
+                     Long requesterId, String requesterName,
+                     Long formTemplateId, String formTemplateName,
+                     Long departmentId, String departmentName,
+                     Long currentStatusId, String currentStatusName,
+                     Long priorityId, String priorityName,
+                     LocalDateTime dueDate, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.ticketCode = ticketCode;
+        this.title = title;
+        this.description = description;
+        this.requesterId = requesterId;
+        this.requesterName = requesterName;
+        this.formTemplateId = formTemplateId;
+        this.formTemplateName = formTemplateName;
+        this.departmentId = departmentId;
+        this.departmentName = departmentName;
+        this.currentStatusId = currentStatusId;
+        this.currentStatusName = currentStatusName;
+        this.priorityId = priorityId;
+        this.priorityName = priorityName;
+        this.dueDate = dueDate;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
 }
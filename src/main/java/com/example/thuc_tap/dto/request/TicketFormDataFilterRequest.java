@@ -0,0 +1,44 @@
+package com.example.thuc_tap.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Lọc ticket của 1 form template theo giá trị trong formData
+ * Ví dụ: { "formTemplateId": 3, "conditions": [ { "field": "fromDate", "operator": "BETWEEN", "values": ["2025-01-01", "2025-01-31"] } ] }
+ */
+@Data
+public class TicketFormDataFilterRequest {
+
+    @NotNull(message = "Form template ID is required")
+    private Long formTemplateId;
+
+    // Chỉ lọc trong ticket của người này (null = tất cả)
+    private Long requesterId;
+
+    @NotEmpty(message = "At least one condition is required")
+    @Valid
+    private List<Condition> conditions;
+
+    // Pagination
+    private Integer page = 0;
+    private Integer pageSize = 10;
+
+    @Data
+    public static class Condition {
+
+        @NotBlank(message = "Field key is required")
+        private String field;       // key field cấp 1 trong FormSchema
+
+        @NotBlank(message = "Operator is required")
+        private String operator;    // EQ, IN, GT, GTE, LT, LTE, BETWEEN
+
+        private Object value;       // EQ, GT, GTE, LT, LTE
+        private List<Object> values; // IN (1..n giá trị), BETWEEN (đúng 2 giá trị)
+    }
+}
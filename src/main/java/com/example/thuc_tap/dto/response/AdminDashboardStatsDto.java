@@ -37,6 +37,8 @@ public class AdminDashboardStatsDto {
     // Thống kê theo thời gian
     private LocalDateTime lastUpdated;
     private String period; // "week", "month", "year"
+    private Boolean partial;              // true nếu có phần thống kê bị timeout/lỗi (dữ liệu phần đó để trống)
+    private List<String> failedSections;  // Tên các phần thống kê không lấy được
     
     // Thống kê chi tiết theo phòng ban
     private List<DepartmentStatsDto> departmentStats;
@@ -0,0 +1,65 @@
+package com.example.thuc_tap.dto.response;
+
+import com.example.thuc_tap.entity.ApprovalAction;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng trong hàng chờ duyệt / danh sách đã xử lý của approver
+ * - Dựng trực tiếp từ JPQL "SELECT new ..." (chỉ lấy các cột màn hình danh sách cần), không nạp entity Ticket
+ * - Giữ nguyên hình dạng JSON cũ của TicketApproval (ticket.requester, ticket.department, ...) để frontend không phải đổi
+ */
+@Data
+@NoArgsConstructor
+public class ApprovalQueueItemDto {
+
+    private Long id;
+    private ApprovalAction action;
+    private String comments;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private TicketSummary ticket;
+
+    /**
+     * Constructor phẳng cho JPQL (Hibernate không hỗ trợ "new" lồng nhau)
+     */
+    public ApprovalQueueItemDto(Long id, ApprovalAction action, String comments,
+                                LocalDateTime createdAt, LocalDateTime updatedAt,
+                                Long ticketId, String ticketCode, String title,
+                                LocalDateTime ticketCreatedAt, LocalDateTime dueDate,
+                                Long requesterId, String requesterEmployeeCode, String requesterFullName,
+                                Long departmentId, String departmentName,
+                                Long formTemplateId, String formTemplateName,
+                                Long priorityId, String priorityName,
+                                Long statusId, String statusName) {
+        this.id = id;
+        this.action = action;
+        this.comments = comments;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.ticket = new TicketSummary(ticketId, ticketCode, title, ticketCreatedAt, dueDate,
+                new RequesterRef(requesterId, requesterEmployeeCode, requesterFullName),
+                NamedRef.of(departmentId, departmentName),
+                NamedRef.of(formTemplateId, formTemplateName),
+                NamedRef.of(priorityId, priorityName),
+                NamedRef.of(statusId, statusName));
+    }
+
+    public record TicketSummary(Long id, String ticketCode, String title,
+                                LocalDateTime createdAt, LocalDateTime dueDate,
+                                RequesterRef requester, NamedRef department, NamedRef formTemplate,
+                                NamedRef priority, NamedRef currentStatus) {
+    }
+
+    public record RequesterRef(Long id, String employeeCode, String fullName) {
+    }
+
+    public record NamedRef(Long id, String name) {
+        // LEFT JOIN không khớp (vd: ticket không có mức ưu tiên) -> null như entity cũ
+        static NamedRef of(Long id, String name) {
+            return id == null ? null : new NamedRef(id, name);
+        }
+    }
+}
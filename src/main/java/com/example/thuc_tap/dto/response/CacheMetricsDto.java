@@ -0,0 +1,32 @@
+package com.example.thuc_tap.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO cho số liệu hoạt động của một cache trong bộ nhớ (hit/miss, thời gian load)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CacheMetricsDto {
+
+    private String name;
+    private Integer size;
+    private Integer maximumSize;
+    private Long ttlSeconds;
+
+    private Long hits;
+    private Long misses;
+    private Double hitRate;            // % hit trên tổng số lần truy cập
+
+    private Long loads;                // Số lần thực sự tính toán lại
+    private Long coalescedLoads;       // Số lần miss dùng chung kết quả đang tính của request khác
+    private Long loadFailures;
+    private Double averageLoadMillis;
+    private Long evictions;
+    private Long invalidations;
+}
@@ -0,0 +1,36 @@
+package com.example.thuc_tap.dto.response;
+
+import com.example.thuc_tap.common.KeysetCursor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Một trang kết quả phân trang keyset: không có tổng số phần tử/số trang,
+ * chỉ có cursor để lấy trang tiếp theo
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;     // null khi đã hết dữ liệu
+
+    /**
+     * Dựng trang từ kết quả truy vấn lấy dư 1 dòng (size + 1) để biết còn trang sau hay không
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int size,
+                                          Function<E, KeysetCursor> cursorOf,
+                                          Function<List<E>, List<T>> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<E> pageRows = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(pageRows.get(pageRows.size() - 1)).encode() : null;
+        return new CursorPage<>(mapper.apply(pageRows), pageRows.size(), hasNext, nextCursor);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.thuc_tap.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO cho thống kê thời gian xử lý ticket (giờ)
+ * Dùng cho báo cáo SLA theo phòng ban và theo form template
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProcessingTimeStatsDto {
+
+    private String dimension;       // "DEPARTMENT" hoặc "FORM_TEMPLATE"
+    private Long groupId;
+    private String groupName;
+
+    // Thời gian từ lúc tạo ticket (CREATED) đến khi kết thúc (COMPLETED/REJECTED)
+    private Long ticketCount;
+    private Double averageHours;
+    private Double p50Hours;
+    private Double p90Hours;
+    private Double p99Hours;
+
+    // Thời gian xử lý từng bước duyệt (ApprovalTask.assignedAt -> actedAt)
+    private Long approvalStepCount;
+    private Double averageApprovalStepHours;
+    private Double p90ApprovalStepHours;
+}
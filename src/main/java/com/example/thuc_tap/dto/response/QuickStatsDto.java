@@ -0,0 +1,20 @@
+package com.example.thuc_tap.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO cho thống kê nhanh (metrics cơ bản) trên các widget nhỏ của dashboard
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QuickStatsDto {
+    private Long totalTickets;
+    private Long totalUsers;
+    private Long pendingTickets;
+    private Double approvalRate;       // Thực chất là completion rate (completed / total * 100)
+}
@@ -22,6 +22,8 @@ public class TicketApprovalsResponse {
     private Map<String, Object> formData;
     private List<TicketApprovalDto> approvals;
     private TicketApprovalDto nextPending;
+    // Chỉ có khi gọi với includeHistory=true
+    private List<TicketHistoryDto> history;
 
     // getters / setters
     public Long getTicketId() { return ticketId; }
@@ -48,6 +50,9 @@ public class TicketApprovalsResponse {
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
     public LocalDateTime getDueDate() { return dueDate; }
     public void setDueDate(LocalDateTime dueDate) { this.dueDate = dueDate; }
 
@@ -68,4 +73,7 @@ public class TicketApprovalsResponse {
 
     public TicketApprovalDto getNextPending() { return nextPending; }
     public void setNextPending(TicketApprovalDto nextPending) { this.nextPending = nextPending; }
+
+    public List<TicketHistoryDto> getHistory() { return history; }
+    public void setHistory(List<TicketHistoryDto> history) { this.history = history; }
 }
@@ -0,0 +1,26 @@
+package com.example.thuc_tap.dto.response;
+
+import com.example.thuc_tap.entity.TicketHistory;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 1 dòng lịch sử ticket (dựng bằng constructor projection, không nạp entity)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketHistoryDto {
+    private Long id;
+    private TicketHistory.TicketHistoryAction actionType;
+    private String actionDescription;
+    private String fromStatus;
+    private String toStatus;
+    private String comments;
+    private Long actionByUserId;
+    private String actionByUserName;
+    private LocalDateTime createdAt;
+}
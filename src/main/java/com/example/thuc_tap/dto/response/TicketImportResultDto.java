@@ -0,0 +1,32 @@
+package com.example.thuc_tap.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kết quả import ticket hàng loạt: số dòng thành công/lỗi và lỗi chi tiết từng dòng
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketImportResultDto {
+
+    private long totalRows;
+    private long importedRows;
+    private long failedRows;
+    private long durationMs;
+    private boolean errorsTruncated;       // true nếu số lỗi vượt quá giới hạn trả về
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long rowNumber;            // Số thứ tự dòng dữ liệu (bắt đầu từ 1, không tính header CSV)
+        private String message;
+    }
+}
@@ -18,8 +18,10 @@ import java.time.LocalDateTime;
 
 public class ApprovalTask {
 
+    // Sequence pooled (cấp 50 id mỗi lần) để Hibernate gom batch INSERT; IDENTITY sẽ tắt batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "approval_task_seq")
+    @SequenceGenerator(name = "approval_task_seq", sequenceName = "approval_tasks_pooled_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -60,6 +62,10 @@ public class ApprovalTask {
     @Column(name = "timeout_at")
     private LocalDateTime timeoutAt;
 
+    // Thời điểm đã escalate do quá timeoutAt (null = chưa escalate)
+    @Column(name = "escalated_at")
+    private LocalDateTime escalatedAt;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false, insertable = false)
     private LocalDateTime createdAt;
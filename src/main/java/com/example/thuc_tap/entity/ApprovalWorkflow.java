@@ -2,6 +2,8 @@ package com.example.thuc_tap.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
@@ -48,6 +50,8 @@ public class ApprovalWorkflow {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "workflowStep", fetch = FetchType.LAZY)
     private List<TicketApproval> ticketApprovals;
 }
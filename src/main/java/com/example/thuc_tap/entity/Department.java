@@ -3,6 +3,8 @@ package com.example.thuc_tap.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
@@ -44,14 +46,20 @@ public class Department {
     
     // Relationships
     @JsonIgnore  // Prevent circular reference in JSON serialization
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "department", cascade = CascadeType.ALL)
     private List<User> users;
     
     @JsonIgnore  // Prevent circular reference in JSON serialization
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "department", cascade = CascadeType.ALL)
     private List<ApprovalWorkflow> approvalWorkflows;
     
     @JsonIgnore  // Prevent circular reference in JSON serialization
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "department", cascade = CascadeType.ALL)
     private List<Ticket> tickets;
 }
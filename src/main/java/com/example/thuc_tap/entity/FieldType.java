@@ -2,6 +2,8 @@ package com.example.thuc_tap.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
@@ -25,6 +27,8 @@ public class FieldType {
     private String description;
     
     // Relationships
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "fieldType", cascade = CascadeType.ALL)
     private List<FormField> formFields;
 }
@@ -3,6 +3,8 @@ package com.example.thuc_tap.entity;
 import com.example.thuc_tap.common.FormSchema;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
@@ -57,9 +59,13 @@ public class FormTemplate {
     @Column(name = "form_schema", columnDefinition = "jsonb")
     private FormSchema formSchema;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "formTemplate", cascade = CascadeType.ALL)
     private List<ApprovalWorkflow> approvalWorkflows;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "formTemplate", cascade = CascadeType.ALL)
     private List<Ticket> tickets;
 }
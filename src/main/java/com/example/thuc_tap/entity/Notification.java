@@ -15,8 +15,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Notification {
     
+    // Sequence pooled (cấp 50 id mỗi lần) để Hibernate gom batch INSERT; IDENTITY sẽ tắt batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_seq")
+    @SequenceGenerator(name = "notification_seq", sequenceName = "notifications_pooled_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -34,7 +36,7 @@ public class Notification {
     private String message;
     
     @Column(name = "type", nullable = false, length = 50)
-    private String type; // TICKET_CREATED, TICKET_APPROVED, TICKET_REJECTED
+    private String type; // TICKET_CREATED, TICKET_APPROVED, TICKET_REJECTED, TICKET_OVERDUE, APPROVAL_ESCALATED
     
     @Column(name = "is_read", nullable = false)
     private Boolean isRead = false;
@@ -3,6 +3,8 @@ package com.example.thuc_tap.entity;
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
@@ -26,6 +28,8 @@ public class PriorityLevel {
     private String description;
     
     // Relationships
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "priority", cascade = CascadeType.ALL)
     @JsonIgnore
     private List<Ticket> tickets;
@@ -2,6 +2,8 @@ package com.example.thuc_tap.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
@@ -31,6 +33,8 @@ public class Role {
     private LocalDateTime createdAt;
     
     // Relationships
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "role", cascade = CascadeType.ALL)
     private List<User> users;
 }
@@ -2,6 +2,8 @@ package com.example.thuc_tap.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
@@ -20,8 +22,10 @@ import java.util.Map;
 @AllArgsConstructor
 public class Ticket {
     
+    // Sequence pooled (cấp 50 id mỗi lần) để Hibernate gom batch INSERT; IDENTITY sẽ tắt batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_seq")
+    @SequenceGenerator(name = "ticket_seq", sequenceName = "tickets_pooled_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "ticket_code", nullable = false, unique = true, length = 20)
@@ -48,6 +52,12 @@ public class Ticket {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "current_status_id", nullable = false)
     private TicketStatus currentStatus;
+
+    // Mã của currentStatus (smallint), do trigger DB đồng bộ khi ghi current_status_id - xem add_ticket_status_code.sql
+    // Chỉ dùng để lọc / đếm trong truy vấn (không join ticket_status); giá trị trong bộ nhớ không tự cập nhật khi đổi currentStatus
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "status_code", insertable = false, updatable = false)
+    private TicketStatusCode statusCode;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "priority_id")
@@ -63,8 +73,14 @@ public class Ticket {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    // Thời điểm SLA engine ghi nhận ticket quá hạn (null = chưa quá hạn / chưa xử lý)
+    @Column(name = "sla_breached_at")
+    private LocalDateTime slaBreachedAt;
     
     // Relationships
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "ticket", cascade = CascadeType.ALL)
     private List<TicketFormData> ticketFormData;
 
@@ -105,12 +121,18 @@ public class Ticket {
      * Render: lặp qua formTemplate.formSchema.fields, rồi gán defaultValue = ticket.formData[field.key].
      * **/
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "ticket", cascade = CascadeType.ALL)
     private List<TicketApproval> ticketApprovals;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "ticket", cascade = CascadeType.ALL)
     private List<Notification> notifications;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "ticket", cascade = CascadeType.ALL)
     private List<TicketHistory> ticketHistory;
 }
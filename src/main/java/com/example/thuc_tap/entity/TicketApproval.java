@@ -16,8 +16,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class TicketApproval {
     
+    // Sequence pooled (cấp 50 id mỗi lần) để Hibernate gom batch INSERT; IDENTITY sẽ tắt batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_approval_seq")
+    @SequenceGenerator(name = "ticket_approval_seq", sequenceName = "ticket_approvals_pooled_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne()
@@ -0,0 +1,30 @@
+package com.example.thuc_tap.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bộ đếm mã ticket theo năm (TICKET-YYYY-NNNNN)
+ * next_value là số thứ tự đầu tiên chưa được cấp; mỗi node app giữ riêng 1 khối số đã đặt trước
+ */
+@Entity
+@Table(name = "ticket_code_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketCodeCounter {
+
+    @Id
+    @Column(name = "code_year")
+    private Integer codeYear;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -15,8 +15,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class TicketHistory {
     
+    // Sequence pooled (cấp 50 id mỗi lần) để Hibernate gom batch INSERT; IDENTITY sẽ tắt batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_history_seq")
+    @SequenceGenerator(name = "ticket_history_seq", sequenceName = "ticket_history_pooled_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -53,6 +55,8 @@ public class TicketHistory {
         REJECTED,          // Ticket bị từ chối
         FORWARDED,         // Ticket được chuyển tiếp
         STATUS_CHANGED,    // Trạng thái thay đổi
-        COMMENTED          // Thêm comment
+        COMMENTED,         // Thêm comment
+        SLA_BREACHED,      // Ticket quá hạn xử lý (dueDate)
+        ESCALATED          // Bước duyệt quá hạn, đã báo lên trưởng phòng
     }
 }
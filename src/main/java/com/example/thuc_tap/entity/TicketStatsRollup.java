@@ -0,0 +1,46 @@
+package com.example.thuc_tap.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bảng tổng hợp số lượng ticket theo (ngày tạo, phòng ban, form template, trạng thái hiện tại)
+ * Được cập nhật tăng dần mỗi khi ticket đổi trạng thái, dùng cho admin dashboard
+ * form_template_id = 0 nghĩa là ticket không gắn form template
+ */
+@Entity
+@Table(name = "ticket_stats_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_ticket_stats_rollup_bucket",
+                columnNames = {"stat_date", "department_id", "form_template_id", "status_name"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketStatsRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(name = "department_id", nullable = false)
+    private Long departmentId;
+
+    @Column(name = "form_template_id", nullable = false)
+    private Long formTemplateId;
+
+    @Column(name = "status_name", nullable = false, length = 50)
+    private String statusName;
+
+    @Column(name = "ticket_count", nullable = false)
+    private Long ticketCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
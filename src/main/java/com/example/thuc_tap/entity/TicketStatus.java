@@ -2,6 +2,8 @@ package com.example.thuc_tap.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
@@ -25,9 +27,13 @@ public class TicketStatus {
     private String description;
     
     // Relationships
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "currentStatus", cascade = CascadeType.ALL)
     private List<Ticket> tickets;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "status", cascade = CascadeType.ALL)
     private List<TicketApproval> ticketApprovals;
 }
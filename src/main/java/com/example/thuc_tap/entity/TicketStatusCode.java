@@ -0,0 +1,33 @@
+package com.example.thuc_tap.entity;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Mã trạng thái ticket lưu ở cột tickets.status_code (smallint = ordinal)
+ * Thứ tự phải khớp hàm ticket_status_code() trong add_ticket_status_code.sql; chỉ thêm mới vào cuối
+ */
+public enum TicketStatusCode {
+    PENDING,
+    IN_PROGRESS,
+    APPROVED,
+    COMPLETED,
+    REJECTED,
+    CANCELLED,
+    FORWARDED,
+    OTHER;       // Trạng thái có trong bảng ticket_status nhưng chưa có mã riêng
+
+    private static final Map<String, TicketStatusCode> BY_NAME = Arrays.stream(values())
+            .filter(code -> code != OTHER)
+            .collect(Collectors.toUnmodifiableMap(Enum::name, Function.identity()));
+
+    /**
+     * Mã của tên trạng thái (TicketStatus.name); rỗng nếu trạng thái chưa có mã riêng
+     */
+    public static Optional<TicketStatusCode> fromName(String statusName) {
+        return Optional.ofNullable(statusName != null ? BY_NAME.get(statusName) : null);
+    }
+}
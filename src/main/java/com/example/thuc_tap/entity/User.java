@@ -3,6 +3,8 @@ package com.example.thuc_tap.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
@@ -59,20 +61,32 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Thời điểm đăng nhập thành công gần nhất (cập nhật bằng bulk update, không làm đổi updated_at)
+    @Column(name = "last_login_at")
+    private LocalDateTime lastLoginAt;
+    
     // Relationships
     @JsonIgnore  // Prevent circular reference in JSON serialization
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "requester", cascade = CascadeType.ALL)
     private List<Ticket> requestedTickets;
     
     @JsonIgnore  // Prevent circular reference in JSON serialization
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "createdBy", cascade = CascadeType.ALL)
     private List<FormTemplate> createdFormTemplates;
     
     @JsonIgnore  // Prevent circular reference in JSON serialization
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "approver", cascade = CascadeType.ALL)
     private List<TicketApproval> ticketApprovals;
     
     @JsonIgnore  // Prevent circular reference in JSON serialization
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL)
     private List<Notification> notifications;
 }
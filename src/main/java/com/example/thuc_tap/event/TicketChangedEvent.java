@@ -0,0 +1,44 @@
+package com.example.thuc_tap.event;
+
+import com.example.thuc_tap.entity.Ticket;
+
+/**
+ * Sự kiện phát ra khi ticket được tạo, chuyển trạng thái hoặc bị xóa
+ * Các listener (cache thống kê, ...) nên nghe ở phase AFTER_COMMIT để chỉ phản ứng với dữ liệu đã commit
+ */
+public record TicketChangedEvent(
+        Long ticketId,
+        Long requesterId,
+        Long departmentId,
+        String fromStatus,   // null khi ticket vừa được tạo
+        String toStatus,     // null khi ticket bị xóa
+        Type type) {
+
+    public enum Type {
+        CREATED,
+        STATUS_CHANGED,
+        DELETED
+    }
+
+    public static TicketChangedEvent created(Ticket ticket) {
+        return of(ticket, null, ticket.getCurrentStatus() != null ? ticket.getCurrentStatus().getName() : null, Type.CREATED);
+    }
+
+    public static TicketChangedEvent statusChanged(Ticket ticket, String fromStatus, String toStatus) {
+        return of(ticket, fromStatus, toStatus, Type.STATUS_CHANGED);
+    }
+
+    public static TicketChangedEvent deleted(Ticket ticket) {
+        return of(ticket, ticket.getCurrentStatus() != null ? ticket.getCurrentStatus().getName() : null, null, Type.DELETED);
+    }
+
+    private static TicketChangedEvent of(Ticket ticket, String fromStatus, String toStatus, Type type) {
+        return new TicketChangedEvent(
+                ticket.getId(),
+                ticket.getRequester() != null ? ticket.getRequester().getId() : null,
+                ticket.getDepartment() != null ? ticket.getDepartment().getId() : null,
+                fromStatus,
+                toStatus,
+                type);
+    }
+}
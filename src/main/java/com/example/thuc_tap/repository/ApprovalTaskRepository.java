@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -20,16 +22,55 @@ public interface ApprovalTaskRepository extends JpaRepository<ApprovalTask, Long
             "WHERE at.id = :taskId AND at.status = com.example.thuc_tap.entity.ApprovalTaskStatus.PENDING")
     int updateStatusIfPending(@Param("taskId") Long taskId, @Param("newStatus") ApprovalTaskStatus newStatus);
 
+    /**
+     * Đánh dấu các task đang PENDING của một bước duyệt là đã xử lý (dùng khi duyệt qua TicketApproval)
+     */
+    @Modifying
+    @Query("UPDATE ApprovalTask at SET at.status = :newStatus, at.actedAt = CURRENT_TIMESTAMP " +
+            "WHERE at.ticket.id = :ticketId AND at.stepIndex = :stepIndex " +
+            "AND at.status = com.example.thuc_tap.entity.ApprovalTaskStatus.PENDING")
+    int updateStatusForPendingStep(@Param("ticketId") Long ticketId,
+                                   @Param("stepIndex") Integer stepIndex,
+                                   @Param("newStatus") ApprovalTaskStatus newStatus);
+
+    /**
+     * Thống kê thời gian xử lý từng bước duyệt (assignedAt -> actedAt) theo phòng ban duyệt và theo form template
+     * Mỗi dòng: [dimension, groupId, số task, trung bình, p90] (đơn vị giờ)
+     */
+    @Query(value = """
+        SELECT CASE WHEN GROUPING(d.department_id) = 0 THEN 'DEPARTMENT' ELSE 'FORM_TEMPLATE' END AS dimension,
+               CASE WHEN GROUPING(d.department_id) = 0 THEN d.department_id ELSE d.form_template_id END AS group_id,
+               COUNT(*),
+               AVG(d.hours),
+               percentile_cont(0.9) WITHIN GROUP (ORDER BY d.hours)
+        FROM (
+            SELECT COALESCE(aw.department_id, t.department_id) AS department_id,
+                   t.form_template_id,
+                   EXTRACT(EPOCH FROM (task.acted_at - task.assigned_at)) / 3600.0 AS hours
+            FROM approval_tasks task
+            JOIN tickets t ON t.id = task.ticket_id
+            LEFT JOIN approval_workflows aw ON aw.id = task.workflow_step_id
+            WHERE task.assigned_at >= :fromDate
+              AND task.acted_at IS NOT NULL
+        ) d
+        GROUP BY GROUPING SETS ((d.department_id), (d.form_template_id))
+        """, nativeQuery = true)
+    List<Object[]> findApprovalStepTimeStatsRaw(@Param("fromDate") LocalDateTime fromDate);
+
+    /**
+     * tsQuery: từ khóa đã chuyển bởi TicketSearchService.toTsQuery, khớp giống hàng chờ trong TicketApprovalRepository
+     */
     @Query("SELECT at FROM ApprovalTask at JOIN at.ticket t " +
             "WHERE at.status = com.example.thuc_tap.entity.ApprovalTaskStatus.PENDING " +
             "AND (:departmentId IS NULL OR t.department.id = :departmentId) " +
             "AND (:type IS NULL OR t.formTemplate.id = :type) " +
             "AND (:priority IS NULL OR t.priority.id = :priority) " +
-            "AND (:q IS NULL OR (LOWER(t.ticketCode) LIKE LOWER(CONCAT('%',:q,'%')) OR LOWER(t.title) LIKE LOWER(CONCAT('%',:q,'%'))))")
+            "AND (cast(:tsQuery as string) IS NULL " +
+            "     OR function('ticket_matches_search', t.id, cast(:tsQuery as string)) = true)")
     Page<ApprovalTask> findPendingFiltered(@Param("departmentId") Long departmentId,
                                            @Param("type") Long type,
                                            @Param("priority") Long priority,
-                                           @Param("q") String q,
+                                           @Param("tsQuery") String tsQuery,
                                            Pageable pageable);
 
     // Statistics queries for approver - count tickets that this approver can handle
@@ -87,4 +128,48 @@ public interface ApprovalTaskRepository extends JpaRepository<ApprovalTask, Long
                                              @Param("employeeCode") String employeeCode,
                                              @Param("q") String q,
                                              Pageable pageable);
+
+    // ========== SLA (xem SlaDeadlineService) ==========
+
+    /**
+     * Hạn của các bước duyệt đang chờ, chưa escalate, thuộc ticket chưa kết thúc: [taskId, ticketId, timeoutAt]
+     * Dùng partial index idx_approval_tasks_timeout_open
+     */
+    @Query(value = """
+        SELECT task.id, task.ticket_id, task.timeout_at
+        FROM approval_tasks task
+        JOIN tickets t ON t.id = task.ticket_id
+        WHERE task.status = 'PENDING' AND task.timeout_at IS NOT NULL AND task.escalated_at IS NULL
+          AND t.status_code NOT IN (ticket_status_code('COMPLETED'), ticket_status_code('REJECTED'), ticket_status_code('CANCELLED'))
+        """, nativeQuery = true)
+    List<Object[]> findOpenApprovalTimeoutsRaw();
+
+    @Query(value = """
+        SELECT task.id, task.ticket_id, task.timeout_at
+        FROM approval_tasks task
+        JOIN tickets t ON t.id = task.ticket_id
+        WHERE task.ticket_id = :ticketId
+          AND task.status = 'PENDING' AND task.timeout_at IS NOT NULL AND task.escalated_at IS NULL
+          AND t.status_code NOT IN (ticket_status_code('COMPLETED'), ticket_status_code('REJECTED'), ticket_status_code('CANCELLED'))
+        """, nativeQuery = true)
+    List<Object[]> findOpenApprovalTimeoutsByTicketIdRaw(@Param("ticketId") Long ticketId);
+
+    /**
+     * Đánh dấu escalate cho các bước vẫn còn chờ và đã quá hạn tại thời điểm ghi
+     * Trả về: [taskId, ticketId, ticketCode, title, approverId, departmentHeadId, stepIndex]
+     */
+    @Query(value = """
+        UPDATE approval_tasks task
+        SET escalated_at = :now
+        FROM tickets t
+        LEFT JOIN departments d ON d.id = t.department_id
+        WHERE task.id IN (:taskIds)
+          AND t.id = task.ticket_id
+          AND task.status = 'PENDING'
+          AND task.escalated_at IS NULL
+          AND task.timeout_at <= :now
+          AND t.status_code NOT IN (ticket_status_code('COMPLETED'), ticket_status_code('REJECTED'), ticket_status_code('CANCELLED'))
+        RETURNING task.id, task.ticket_id, t.ticket_code, t.title, task.approver_id, d.department_head_id, task.step_index
+        """, nativeQuery = true)
+    List<Object[]> markEscalatedRaw(@Param("taskIds") Collection<Long> taskIds, @Param("now") LocalDateTime now);
 }
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -21,24 +22,23 @@ public interface FormTemplateRepository extends JpaRepository<FormTemplate, Long
     
     boolean existsByName(String name);
 
+    // Projection cho danh sách: chỉ join người tạo, không join ApprovalWorkflow (tránh nhân dòng + DISTINCT, không đọc form_schema)
     @Query("""
-        SELECT DISTINCT new com.example.thuc_tap.dto.response.FormTemplateFilterResponse(
+        SELECT new com.example.thuc_tap.dto.response.FormTemplateFilterResponse(
             ft.id,
             ft.name,
             ft.description,
             ft.isActive,
             ft.dueInDays,
-            ft.createdBy.fullName,
-            ft.createdBy.username,
+            cb.fullName,
+            cb.username,
             ft.createdAt,
             ft.updatedAt)
         FROM FormTemplate ft
-        LEFT JOIN User u ON u.id = ft.createdBy.id
-        LEFT JOIN ApprovalWorkflow awf ON awf.formTemplate.id = ft.id
-        LEFT JOIN Department d ON d.id = awf.department.id
+        JOIN ft.createdBy cb
         WHERE (:keyword IS NULL OR :keyword = '' OR ft.name LIKE %:keyword% OR ft.description LIKE %:keyword%)
         AND (:isActive IS NULL OR ft.isActive = :isActive)
-        AND (:createdById IS NULL OR ft.createdBy.id = :createdById)
+        AND (:createdById IS NULL OR cb.id = :createdById)
         AND (:createdAtFrom IS NULL OR ft.createdAt >= CAST(CAST(:createdAtFrom AS text) AS timestamp))
         AND (:createdAtTo IS NULL OR ft.createdAt <= CAST(CAST(:createdAtTo AS text) AS timestamp))
         AND (:updatedAtFrom IS NULL OR ft.updatedAt >= CAST(CAST(:updatedAtFrom AS text) AS timestamp))
@@ -59,16 +59,19 @@ public interface FormTemplateRepository extends JpaRepository<FormTemplate, Long
                                                     @Param("updatedAtTo") LocalDateTime updatedAtTo,
                                                     Pageable pageable);
 
+    /**
+     * Tên phòng ban duyệt của nhiều template trong 1 truy vấn: [formTemplateId, departmentName] theo thứ tự bước
+     */
     @Query("""
-        SELECT awf.department.name
+        SELECT awf.formTemplate.id, awf.department.name
         FROM ApprovalWorkflow awf
-        WHERE awf.formTemplate.id = :formTemplateId
-        ORDER BY awf.stepOrder
+        WHERE awf.formTemplate.id IN :formTemplateIds
+        ORDER BY awf.formTemplate.id, awf.stepOrder
     """)
-    List<String> findApprovalDepartmentsByFormTemplateId(@Param("formTemplateId") Long formTemplateId);
+    List<Object[]> findApprovalDepartmentNamesByFormTemplateIdsRaw(@Param("formTemplateIds") Collection<Long> formTemplateIds);
 
     @Query("""
-        SELECT DISTINCT new com.example.thuc_tap.dto.response.FormTemplateFilterResponse(
+        SELECT new com.example.thuc_tap.dto.response.FormTemplateFilterResponse(
             ft.id,
             ft.name,
             ft.description,
@@ -84,4 +87,16 @@ public interface FormTemplateRepository extends JpaRepository<FormTemplate, Long
     Page<FormTemplateFilterResponse> findActiveFormTemplates(Pageable pageable);
 
     List<FormTemplate> findByIsActiveTrue();
+
+    /**
+     * Lấy id và tên của tất cả form template (không tải form_schema)
+     */
+    @Query("SELECT ft.id, ft.name FROM FormTemplate ft")
+    List<Object[]> findAllIdAndNameRaw();
+
+    /**
+     * Lấy tất cả template kèm các bước duyệt (dùng cho import hàng loạt)
+     */
+    @Query("SELECT DISTINCT ft FROM FormTemplate ft LEFT JOIN FETCH ft.approvalWorkflows")
+    List<FormTemplate> findAllWithApprovalWorkflows();
 }
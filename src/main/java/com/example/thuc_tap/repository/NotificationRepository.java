@@ -0,0 +1,9 @@
+package com.example.thuc_tap.repository;
+
+import com.example.thuc_tap.entity.Notification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NotificationRepository extends JpaRepository<Notification, Long> {
+}
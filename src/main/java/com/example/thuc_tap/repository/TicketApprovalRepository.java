@@ -1,6 +1,8 @@
 package com.example.thuc_tap.repository;
 
+import com.example.thuc_tap.dto.response.ApprovalQueueItemDto;
 import com.example.thuc_tap.entity.TicketApproval;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,12 +10,43 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TicketApprovalRepository extends JpaRepository<TicketApproval, Long> {
 
+    /**
+     * Projection cho hàng chờ / danh sách đã xử lý của approver: chỉ các cột màn hình danh sách cần, join 1 lần
+     * Không nạp entity nên persistence context không giữ Ticket và các collection của nó
+     */
+    String QUEUE_ITEM_SELECT =
+        "SELECT new com.example.thuc_tap.dto.response.ApprovalQueueItemDto(" +
+        "ta.id, ta.action, ta.comments, ta.createdAt, ta.updatedAt, " +
+        "t.id, t.ticketCode, t.title, t.createdAt, t.dueDate, " +
+        "r.id, r.employeeCode, r.fullName, " +
+        "d.id, d.name, ft.id, ft.name, p.id, p.name, s.id, s.name) " +
+        "FROM TicketApproval ta " +
+        "JOIN ta.ticket t " +
+        "JOIN t.requester r " +
+        "JOIN t.department d " +
+        "JOIN t.currentStatus s " +
+        "LEFT JOIN t.formTemplate ft " +
+        "LEFT JOIN t.priority p ";
+
+    // tsQuery: từ khóa đã chuyển bởi TicketSearchService.toTsQuery, khớp search_vector ngay trong truy vấn
+    // (hàm SQL ticket_matches_search, xem add_ticket_search_vector.sql) - không giới hạn số ticket khớp
+    // Hàng chờ chỉ lọc, vẫn giữ thứ tự theo ngày: cursor keyset đi theo (createdAt, id), không theo độ liên quan
+    String QUEUE_ITEM_FILTERS =
+        "AND (:departmentId IS NULL OR d.id = :departmentId) " +
+        "AND (:formTemplateId IS NULL OR ft.id = :formTemplateId) " +
+        "AND (:priority IS NULL OR p.name = :priority) " +
+        "AND (:employeeCode IS NULL OR r.employeeCode LIKE CONCAT('%', cast(:employeeCode as string), '%')) " +
+        "AND (cast(:tsQuery as string) IS NULL " +
+        "     OR function('ticket_matches_search', t.id, cast(:tsQuery as string)) = true)";
+
     @Query("SELECT ta FROM TicketApproval ta WHERE ta.ticket.id = :ticketId AND ta.workflowStep.stepOrder > :stepOrder")
     List<TicketApproval> findByTicketIdAndStepOrderGreaterThan(@Param("ticketId") Long ticketId, @Param("stepOrder") Integer stepOrder);
     
@@ -46,6 +79,20 @@ public interface TicketApprovalRepository extends JpaRepository<TicketApproval,
            "ORDER BY ws.stepOrder ASC")
     List<TicketApproval> findByTicketIdOrderByStepOrder(@Param("ticketId") Long ticketId);
     
+    /**
+     * Lấy approvals của nhiều ticket trong 1 truy vấn (kèm bước duyệt, phòng ban, người duyệt)
+     * Dùng khi dựng danh sách TicketDto theo trang
+     */
+    @Query("SELECT ta FROM TicketApproval ta " +
+           "JOIN FETCH ta.workflowStep ws " +
+           "LEFT JOIN FETCH ws.department " +
+           "LEFT JOIN FETCH ta.approver " +
+           "LEFT JOIN FETCH ta.status " +
+           "LEFT JOIN FETCH ta.forwardedToDepartment " +
+           "WHERE ta.ticket.id IN :ticketIds " +
+           "ORDER BY ta.ticket.id ASC, ws.stepOrder ASC")
+    List<TicketApproval> findByTicketIdsWithDetails(@Param("ticketIds") Collection<Long> ticketIds);
+    
     /**
      * Lấy approval task đang pending đầu tiên của ticket
      */
@@ -89,51 +136,71 @@ public interface TicketApprovalRepository extends JpaRepository<TicketApproval,
     @Query("SELECT COUNT(ta) FROM TicketApproval ta WHERE (ta.action = 'APPROVE' OR ta.action = 'REJECT') AND ta.approver.id = :approverId")
     long countProcessedByApprover(@Param("approverId") Long approverId);
 
+    // Các approver liên quan tới danh sách ticket (để biết cần đẩy lại thống kê cho ai)
+    @Query("SELECT DISTINCT ta.approver.id FROM TicketApproval ta WHERE ta.ticket.id IN :ticketIds AND ta.approver IS NOT NULL")
+    List<Long> findApproverIdsByTicketIds(@Param("ticketIds") Collection<Long> ticketIds);
+
     // Danh sách tickets chờ duyệt: action = PENDING và approver_id = người đang đăng nhập
-    @Query("SELECT ta FROM TicketApproval ta " +
-           "LEFT JOIN FETCH ta.ticket t " +
-           "LEFT JOIN FETCH t.requester " +
-           "LEFT JOIN FETCH t.department " +
-           "LEFT JOIN FETCH t.formTemplate " +
-           "LEFT JOIN FETCH t.priority " +
+    @Query(QUEUE_ITEM_SELECT +
            "WHERE ta.action = 'PENDING' AND ta.approver.id = :approverId " +
-           "AND (:departmentId IS NULL OR t.department.id = :departmentId) " +
-           "AND (:formTemplateId IS NULL OR t.formTemplate.id = :formTemplateId) " +
-           "AND (:priority IS NULL OR t.priority.name = :priority) " +
-           "AND (:employeeCode IS NULL OR t.requester.employeeCode LIKE CONCAT('%', cast(:employeeCode as string), '%')) " +
-           "AND (:q IS NULL OR LOWER(t.title) LIKE CONCAT('%', LOWER(cast(:q as string)), '%') " +
-           "     OR LOWER(t.requester.fullName) LIKE CONCAT('%', LOWER(cast(:q as string)), '%'))")
-    Page<TicketApproval> findPendingForApprover(
+           QUEUE_ITEM_FILTERS)
+    Page<ApprovalQueueItemDto> findPendingForApprover(
         @Param("approverId") Long approverId,
         @Param("departmentId") Long departmentId,
         @Param("formTemplateId") Long formTemplateId,
         @Param("priority") String priority,
         @Param("employeeCode") String employeeCode,
-        @Param("q") String q,
+        @Param("tsQuery") String tsQuery,
         Pageable pageable
     );
 
     // Danh sách tickets đã xử lý: (action = APPROVE OR REJECT) và approver_id = người đó
-    @Query("SELECT ta FROM TicketApproval ta " +
-           "LEFT JOIN FETCH ta.ticket t " +
-           "LEFT JOIN FETCH t.requester " +
-           "LEFT JOIN FETCH t.department " +
-           "LEFT JOIN FETCH t.formTemplate " +
-           "LEFT JOIN FETCH t.priority " +
+    @Query(QUEUE_ITEM_SELECT +
            "WHERE (ta.action = 'APPROVE' OR ta.action = 'REJECT') AND ta.approver.id = :approverId " +
-           "AND (:departmentId IS NULL OR t.department.id = :departmentId) " +
-           "AND (:formTemplateId IS NULL OR t.formTemplate.id = :formTemplateId) " +
-           "AND (:priority IS NULL OR t.priority.name = :priority) " +
-           "AND (:employeeCode IS NULL OR t.requester.employeeCode LIKE CONCAT('%', cast(:employeeCode as string), '%')) " +
-           "AND (:q IS NULL OR LOWER(t.title) LIKE CONCAT('%', LOWER(cast(:q as string)), '%') " +
-           "     OR LOWER(t.requester.fullName) LIKE CONCAT('%', LOWER(cast(:q as string)), '%'))")
-    Page<TicketApproval> findProcessedByApprover(
+           QUEUE_ITEM_FILTERS)
+    Page<ApprovalQueueItemDto> findProcessedByApprover(
         @Param("approverId") Long approverId,
         @Param("departmentId") Long departmentId,
         @Param("formTemplateId") Long formTemplateId,
         @Param("priority") String priority,
         @Param("employeeCode") String employeeCode,
-        @Param("q") String q,
+        @Param("tsQuery") String tsQuery,
         Pageable pageable
     );
+
+    // Phân trang keyset cho hàng chờ duyệt theo (created_at, id) giảm dần - dùng partial index idx_ticket_approvals_pending_keyset
+    @Query(QUEUE_ITEM_SELECT +
+           "WHERE ta.action = 'PENDING' AND ta.approver.id = :approverId " +
+           QUEUE_ITEM_FILTERS + " " +
+           "AND ta.createdAt <= :createdAt AND (ta.createdAt < :createdAt OR ta.id < :id) " +
+           "ORDER BY ta.createdAt DESC, ta.id DESC")
+    List<ApprovalQueueItemDto> findPendingForApproverBeforeCursor(
+        @Param("approverId") Long approverId,
+        @Param("departmentId") Long departmentId,
+        @Param("formTemplateId") Long formTemplateId,
+        @Param("priority") String priority,
+        @Param("employeeCode") String employeeCode,
+        @Param("tsQuery") String tsQuery,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Limit limit
+    );
+
+    // Phân trang keyset cho danh sách đã xử lý theo (created_at, id) giảm dần - dùng partial index idx_ticket_approvals_processed_keyset
+    @Query(QUEUE_ITEM_SELECT +
+           "WHERE ta.action IN ('APPROVE', 'REJECT') AND ta.approver.id = :approverId " +
+           QUEUE_ITEM_FILTERS + " " +
+           "AND ta.createdAt <= :createdAt AND (ta.createdAt < :createdAt OR ta.id < :id) " +
+           "ORDER BY ta.createdAt DESC, ta.id DESC")
+    List<ApprovalQueueItemDto> findProcessedByApproverBeforeCursor(
+        @Param("approverId") Long approverId,
+        @Param("departmentId") Long departmentId,
+        @Param("formTemplateId") Long formTemplateId,
+        @Param("priority") String priority,
+        @Param("employeeCode") String employeeCode,
+        @Param("tsQuery") String tsQuery,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Limit limit
+    );
 }
@@ -0,0 +1,43 @@
+package com.example.thuc_tap.repository;
+
+import com.example.thuc_tap.entity.TicketCodeCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TicketCodeCounterRepository extends JpaRepository<TicketCodeCounter, Integer> {
+
+    /**
+     * Đặt trước 1 khối blockSize số cho năm đã có bộ đếm
+     * Trả về next_value mới (khối được cấp là [next_value - blockSize, next_value)), null nếu năm chưa có bộ đếm
+     */
+    @Query(value = """
+        UPDATE ticket_code_counters
+        SET next_value = next_value + :blockSize, updated_at = CURRENT_TIMESTAMP
+        WHERE code_year = :year
+        RETURNING next_value
+        """, nativeQuery = true)
+    Long reserveBlock(@Param("year") int year, @Param("blockSize") long blockSize);
+
+    /**
+     * Tạo bộ đếm cho năm mới (bắt đầu sau mã lớn nhất đã có trong năm) và đặt trước khối đầu tiên
+     * Nếu node khác vừa tạo trước thì chuyển thành đặt trước khối kế tiếp như reserveBlock
+     * Xét cả tickets_archive để không cấp lại mã của ticket đã lưu trữ
+     */
+    @Query(value = """
+        INSERT INTO ticket_code_counters (code_year, next_value, updated_at)
+        SELECT :year,
+               COALESCE(MAX(CAST(SUBSTRING(t.ticket_code FROM 13) AS BIGINT)), 0) + 1 + :blockSize,
+               CURRENT_TIMESTAMP
+        FROM (SELECT ticket_code FROM tickets
+              UNION ALL
+              SELECT ticket_code FROM tickets_archive) t
+        WHERE t.ticket_code ~ CONCAT('^TICKET-', :year, '-[0-9]+$')
+        ON CONFLICT (code_year) DO UPDATE
+        SET next_value = ticket_code_counters.next_value + :blockSize, updated_at = CURRENT_TIMESTAMP
+        RETURNING next_value
+        """, nativeQuery = true)
+    Long initializeAndReserveBlock(@Param("year") int year, @Param("blockSize") long blockSize);
+}
@@ -1,11 +1,13 @@
 package com.example.thuc_tap.repository;
 
+import com.example.thuc_tap.dto.response.TicketHistoryDto;
 import com.example.thuc_tap.entity.TicketHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -22,4 +24,57 @@ public interface TicketHistoryRepository extends JpaRepository<TicketHistory, Lo
      */
     @Query("SELECT th FROM TicketHistory th WHERE th.ticket.id = :ticketId ORDER BY th.createdAt DESC")
     List<TicketHistory> findByTicketIdOrderByCreatedAtDesc(@Param("ticketId") Long ticketId);
+
+    /**
+     * Lịch sử của ticket (mới nhất trước) dạng DTO cho màn hình chi tiết
+     */
+    @Query("""
+        SELECT new com.example.thuc_tap.dto.response.TicketHistoryDto(
+            th.id, th.actionType, th.actionDescription, th.fromStatus, th.toStatus, th.comments,
+            u.id, u.fullName, th.createdAt)
+        FROM TicketHistory th
+        LEFT JOIN th.actionByUser u
+        WHERE th.ticket.id = :ticketId
+        ORDER BY th.createdAt DESC, th.id DESC
+        """)
+    List<TicketHistoryDto> findDtosByTicketId(@Param("ticketId") Long ticketId);
+
+    /**
+     * Phiên bản lịch sử của ticket cho ETag: 1 dòng [số bản ghi, MAX(createdAt)]
+     * Lịch sử chỉ được thêm; SLA_BREACHED / ESCALATED do SlaDeadlineService lưu qua JPA (saveAll) mà không sửa
+     * entity Ticket, nên tickets.updated_at không đổi - ETag có lịch sử phải tính thêm từ bảng này
+     */
+    @Query("SELECT COUNT(th), MAX(th.createdAt) FROM TicketHistory th WHERE th.ticket.id = :ticketId")
+    List<Object[]> findVersionRaw(@Param("ticketId") Long ticketId);
+    
+    /**
+     * Thống kê thời gian xử lý ticket (CREATED -> COMPLETED/REJECTED) theo phòng ban và theo form template
+     * Tính hoàn toàn trong DB bằng GROUPING SETS + percentile_cont, không tải lịch sử lên bộ nhớ
+     * Mỗi dòng: [dimension, groupId, số ticket, trung bình, p50, p90, p99] (đơn vị giờ)
+     */
+    @Query(value = """
+        WITH durations AS (
+            SELECT t.department_id,
+                   t.form_template_id,
+                   EXTRACT(EPOCH FROM (
+                       MIN(h.created_at) FILTER (WHERE h.to_status IN ('COMPLETED', 'REJECTED'))
+                       - COALESCE(MIN(h.created_at) FILTER (WHERE h.action_type = 'CREATED'), t.created_at)
+                   )) / 3600.0 AS hours
+            FROM tickets t
+            JOIN ticket_history h ON h.ticket_id = t.id
+            WHERE t.created_at >= :fromDate
+            GROUP BY t.id
+        )
+        SELECT CASE WHEN GROUPING(d.department_id) = 0 THEN 'DEPARTMENT' ELSE 'FORM_TEMPLATE' END AS dimension,
+               CASE WHEN GROUPING(d.department_id) = 0 THEN d.department_id ELSE d.form_template_id END AS group_id,
+               COUNT(*),
+               AVG(d.hours),
+               percentile_cont(0.5) WITHIN GROUP (ORDER BY d.hours),
+               percentile_cont(0.9) WITHIN GROUP (ORDER BY d.hours),
+               percentile_cont(0.99) WITHIN GROUP (ORDER BY d.hours)
+        FROM durations d
+        WHERE d.hours IS NOT NULL
+        GROUP BY GROUPING SETS ((d.department_id), (d.form_template_id))
+        """, nativeQuery = true)
+    List<Object[]> findProcessingTimeStatsRaw(@Param("fromDate") LocalDateTime fromDate);
 }
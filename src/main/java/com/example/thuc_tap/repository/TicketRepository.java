@@ -1,7 +1,10 @@
 package com.example.thuc_tap.repository;
 
+import com.example.thuc_tap.dto.TicketDto;
 import com.example.thuc_tap.entity.Ticket;
+import com.example.thuc_tap.entity.TicketStatusCode;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -9,6 +12,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,51 +33,189 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     
     List<Ticket> findByFormTemplateId(Long formTemplateId);
     
-    @Query("SELECT t FROM Ticket t WHERE t.requester.id = :userId")
-    Page<Ticket> findByRequesterIdWithPagination(@Param("userId") Long userId, Pageable pageable);
+    /**
+     * Projection cho danh sách ticket của nhân viên: chỉ các cột TicketDto cần, join 1 lần, không nạp entity
+     * (form_data JSONB và các collection của Ticket không bị đọc)
+     */
+    String LIST_ITEM_SELECT =
+        "SELECT new com.example.thuc_tap.dto.TicketDto(" +
+        "t.id, t.ticketCode, t.title, t.description, r.id, r.fullName, ft.id, ft.name, " +
+        "d.id, d.name, s.id, s.name, p.id, p.name, t.dueDate, t.createdAt, t.updatedAt) " +
+        "FROM Ticket t " +
+        "JOIN t.requester r JOIN t.department d JOIN t.currentStatus s " +
+        "LEFT JOIN t.priority p LEFT JOIN t.formTemplate ft ";
+
+    /**
+     * Tiền tố cho hằng enum trong JPQL, vd: t.statusCode = STATUS_CODE + "PENDING"
+     * Lọc / đếm theo cột status_code (smallint) thay vì join ticket_status và so sánh chuỗi
+     */
+    String STATUS_CODE = "com.example.thuc_tap.entity.TicketStatusCode.";
+
+    @Query(value = LIST_ITEM_SELECT +
+           "WHERE r.id = :userId",
+           countQuery = "SELECT COUNT(t) FROM Ticket t WHERE t.requester.id = :userId")
+    Page<TicketDto> findByRequesterIdWithPagination(@Param("userId") Long userId, Pageable pageable);
+
+    // Dòng danh sách cho các id đã lọc sẵn (bộ lọc formData); bên gọi tự giữ thứ tự
+    @Query(LIST_ITEM_SELECT + "WHERE t.id IN :ids")
+    List<TicketDto> findListItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Phiên bản ticket cho ETag: [updatedAt, max updatedAt của approvals, số approvals] - không nạp entity
+    @Query("""
+        SELECT t.updatedAt,
+               (SELECT MAX(ta.updatedAt) FROM TicketApproval ta WHERE ta.ticket.id = t.id),
+               (SELECT COUNT(ta) FROM TicketApproval ta WHERE ta.ticket.id = t.id)
+        FROM Ticket t
+        WHERE t.id = :ticketId
+        """)
+    List<Object[]> findVersionRaw(@Param("ticketId") Long ticketId);
+
+    // Phân trang keyset theo (created_at, id) giảm dần - dùng index idx_tickets_requester_created_id, không OFFSET/COUNT
+    @Query(LIST_ITEM_SELECT +
+           "WHERE r.id = :userId " +
+           "AND t.createdAt <= :createdAt AND (t.createdAt < :createdAt OR t.id < :id) " +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TicketDto> findByRequesterIdBeforeCursor(@Param("userId") Long userId,
+                                               @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") Long id,
+                                               Limit limit);
     
     @Query("SELECT t FROM Ticket t WHERE t.department.id = :departmentId")
     Page<Ticket> findByDepartmentIdWithPagination(@Param("departmentId") Long departmentId, Pageable pageable);
     
-    @Query("SELECT t FROM Ticket t WHERE t.currentStatus.name = :statusName")
-    List<Ticket> findByStatusName(@Param("statusName") String statusName);
-    
     @Query("SELECT t FROM Ticket t WHERE t.createdAt BETWEEN :startDate AND :endDate")
     List<Ticket> findByCreatedAtBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT t FROM Ticket t WHERE t.dueDate < :currentDate AND t.currentStatus.name != 'APPROVED' AND t.currentStatus.name != 'REJECTED'")
-    List<Ticket> findOverdueTickets(@Param("currentDate") LocalDateTime currentDate);
-    
-    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.department.id = :departmentId AND t.currentStatus.name = :statusName")
-    Long countByDepartmentAndStatus(@Param("departmentId") Long departmentId, @Param("statusName") String statusName);
-    
     // Additional methods for Employee functionality
-    @Query("SELECT t FROM Ticket t WHERE t.requester.id = :requesterId AND t.currentStatus.name = :statusName")
-    List<Ticket> findByRequesterIdAndStatusName(@Param("requesterId") Long requesterId, @Param("statusName") String statusName);
-    
-    @Query("SELECT t FROM Ticket t WHERE t.requester.id = :requesterId AND LOWER(t.title) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    List<Ticket> findByRequesterIdAndTitleContainingIgnoreCase(@Param("requesterId") Long requesterId, @Param("keyword") String keyword);
+    @Query(LIST_ITEM_SELECT +
+           "WHERE r.id = :requesterId AND t.statusCode = :statusCode")
+    List<TicketDto> findByRequesterIdAndStatusCode(@Param("requesterId") Long requesterId, @Param("statusCode") TicketStatusCode statusCode);
+
+    // Trạng thái chưa có mã riêng (TicketStatusCode.OTHER) vẫn phải lọc theo tên
+    @Query(LIST_ITEM_SELECT +
+           "WHERE r.id = :requesterId AND s.name = :statusName")
+    List<TicketDto> findByRequesterIdAndStatusName(@Param("requesterId") Long requesterId, @Param("statusName") String statusName);
     
-    @Query("SELECT t FROM Ticket t WHERE t.requester.id = :requesterId AND t.createdAt BETWEEN :startDate AND :endDate")
-    List<Ticket> findByRequesterIdAndCreatedAtBetween(@Param("requesterId") Long requesterId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    @Query(LIST_ITEM_SELECT +
+           "WHERE r.id = :requesterId AND t.createdAt BETWEEN :startDate AND :endDate")
+    List<TicketDto> findByRequesterIdAndCreatedAtBetween(@Param("requesterId") Long requesterId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
     @Query("SELECT COUNT(t) FROM Ticket t WHERE t.requester.id = :requesterId")
     Long countByRequesterId(@Param("requesterId") Long requesterId);
     
-    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.requester.id = :requesterId AND t.currentStatus.name = :statusName")
-    Long countByRequesterIdAndStatusName(@Param("requesterId") Long requesterId, @Param("statusName") String statusName);
+    /**
+     * Đếm ticket của nhiều người yêu cầu trong 1 truy vấn: [requesterId, count]
+     */
+    @Query("SELECT t.requester.id, COUNT(t) FROM Ticket t WHERE t.requester.id IN :requesterIds GROUP BY t.requester.id")
+    List<Object[]> countByRequesterIdsRaw(@Param("requesterIds") Collection<Long> requesterIds);
+    
+    /**
+     * Đếm ticket của 1 nhân viên theo các trạng thái dashboard trong 1 lần quét (conditional aggregation)
+     * Chỉ đọc (requester_id, status_code) nên là index-only scan trên idx_tickets_requester_status
+     * Một dòng: [total, pending, approved, rejected, inProgress]
+     */
+    @Query("SELECT COUNT(t), " +
+           "COALESCE(SUM(CASE WHEN t.statusCode = " + STATUS_CODE + "PENDING THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN t.statusCode = " + STATUS_CODE + "APPROVED THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN t.statusCode = " + STATUS_CODE + "REJECTED THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN t.statusCode = " + STATUS_CODE + "IN_PROGRESS THEN 1 ELSE 0 END), 0) " +
+           "FROM Ticket t WHERE t.requester.id = :requesterId")
+    List<Object[]> countDashboardBucketsByRequesterRaw(@Param("requesterId") Long requesterId);
     
     // Admin Statistics Methods - Phương thức thống kê cho Admin Dashboard
     
-    @Query("SELECT t.currentStatus.name, COUNT(t) FROM Ticket t GROUP BY t.currentStatus.name")
-    List<Object[]> findTicketCountGroupByStatusRaw();
-    
-    @Query("SELECT t.currentStatus.name, COUNT(t) FROM Ticket t WHERE t.department.id = :departmentId GROUP BY t.currentStatus.name")
-    List<Object[]> findTicketCountByDepartmentGroupByStatusRaw(@Param("departmentId") Long departmentId);
-    
     @Query("SELECT COUNT(t) FROM Ticket t WHERE t.createdAt BETWEEN :startDate AND :endDate")
     Long countByCreatedAtBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
-    
-    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.currentStatus.name = :statusName AND t.createdAt <= :endDate")
-    Long countByCurrentStatusNameAndCreatedAtLessThanEqual(@Param("statusName") String statusName, @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Chuỗi thống kê theo ngày trong một truy vấn duy nhất (bucket bằng date_trunc).
+     * Mỗi dòng: [ngày, số ticket tạo mới, số ticket hoàn thành, số ticket bị từ chối/hủy, số ticket PENDING mới]
+     * - created: theo tickets.created_at
+     * - completed/rejected: theo thời điểm chuyển trạng thái trong ticket_history
+     * - pending: ticket hiện đang PENDING, ticket tạo trước :startDate được dồn vào ngày đầu tiên
+     * Những ngày không có dữ liệu sẽ không có dòng, phía Java tự lấp khoảng trống.
+     */
+    @Query(value = """
+        SELECT x.bucket,
+               SUM(CASE WHEN x.kind = 'C' THEN 1 ELSE 0 END) AS created_count,
+               SUM(CASE WHEN x.kind = 'A' THEN 1 ELSE 0 END) AS completed_count,
+               SUM(CASE WHEN x.kind = 'R' THEN 1 ELSE 0 END) AS rejected_count,
+               SUM(CASE WHEN x.kind = 'P' THEN 1 ELSE 0 END) AS pending_count
+        FROM (
+            SELECT CAST(date_trunc('day', t.created_at) AS date) AS bucket, 'C' AS kind
+            FROM tickets t
+            WHERE t.created_at >= :startDate AND t.created_at < :endDate
+            UNION ALL
+            SELECT CAST(date_trunc('day', h.created_at) AS date),
+                   CASE WHEN h.to_status = 'COMPLETED' THEN 'A' ELSE 'R' END
+            FROM ticket_history h
+            WHERE h.to_status IN ('COMPLETED', 'REJECTED', 'CANCELLED')
+              AND h.created_at >= :startDate AND h.created_at < :endDate
+            UNION ALL
+            SELECT CAST(date_trunc('day', GREATEST(t.created_at, CAST(:startDate AS timestamp))) AS date), 'P'
+            FROM tickets t
+            WHERE t.status_code = ticket_status_code('PENDING') AND t.created_at < :endDate
+        ) x
+        GROUP BY x.bucket
+        ORDER BY x.bucket
+        """, nativeQuery = true)
+    List<Object[]> findDailyTicketSeriesRaw(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    // ========== FULL-TEXT SEARCH (search_vector + GIN, xem add_ticket_search_vector.sql) ==========
+    // :query là chuỗi tsquery đã được TicketSearchService chuẩn hóa (vd "nghi:* & phep:*")
+
+    @Query("SELECT t FROM Ticket t " +
+           "JOIN FETCH t.requester JOIN FETCH t.department JOIN FETCH t.currentStatus " +
+           "LEFT JOIN FETCH t.priority LEFT JOIN FETCH t.formTemplate " +
+           "WHERE t.id IN :ids")
+    List<Ticket> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = """
+        SELECT t.id
+        FROM tickets t
+        WHERE t.search_vector @@ to_tsquery('simple', f_unaccent(:query))
+          AND (CAST(:requesterId AS bigint) IS NULL OR t.requester_id = :requesterId)
+        ORDER BY ts_rank_cd(t.search_vector, to_tsquery('simple', f_unaccent(:query))) DESC, t.id DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Long> searchIdsRanked(@Param("query") String query,
+                               @Param("requesterId") Long requesterId,
+                               @Param("limit") int limit);
+
+    // ========== SLA (xem SlaDeadlineService) ==========
+
+    /**
+     * Hạn xử lý của các ticket chưa kết thúc và chưa bị đánh dấu quá hạn: [ticketId, dueDate]
+     * Dùng partial index idx_tickets_sla_open
+     */
+    @Query(value = """
+        SELECT t.id, t.due_date
+        FROM tickets t
+        WHERE t.due_date IS NOT NULL AND t.sla_breached_at IS NULL
+          AND t.status_code NOT IN (ticket_status_code('COMPLETED'), ticket_status_code('REJECTED'), ticket_status_code('CANCELLED'))
+        """, nativeQuery = true)
+    List<Object[]> findOpenSlaDeadlinesRaw();
+
+    @Query(value = """
+        SELECT t.id, t.due_date
+        FROM tickets t
+        WHERE t.id = :ticketId AND t.due_date IS NOT NULL AND t.sla_breached_at IS NULL
+          AND t.status_code NOT IN (ticket_status_code('COMPLETED'), ticket_status_code('REJECTED'), ticket_status_code('CANCELLED'))
+        """, nativeQuery = true)
+    List<Object[]> findOpenSlaDeadlineByTicketIdRaw(@Param("ticketId") Long ticketId);
+
+    /**
+     * Đánh dấu quá hạn cho các ticket vẫn còn thỏa điều kiện tại thời điểm ghi (chưa kết thúc, đã qua hạn)
+     * Trả về các ticket thực sự được đánh dấu: [ticketId, ticketCode, title, requesterId]
+     */
+    @Query(value = """
+        UPDATE tickets t
+        SET sla_breached_at = :now
+        WHERE t.id IN (:ticketIds)
+          AND t.status_code NOT IN (ticket_status_code('COMPLETED'), ticket_status_code('REJECTED'), ticket_status_code('CANCELLED'))
+          AND t.sla_breached_at IS NULL
+          AND t.due_date <= :now
+        RETURNING t.id, t.ticket_code, t.title, t.requester_id
+        """, nativeQuery = true)
+    List<Object[]> markSlaBreachedRaw(@Param("ticketIds") Collection<Long> ticketIds, @Param("now") LocalDateTime now);
 }
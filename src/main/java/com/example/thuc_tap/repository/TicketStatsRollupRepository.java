@@ -0,0 +1,75 @@
+package com.example.thuc_tap.repository;
+
+import com.example.thuc_tap.entity.TicketStatsRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface TicketStatsRollupRepository extends JpaRepository<TicketStatsRollup, Long> {
+
+    /**
+     * Cộng delta vào bucket (tạo bucket mới nếu chưa có)
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO ticket_stats_rollup (stat_date, department_id, form_template_id, status_name, ticket_count, updated_at)
+        VALUES (:statDate, :departmentId, :formTemplateId, :statusName, :delta, CURRENT_TIMESTAMP)
+        ON CONFLICT (stat_date, department_id, form_template_id, status_name)
+        DO UPDATE SET ticket_count = ticket_stats_rollup.ticket_count + EXCLUDED.ticket_count,
+                      updated_at = CURRENT_TIMESTAMP
+        """, nativeQuery = true)
+    int upsertDelta(@Param("statDate") LocalDate statDate,
+                    @Param("departmentId") Long departmentId,
+                    @Param("formTemplateId") Long formTemplateId,
+                    @Param("statusName") String statusName,
+                    @Param("delta") long delta);
+
+    @Modifying
+    @Query(value = "DELETE FROM ticket_stats_rollup", nativeQuery = true)
+    int deleteAllBuckets();
+
+    /**
+     * Dựng lại toàn bộ rollup: trạng thái của mỗi ticket lấy theo bản ghi ticket_history mới nhất,
+     * nếu ticket chưa có lịch sử thì dùng trạng thái hiện tại
+     * Gồm cả ticket đã lưu trữ (tickets_archive / ticket_history_archive) để số liệu không đổi sau khi lưu trữ
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO ticket_stats_rollup (stat_date, department_id, form_template_id, status_name, ticket_count, updated_at)
+        SELECT CAST(t.created_at AS date),
+               t.department_id,
+               COALESCE(t.form_template_id, 0),
+               COALESCE(h.to_status, s.name),
+               COUNT(*),
+               CURRENT_TIMESTAMP
+        FROM (SELECT id, created_at, department_id, form_template_id, current_status_id FROM tickets
+              UNION ALL
+              SELECT id, created_at, department_id, form_template_id, current_status_id FROM tickets_archive) t
+        JOIN ticket_status s ON s.id = t.current_status_id
+        LEFT JOIN LATERAL (
+            SELECT th.to_status, th.created_at, th.id
+            FROM ticket_history th
+            WHERE th.ticket_id = t.id AND th.to_status IS NOT NULL
+            UNION ALL
+            SELECT tha.to_status, tha.created_at, tha.id
+            FROM ticket_history_archive tha
+            WHERE tha.ticket_id = t.id AND tha.to_status IS NOT NULL
+            ORDER BY 2 DESC, 3 DESC
+            LIMIT 1
+        ) h ON TRUE
+        GROUP BY 1, 2, 3, 4
+        """, nativeQuery = true)
+    int rebuildFromHistory();
+
+    @Query("SELECT r.statusName, SUM(r.ticketCount) FROM TicketStatsRollup r GROUP BY r.statusName")
+    List<Object[]> sumGroupByStatusRaw();
+
+    @Query("SELECT r.departmentId, r.statusName, SUM(r.ticketCount) FROM TicketStatsRollup r GROUP BY r.departmentId, r.statusName")
+    List<Object[]> sumGroupByDepartmentAndStatusRaw();
+}
@@ -3,11 +3,13 @@ package com.example.thuc_tap.repository;
 import com.example.thuc_tap.entity.User;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,6 +53,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT COUNT(u) FROM User u WHERE u.department.id = :departmentId AND u.isActive = :isActive")
     Long countByDepartmentIdAndIsActive(@Param("departmentId") Long departmentId, @Param("isActive") Boolean isActive);
     
+    /**
+     * Đếm tổng số người dùng và số người dùng đang hoạt động của tất cả phòng ban trong một truy vấn
+     * Mỗi dòng: [departmentId, tổng số người dùng, số người dùng hoạt động]
+     */
+    @Query("SELECT u.department.id, COUNT(u), SUM(CASE WHEN u.isActive = true THEN 1 ELSE 0 END) " +
+           "FROM User u WHERE u.department IS NOT NULL GROUP BY u.department.id")
+    List<Object[]> countUsersGroupByDepartmentRaw();
+    
     // ========== NEW METHODS FOR USER GROWTH STATISTICS ==========
     
     /**
@@ -65,11 +75,55 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT COUNT(u) FROM User u WHERE u.createdAt < :endDate")
     Long countByCreatedAtLessThan(@Param("endDate") LocalDateTime endDate);
     
+    /**
+     * Chuỗi tăng trưởng người dùng theo bucket thời gian (day / week / month / year) trong một truy vấn
+     * Mỗi dòng: [bucket, người dùng mới, tổng tích lũy, số hoạt động tích lũy, số bị vô hiệu hóa trong bucket]
+     * - Tổng tích lũy và số hoạt động dùng window SUM() OVER (ORDER BY bucket) trên toàn bộ lịch sử
+     * - Người dùng bị vô hiệu hóa (is_active = false) được tính là rời khỏi nhóm hoạt động tại bucket của updated_at
+     */
+    @Query(value = """
+        SELECT x.bucket,
+               SUM(x.new_users) AS new_users,
+               SUM(SUM(x.new_users)) OVER (ORDER BY x.bucket) AS total_users,
+               SUM(SUM(x.new_users - x.deactivated_users)) OVER (ORDER BY x.bucket) AS active_users,
+               SUM(x.deactivated_users) AS deactivated_users
+        FROM (
+            SELECT CAST(date_trunc(:unit, u.created_at) AS date) AS bucket, 1 AS new_users, 0 AS deactivated_users
+            FROM users u
+            UNION ALL
+            SELECT CAST(date_trunc(:unit, COALESCE(u.updated_at, u.created_at)) AS date), 0, 1
+            FROM users u
+            WHERE u.is_active = false
+        ) x
+        GROUP BY x.bucket
+        ORDER BY x.bucket
+        """, nativeQuery = true)
+    List<Object[]> findUserGrowthSeriesRaw(@Param("unit") String unit);
+    
     /**
      * Lấy danh sách người dùng mới đăng ký gần đây với phân trang
      */
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.role LEFT JOIN FETCH u.department WHERE u.isActive = :isActive ORDER BY u.createdAt DESC")
     List<User> findByIsActiveWithPagination(@Param("isActive") Boolean isActive, Pageable pageable);
+
+    /**
+     * Bảng tra cứu người dùng cho import: [id, employeeCode, departmentId]
+     */
+    @Query("SELECT u.id, u.employeeCode, u.department.id FROM User u LEFT JOIN u.department")
+    List<Object[]> findUserLookupRaw();
+
+    /**
+     * Lấy nhiều người dùng theo id kèm role (1 truy vấn)
+     */
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.role WHERE u.id IN :ids")
+    List<User> findAllWithRoleByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Ghi nhận thời điểm đăng nhập (bulk update để không đụng tới updated_at)
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.lastLoginAt = :loginAt WHERE u.id = :userId")
+    int updateLastLoginAt(@Param("userId") Long userId, @Param("loginAt") LocalDateTime loginAt);
     
     /**
      * Lấy danh sách người dùng theo trạng thái, có thông tin đầy đủ, sắp xếp theo thời gian tạo
@@ -1,101 +1,276 @@
 package com.example.thuc_tap.service;
 
+import com.example.thuc_tap.common.CoalescingCache;
 import com.example.thuc_tap.dto.response.AdminDashboardStatsDto;
+import com.example.thuc_tap.dto.response.CacheMetricsDto;
 import com.example.thuc_tap.dto.response.DailyTicketStatsDto;
 import com.example.thuc_tap.dto.response.DepartmentStatsDto;
+import com.example.thuc_tap.dto.response.ProcessingTimeStatsDto;
+import com.example.thuc_tap.dto.response.QuickStatsDto;
 import com.example.thuc_tap.dto.response.UserGrowthStatsDto;
 import com.example.thuc_tap.dto.response.RecentUserDto;
 import com.example.thuc_tap.entity.Department;
 import com.example.thuc_tap.entity.User;
+import com.example.thuc_tap.event.TicketChangedEvent;
 import com.example.thuc_tap.repository.*;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
  * Service cho Admin Dashboard và thống kê hệ thống
  * Xử lý logic nghiệp vụ cho các chức năng thống kê, báo cáo
  */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 @Transactional(readOnly = true) // Chủ yếu là các truy vấn đọc dữ liệu
 public class AdminStatsService {
 
     private final UserRepository userRepository;
     private final DepartmentRepository departmentRepository;
     private final TicketRepository ticketRepository;
+    private final TicketStatsRollupService ticketStatsRollupService;
+    private final ProcessingTimeStatsService processingTimeStatsService;
+    private final PlatformTransactionManager transactionManager;
+    private final Executor statsExecutor;
+
+    // Thời gian tối đa chờ mỗi phần của thống kê tổng quan (tính chung từ lúc bắt đầu)
+    @Value("${admin.stats.section-timeout-ms:3000}")
+    private long sectionTimeoutMs;
+
+    // Cache thống kê tổng quan theo period, bị xóa khi có ticket được tạo/duyệt/từ chối
+    private final CoalescingCache<String, AdminDashboardStatsDto> overviewStatsCache =
+            new CoalescingCache<>("adminOverviewStats", 8, Duration.ofSeconds(30));
+
+    public AdminStatsService(UserRepository userRepository,
+                             DepartmentRepository departmentRepository,
+                             TicketRepository ticketRepository,
+                             TicketStatsRollupService ticketStatsRollupService,
+                             ProcessingTimeStatsService processingTimeStatsService,
+                             PlatformTransactionManager transactionManager,
+                             @Qualifier("statsExecutor") Executor statsExecutor) {
+        this.userRepository = userRepository;
+        this.departmentRepository = departmentRepository;
+        this.ticketRepository = ticketRepository;
+        this.ticketStatsRollupService = ticketStatsRollupService;
+        this.processingTimeStatsService = processingTimeStatsService;
+        this.transactionManager = transactionManager;
+        this.statsExecutor = statsExecutor;
+    }
 
     /**
      * Lấy thống kê tổng quan cho admin dashboard
+     * - Đọc từ cache, nhiều admin cùng refresh khi cache miss chỉ tính toán 1 lần
+     * - Không mở transaction ở đây để các request đang chờ không giữ connection DB
      * @param period "week", "month", "year" - thời kỳ thống kê
      * @return AdminDashboardStatsDto chứa tất cả thống kê cần thiết
      */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public AdminDashboardStatsDto getOverviewStats(String period) {
+        // Kết quả thiếu phần nào (timeout) thì không cache để lần sau tính lại
+        return overviewStatsCache.getOrLoad(period, this::computeOverviewStats,
+                stats -> !Boolean.TRUE.equals(stats.getPartial()));
+    }
+
+    /**
+     * Lấy thống kê nhanh cho các widget nhỏ (và luồng SSE dashboard)
+     * Chỉ cần bảng rollup và số người dùng, không phụ thuộc period
+     */
+    public QuickStatsDto getQuickStats() {
+        Map<String, Long> statusCounts = getTicketStatusCounts();
+        long totalTickets = statusCounts.values().stream().mapToLong(Long::longValue).sum();
+        long completedTickets = statusCounts.getOrDefault("COMPLETED", 0L);
+        
+        return QuickStatsDto.builder()
+                .totalTickets(totalTickets)
+                .totalUsers(userRepository.count())
+                .pendingTickets(statusCounts.getOrDefault("PENDING", 0L))
+                .approvalRate(totalTickets > 0 ? (double) completedTickets / totalTickets * 100 : 0.0)
+                .build();
+    }
+
+    /**
+     * Số liệu hoạt động của cache thống kê tổng quan
+     */
+    public CacheMetricsDto getOverviewStatsCacheMetrics() {
+        return overviewStatsCache.metrics();
+    }
+
+    /**
+     * Số liệu hoạt động của cache thời gian xử lý (SLA)
+     */
+    public CacheMetricsDto getProcessingTimeStatsCacheMetrics() {
+        return processingTimeStatsService.getCacheMetrics();
+    }
+
+    /**
+     * Xóa cache thống kê tổng quan sau khi thay đổi ticket đã được commit
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTicketChanged(TicketChangedEvent event) {
+        overviewStatsCache.invalidateAll();
+    }
+
+    /**
+     * Tính toán thống kê tổng quan (không qua cache)
+     * Các phần độc lập (tổng số, trạng thái, phòng ban, theo ngày) chạy song song, mỗi phần trong
+     * 1 transaction read-only riêng; phần nào quá sectionTimeoutMs thì bỏ trống và đánh dấu partial
+     */
+    private AdminDashboardStatsDto computeOverviewStats(String period) {
+        int days = period.equals("week") ? 7 : (period.equals("month") ? 30 : 365);
+
+        // Thống kê theo trạng thái thực tế (PENDING, IN_PROGRESS, REJECTED, CANCELLED, COMPLETED)
+        // Đọc từ bảng rollup nên chi phí phụ thuộc số bucket thay vì số ticket
+        CompletableFuture<Map<String, Long>> statusCountsFuture = runSection(this::getTicketStatusCounts);
+        // [totalUsers, totalDepartments, activeUsers]
+        CompletableFuture<long[]> totalsFuture = runSection(() -> new long[] {
+                userRepository.count(),
+                departmentRepository.count(),
+                userRepository.countByIsActive(true)
+        });
+        CompletableFuture<List<DepartmentStatsDto>> departmentStatsFuture = runSection(() -> getDepartmentStats(period));
+        CompletableFuture<List<DailyTicketStatsDto>> dailyStatsFuture = runSection(() -> getDailyStats(days));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sectionTimeoutMs);
+        List<String> failedSections = new ArrayList<>();
+        Map<String, Long> statusCounts = awaitSection("statusCounts", statusCountsFuture, deadline, failedSections);
+        long[] totals = awaitSection("totals", totalsFuture, deadline, failedSections);
+        List<DepartmentStatsDto> departmentStats = awaitSection("departmentStats", departmentStatsFuture, deadline, failedSections);
+        List<DailyTicketStatsDto> dailyStats = awaitSection("dailyStats", dailyStatsFuture, deadline, failedSections);
+
         AdminDashboardStatsDto stats = new AdminDashboardStatsDto();
-        
+
         // Thống kê cơ bản
-        stats.setTotalTickets(ticketRepository.count());
-        stats.setTotalUsers(userRepository.count());
-        stats.setTotalDepartments(departmentRepository.count());
-        stats.setActiveUsers(userRepository.countByIsActive(true));
-        
-        // Thống kê theo trạng thái thực tế (PENDING, IN_PROGRESS, REJECTED, CANCELLED, COMPLETED)
-        Map<String, Long> statusCounts = getTicketStatusCounts();
-        stats.setPendingTickets(statusCounts.getOrDefault("PENDING", 0L));
-        stats.setApprovedTickets(statusCounts.getOrDefault("COMPLETED", 0L)); // COMPLETED thay vì APPROVED
-        stats.setRejectedTickets(statusCounts.getOrDefault("REJECTED", 0L));
-        stats.setInProgressTickets(statusCounts.getOrDefault("IN_PROGRESS", 0L));
-        Long cancelledTickets = statusCounts.getOrDefault("CANCELLED", 0L);
-        
-        // Tính tỷ lệ hoàn thành (completion rate) thay vì approval rate
-        if (stats.getTotalTickets() > 0) {
-            stats.setApprovalRate((double) stats.getApprovedTickets() / stats.getTotalTickets() * 100); // Thực chất là completion rate
-            stats.setRejectionRate((double) (stats.getRejectedTickets() + cancelledTickets) / stats.getTotalTickets() * 100);
-        } else {
-            stats.setApprovalRate(0.0);
-            stats.setRejectionRate(0.0);
+        if (totals != null) {
+            stats.setTotalUsers(totals[0]);
+            stats.setTotalDepartments(totals[1]);
+            stats.setActiveUsers(totals[2]);
         }
-        
-        // Tỷ lệ đang xử lý (pending + in_progress)
-        long totalActiveTickets = stats.getPendingTickets() + stats.getInProgressTickets();
-        if (stats.getTotalTickets() > 0) {
-            stats.setProcessingRate((double) totalActiveTickets / stats.getTotalTickets() * 100);
-        } else {
-            stats.setProcessingRate(0.0);
+
+        if (statusCounts != null) {
+            stats.setTotalTickets(statusCounts.values().stream().mapToLong(Long::longValue).sum());
+            stats.setPendingTickets(statusCounts.getOrDefault("PENDING", 0L));
+            stats.setApprovedTickets(statusCounts.getOrDefault("COMPLETED", 0L)); // COMPLETED thay vì APPROVED
+            stats.setRejectedTickets(statusCounts.getOrDefault("REJECTED", 0L));
+            stats.setInProgressTickets(statusCounts.getOrDefault("IN_PROGRESS", 0L));
+            Long cancelledTickets = statusCounts.getOrDefault("CANCELLED", 0L);
+
+            // Tính tỷ lệ hoàn thành (completion rate) thay vì approval rate
+            if (stats.getTotalTickets() > 0) {
+                stats.setApprovalRate((double) stats.getApprovedTickets() / stats.getTotalTickets() * 100); // Thực chất là completion rate
+                stats.setRejectionRate((double) (stats.getRejectedTickets() + cancelledTickets) / stats.getTotalTickets() * 100);
+            } else {
+                stats.setApprovalRate(0.0);
+                stats.setRejectionRate(0.0);
+            }
+
+            // Tỷ lệ đang xử lý (pending + in_progress)
+            long totalActiveTickets = stats.getPendingTickets() + stats.getInProgressTickets();
+            if (stats.getTotalTickets() > 0) {
+                stats.setProcessingRate((double) totalActiveTickets / stats.getTotalTickets() * 100);
+            } else {
+                stats.setProcessingRate(0.0);
+            }
         }
-        
+
         // Metadata
         stats.setPeriod(period);
         stats.setLastUpdated(LocalDateTime.now());
-        
+        stats.setPartial(!failedSections.isEmpty());
+        stats.setFailedSections(failedSections);
+
         // Thống kê theo phòng ban
-        stats.setDepartmentStats(getDepartmentStats(period));
-        
+        stats.setDepartmentStats(departmentStats != null ? departmentStats : List.of());
+
         // Thống kê theo ngày (cho biểu đồ)
-        int days = period.equals("week") ? 7 : (period.equals("month") ? 30 : 365);
-        stats.setDailyStats(getDailyStats(days));
-        
+        stats.setDailyStats(dailyStats != null ? dailyStats : List.of());
+
         return stats;
     }
 
+    /**
+     * Chạy 1 phần thống kê trên statsExecutor trong transaction read-only riêng
+     * - Transaction có timeout = sectionTimeoutMs (thành query timeout JDBC), truy vấn bị bỏ không chạy tiếp trên DB
+     * - statsExecutor đầy thì phần đó thất bại ngay thay vì chạy trên thread gọi
+     */
+    private <T> CompletableFuture<T> runSection(Supplier<T> section) {
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readOnlyTransaction.setTimeout((int) Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(sectionTimeoutMs + 999)));
+        try {
+            return CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status -> section.get()), statsExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Chờ kết quả 1 phần thống kê đến deadline chung; timeout hoặc lỗi thì trả về null và ghi nhận tên phần đó
+     */
+    private <T> T awaitSection(String name, CompletableFuture<T> future, long deadline, List<String> failedSections) {
+        try {
+            return future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Admin overview section '{}' timed out after {} ms", name, sectionTimeoutMs);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                log.warn("Admin overview section '{}' rejected: statsExecutor is saturated", name);
+            } else {
+                log.error("Admin overview section '{}' failed", name, e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+        }
+        failedSections.add(name);
+        return null;
+    }
+
     /**
      * Lấy thống kê theo phòng ban
+     * Dùng 1 truy vấn phòng ban x trạng thái (rollup) và 1 truy vấn phòng ban x người dùng, ghép lại trong bộ nhớ
      */
     public List<DepartmentStatsDto> getDepartmentStats(String period) {
         List<Department> departments = departmentRepository.findByIsActive(true);
         List<DepartmentStatsDto> departmentStats = new ArrayList<>();
+
+        Map<Long, Map<String, Long>> ticketCountsByDepartment = ticketStatsRollupService.getDepartmentStatusCounts();
+        Map<Long, long[]> userCountsByDepartment = getUserCountsByDepartment();
+        Map<Long, Double> averageHoursByDepartment = processingTimeStatsService.getAverageHoursByDepartment(period);
         
         for (Department dept : departments) {
             DepartmentStatsDto deptStat = new DepartmentStatsDto();
@@ -103,7 +278,7 @@ public class AdminStatsService {
             deptStat.setDepartmentName(dept.getName());
             
             // Thống kê ticket của phòng ban với status thực tế
-            Map<String, Long> deptTicketCounts = getTicketCountsByDepartment(dept.getId());
+            Map<String, Long> deptTicketCounts = ticketCountsByDepartment.getOrDefault(dept.getId(), Map.of());
             deptStat.setTotalTickets(deptTicketCounts.values().stream().mapToLong(Long::longValue).sum());
             deptStat.setPendingTickets(deptTicketCounts.getOrDefault("PENDING", 0L));
             deptStat.setApprovedTickets(deptTicketCounts.getOrDefault("COMPLETED", 0L)); // COMPLETED thay vì APPROVED
@@ -111,8 +286,9 @@ public class AdminStatsService {
             deptStat.setInProgressTickets(deptTicketCounts.getOrDefault("IN_PROGRESS", 0L));
             
             // Thống kê người dùng
-            deptStat.setTotalUsers((long) userRepository.findByDepartmentId(dept.getId()).size());
-            deptStat.setActiveUsers(userRepository.countByDepartmentIdAndIsActive(dept.getId(), true));
+            long[] userCounts = userCountsByDepartment.getOrDefault(dept.getId(), new long[2]);
+            deptStat.setTotalUsers(userCounts[0]);
+            deptStat.setActiveUsers(userCounts[1]);
             
             // Tính tỷ lệ hoàn thành (completion rate) cho phòng ban
             if (deptStat.getTotalTickets() > 0) {
@@ -121,8 +297,8 @@ public class AdminStatsService {
                 deptStat.setApprovalRate(0.0);
             }
             
-            // Thời gian xử lý trung bình (giả lập - có thể implement sau)
-            deptStat.setAverageProcessingTime(calculateAverageProcessingTime(dept.getId()));
+            // Thời gian xử lý trung bình (giờ) trong period, null nếu chưa có ticket nào hoàn tất
+            deptStat.setAverageProcessingTime(averageHoursByDepartment.get(dept.getId()));
             
             departmentStats.add(deptStat);
         }
@@ -138,75 +314,101 @@ public class AdminStatsService {
 
     /**
      * Lấy thống kê ticket theo ngày (cho biểu đồ)
+     * Toàn bộ chuỗi được lấy bằng một truy vấn group by theo ngày, những ngày trống được lấp trong Java
      */
     public List<DailyTicketStatsDto> getDailyStats(int days) {
         List<DailyTicketStatsDto> dailyStats = new ArrayList<>();
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(days - 1);
-        
+
+        // date -> [created, completed, rejected, pending mới]
+        Map<LocalDate, long[]> buckets = new HashMap<>();
+        List<Object[]> rows = ticketRepository.findDailyTicketSeriesRaw(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        for (Object[] row : rows) {
+            buckets.put(toLocalDate(row[0]), new long[] {
+                    toLong(row[1]), toLong(row[2]), toLong(row[3]), toLong(row[4])
+            });
+        }
+
+        long runningPending = 0L;
         for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            long[] bucket = buckets.getOrDefault(date, new long[4]);
+
             DailyTicketStatsDto dayStat = new DailyTicketStatsDto();
             dayStat.setDate(date);
             dayStat.setDateString(date.format(DateTimeFormatter.ISO_LOCAL_DATE));
             dayStat.setDayOfWeek(date.getDayOfWeek().name());
-            
-            // Đếm ticket được tạo trong ngày
-            LocalDateTime dayStart = date.atStartOfDay();
-            LocalDateTime dayEnd = date.plusDays(1).atStartOfDay();
-            
-            dayStat.setCreatedTickets(ticketRepository.countByCreatedAtBetween(dayStart, dayEnd));
-            
-            // Tạm thời sử dụng 0 cho completed/rejected daily vì cần thêm updatedAt tracking
-            // TODO: Thêm method countByCurrentStatusNameAndUpdatedAtBetween vào repository
-            dayStat.setApprovedTickets(0L); // Tickets completed trong ngày
-            dayStat.setRejectedTickets(0L); // Tickets rejected/cancelled trong ngày
-            
-            // Đếm ticket đang pending tại thời điểm cuối ngày
-            dayStat.setPendingTickets(ticketRepository.countByCurrentStatusNameAndCreatedAtLessThanEqual("PENDING", dayEnd));
-            
+
+            dayStat.setCreatedTickets(bucket[0]);
+            dayStat.setApprovedTickets(bucket[1]); // Tickets completed trong ngày
+            dayStat.setRejectedTickets(bucket[2]); // Tickets rejected/cancelled trong ngày
+
+            // Ticket đang pending tại thời điểm cuối ngày = cộng dồn các ticket PENDING đã tạo
+            runningPending += bucket[3];
+            dayStat.setPendingTickets(runningPending);
+
             // Tổng ticket hoạt động = tickets tạo mới trong ngày
             dayStat.setTotalActiveTickets(dayStat.getCreatedTickets());
-            
+
             dailyStats.add(dayStat);
         }
-        
+
         return dailyStats;
     }
 
     // ========== HELPER METHODS ==========
     
     /**
-     * Lấy số lượng ticket theo trạng thái (tối ưu với single query)
+     * Lấy số lượng ticket theo trạng thái (đọc từ bảng rollup ticket_stats_rollup)
      */
     private Map<String, Long> getTicketStatusCounts() {
-        // Sử dụng group by để tối ưu performance
-        List<Object[]> results = ticketRepository.findTicketCountGroupByStatusRaw();
-        return results.stream()
-                .collect(Collectors.toMap(
-                    result -> (String) result[0],
-                    result -> (Long) result[1]
-                ));
+        return ticketStatsRollupService.getStatusCounts();
     }
     
     /**
-     * Lấy số lượng ticket theo phòng ban và trạng thái
+     * Lấy số người dùng theo phòng ban: departmentId -> [tổng số, số đang hoạt động]
      */
-    private Map<String, Long> getTicketCountsByDepartment(Long departmentId) {
-        List<Object[]> results = ticketRepository.findTicketCountByDepartmentGroupByStatusRaw(departmentId);
-        return results.stream()
-                .collect(Collectors.toMap(
-                    result -> (String) result[0],
-                    result -> (Long) result[1]
-                ));
+    private Map<Long, long[]> getUserCountsByDepartment() {
+        Map<Long, long[]> counts = new HashMap<>();
+        for (Object[] row : userRepository.countUsersGroupByDepartmentRaw()) {
+            counts.put((Long) row[0], new long[] { toLong(row[1]), toLong(row[2]) });
+        }
+        return counts;
     }
     
     /**
-     * Tính thời gian xử lý trung bình của phòng ban (giờ)
+     * Chuyển giá trị cột date của native query sang LocalDate
+     */
+    private LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate localDate) {
+            return localDate;
+        }
+        if (value instanceof java.sql.Date sqlDate) {
+            return sqlDate.toLocalDate();
+        }
+        if (value instanceof java.sql.Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toLocalDate();
+        }
+        if (value instanceof LocalDateTime localDateTime) {
+            return localDateTime.toLocalDate();
+        }
+        return LocalDate.parse(String.valueOf(value));
+    }
+
+    /**
+     * Chuyển giá trị số của native query (BigInteger, BigDecimal, Long...) sang long
      */
-    private Double calculateAverageProcessingTime(Long departmentId) {
-        // TODO: Implement logic tính toán dựa vào bảng ticket_approvals
-        // Tạm thời return giá trị mặc định
-        return 24.0; // 24 giờ
+    private long toLong(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    /**
+     * Lấy thống kê thời gian xử lý ticket (mean, p50, p90, p99) theo phòng ban và form template
+     * @param period "week", "month", "year" - thời kỳ thống kê
+     */
+    public List<ProcessingTimeStatsDto> getProcessingTimeStats(String period) {
+        return processingTimeStatsService.getProcessingTimeStats(period);
     }
 
     /**
@@ -249,127 +451,75 @@ public class AdminStatsService {
      * Lấy thống kê tăng trưởng người dùng theo tháng
      */
     private List<UserGrowthStatsDto> getUserGrowthByMonths(LocalDate startDate, LocalDate endDate) {
-        List<UserGrowthStatsDto> monthlyStats = new ArrayList<>();
-        
-        LocalDate currentMonth = startDate.withDayOfMonth(1);
-        while (!currentMonth.isAfter(endDate)) {
-            LocalDate nextMonth = currentMonth.plusMonths(1);
-            LocalDateTime monthStart = currentMonth.atStartOfDay();
-            LocalDateTime monthEnd = nextMonth.atStartOfDay();
-            
-            UserGrowthStatsDto monthStat = UserGrowthStatsDto.builder()
-                    .date(currentMonth)
-                    .month("Tháng " + currentMonth.getMonthValue())
-                    .dateString(currentMonth.format(DateTimeFormatter.ISO_LOCAL_DATE))
-                    .build();
-            
-            // Đếm người dùng mới trong tháng
-            Long newUsersInMonth = userRepository.countByCreatedAtBetween(monthStart, monthEnd);
-            monthStat.setNewUsers(newUsersInMonth);
-            
-            // Tổng số người dùng tích lũy đến cuối tháng
-            Long totalUsersUntilMonth = userRepository.countByCreatedAtLessThan(monthEnd);
-            monthStat.setTotalUsers(totalUsersUntilMonth);
-            
-            // Người dùng hoạt động trong tháng (có đăng nhập hoặc tạo ticket)
-            // TODO: Cần thêm tracking lastLoginAt hoặc tính dựa trên ticket activity
-            Long activeUsersInMonth = Math.round(totalUsersUntilMonth * 0.7); // Giả định 70% active
-            monthStat.setActiveUsers(activeUsersInMonth);
-            
-            // Tính tỷ lệ tăng trưởng so với tháng trước
-            if (!monthlyStats.isEmpty()) {
-                UserGrowthStatsDto previousMonth = monthlyStats.get(monthlyStats.size() - 1);
-                if (previousMonth.getTotalUsers() > 0) {
-                    double growth = ((double) (totalUsersUntilMonth - previousMonth.getTotalUsers()) 
-                                   / previousMonth.getTotalUsers()) * 100;
-                    monthStat.setGrowthRate(Math.round(growth * 10.0) / 10.0); // Round to 1 decimal
-                }
-            }
-            
-            monthlyStats.add(monthStat);
-            currentMonth = nextMonth;
-        }
-        
-        return monthlyStats;
+        return buildUserGrowthSeries("month", startDate.withDayOfMonth(1), endDate,
+                month -> month.plusMonths(1),
+                (month, index) -> "Tháng " + month.getMonthValue());
     }
     
     /**
-     * Lấy thống kê tăng trưởng người dùng theo tuần
+     * Lấy thống kê tăng trưởng người dùng theo tuần (tuần bắt đầu từ thứ Hai, giống date_trunc('week'))
      */
     private List<UserGrowthStatsDto> getUserGrowthByWeeks(LocalDate startDate, LocalDate endDate) {
-        List<UserGrowthStatsDto> weeklyStats = new ArrayList<>();
-        
-        LocalDate currentWeek = startDate;
-        int weekNumber = 1;
-        
-        while (!currentWeek.isAfter(endDate)) {
-            LocalDate nextWeek = currentWeek.plusWeeks(1);
-            LocalDateTime weekStart = currentWeek.atStartOfDay();
-            LocalDateTime weekEnd = nextWeek.atStartOfDay();
-            
-            UserGrowthStatsDto weekStat = UserGrowthStatsDto.builder()
-                    .date(currentWeek)
-                    .month("Tuần " + weekNumber)
-                    .dateString(currentWeek.format(DateTimeFormatter.ISO_LOCAL_DATE))
-                    .build();
-            
-            // Đếm người dùng mới trong tuần
-            Long newUsersInWeek = userRepository.countByCreatedAtBetween(weekStart, weekEnd);
-            weekStat.setNewUsers(newUsersInWeek);
-            
-            // Tổng số người dùng tích lũy đến cuối tuần
-            Long totalUsersUntilWeek = userRepository.countByCreatedAtLessThan(weekEnd);
-            weekStat.setTotalUsers(totalUsersUntilWeek);
-            
-            // Người dùng hoạt động ước tính
-            Long activeUsersInWeek = Math.round(totalUsersUntilWeek * 0.8); // Giả định 80% active
-            weekStat.setActiveUsers(activeUsersInWeek);
-            
-            weeklyStats.add(weekStat);
-            currentWeek = nextWeek;
-            weekNumber++;
-        }
-        
-        return weeklyStats;
+        return buildUserGrowthSeries("week", startDate.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)), endDate,
+                week -> week.plusWeeks(1),
+                (week, index) -> "Tuần " + (index + 1));
     }
     
     /**
      * Lấy thống kê tăng trưởng người dùng theo năm
      */
     private List<UserGrowthStatsDto> getUserGrowthByYears(LocalDate startDate, LocalDate endDate) {
-        List<UserGrowthStatsDto> yearlyStats = new ArrayList<>();
-        
-        int startYear = startDate.getYear();
-        int endYear = endDate.getYear();
-        
-        for (int year = startYear; year <= endYear; year++) {
-            LocalDate yearStart = LocalDate.of(year, 1, 1);
-            LocalDate yearEnd = LocalDate.of(year + 1, 1, 1);
-            LocalDateTime yearStartTime = yearStart.atStartOfDay();
-            LocalDateTime yearEndTime = yearEnd.atStartOfDay();
-            
-            UserGrowthStatsDto yearStat = UserGrowthStatsDto.builder()
-                    .date(yearStart)
-                    .month("Năm " + year)
-                    .dateString(yearStart.format(DateTimeFormatter.ISO_LOCAL_DATE))
+        return buildUserGrowthSeries("year", startDate.withDayOfYear(1), endDate,
+                year -> year.plusYears(1),
+                (year, index) -> "Năm " + year.getYear());
+    }
+
+    /**
+     * Dựng chuỗi tăng trưởng người dùng từ một truy vấn window duy nhất
+     * Các bucket không có dòng dữ liệu lấy giá trị tích lũy của bucket gần nhất trước đó
+     */
+    private List<UserGrowthStatsDto> buildUserGrowthSeries(String unit, LocalDate firstBucket, LocalDate endDate,
+                                                           UnaryOperator<LocalDate> nextBucket,
+                                                           BiFunction<LocalDate, Integer, String> labelFor) {
+        // bucket -> [người dùng mới, tổng tích lũy, hoạt động tích lũy, bị vô hiệu hóa]
+        TreeMap<LocalDate, long[]> series = new TreeMap<>();
+        for (Object[] row : userRepository.findUserGrowthSeriesRaw(unit)) {
+            series.put(toLocalDate(row[0]), new long[] {
+                    toLong(row[1]), toLong(row[2]), toLong(row[3]), toLong(row[4])
+            });
+        }
+
+        List<UserGrowthStatsDto> growthStats = new ArrayList<>();
+        int index = 0;
+        for (LocalDate bucket = firstBucket; !bucket.isAfter(endDate); bucket = nextBucket.apply(bucket)) {
+            long[] exact = series.get(bucket);
+            Map.Entry<LocalDate, long[]> cumulative = series.floorEntry(bucket);
+
+            UserGrowthStatsDto stat = UserGrowthStatsDto.builder()
+                    .date(bucket)
+                    .month(labelFor.apply(bucket, index))
+                    .dateString(bucket.format(DateTimeFormatter.ISO_LOCAL_DATE))
+                    .newUsers(exact != null ? exact[0] : 0L)
+                    .deactivatedUsers(exact != null ? exact[3] : 0L)
+                    .totalUsers(cumulative != null ? cumulative.getValue()[1] : 0L)
+                    .activeUsers(cumulative != null ? cumulative.getValue()[2] : 0L)
                     .build();
-            
-            // Đếm người dùng mới trong năm
-            Long newUsersInYear = userRepository.countByCreatedAtBetween(yearStartTime, yearEndTime);
-            yearStat.setNewUsers(newUsersInYear);
-            
-            // Tổng số người dùng tích lũy đến cuối năm
-            Long totalUsersUntilYear = userRepository.countByCreatedAtLessThan(yearEndTime);
-            yearStat.setTotalUsers(totalUsersUntilYear);
-            
-            // Người dùng hoạt động ước tính
-            Long activeUsersInYear = Math.round(totalUsersUntilYear * 0.6); // Giả định 60% active
-            yearStat.setActiveUsers(activeUsersInYear);
-            
-            yearlyStats.add(yearStat);
+
+            // Tính tỷ lệ tăng trưởng so với kỳ trước
+            if (!growthStats.isEmpty()) {
+                UserGrowthStatsDto previous = growthStats.get(growthStats.size() - 1);
+                if (previous.getTotalUsers() > 0) {
+                    double growth = ((double) (stat.getTotalUsers() - previous.getTotalUsers())
+                                   / previous.getTotalUsers()) * 100;
+                    stat.setGrowthRate(Math.round(growth * 10.0) / 10.0); // Round to 1 decimal
+                }
+            }
+
+            growthStats.add(stat);
+            index++;
         }
-        
-        return yearlyStats;
+
+        return growthStats;
     }
     
     /**
@@ -386,15 +536,33 @@ public class AdminStatsService {
         Pageable pageable = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
         List<User> recentUsers = userRepository.findByIsActiveWithPagination(true, pageable);
         
+        // Đếm ticket cho cả trang người dùng trong 1 truy vấn
+        Map<Long, Long> ticketCountsByUser = getTicketCountsByRequester(recentUsers);
+        
         return recentUsers.stream()
-                .map(this::convertToRecentUserDto)
+                .map(user -> convertToRecentUserDto(user, ticketCountsByUser.getOrDefault(user.getId(), 0L)))
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Số ticket đã tạo của từng người dùng: userId -> count
+     */
+    private Map<Long, Long> getTicketCountsByRequester(List<User> users) {
+        if (users.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> userIds = users.stream().map(User::getId).collect(Collectors.toList());
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : ticketRepository.countByRequesterIdsRaw(userIds)) {
+            counts.put((Long) row[0], toLong(row[1]));
+        }
+        return counts;
+    }
+    
     /**
      * Chuyển đổi User entity thành RecentUserDto
      */
-    private RecentUserDto convertToRecentUserDto(User user) {
+    private RecentUserDto convertToRecentUserDto(User user, Long ticketCount) {
         RecentUserDto dto = RecentUserDto.builder()
                 .id(user.getId())
                 .employeeCode(user.getEmployeeCode())
@@ -425,12 +593,11 @@ public class AdminStatsService {
         // Xác định trạng thái
         dto.setStatusLabel(user.getIsActive() ? "Hoạt động" : "Vô hiệu hóa");
         
-        // Đếm số ticket đã tạo
-        Long ticketCount = ticketRepository.countByRequesterId(user.getId());
+        // Số ticket đã tạo (đếm sẵn cho cả trang)
         dto.setTotalTicketsCreated(ticketCount);
         
-        // TODO: Implement lastLoginAt và lastActivityAt tracking
-        dto.setLastLoginAt(user.getCreatedAt()); // Tạm thời dùng createdAt
+        // null nếu người dùng chưa đăng nhập lần nào
+        dto.setLastLoginAt(user.getLastLoginAt());
         dto.setLastActivityAt(user.getUpdatedAt() != null ? user.getUpdatedAt() : user.getCreatedAt());
         
         return dto;
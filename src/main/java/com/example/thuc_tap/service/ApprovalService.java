@@ -1,9 +1,16 @@
 package com.example.thuc_tap.service;
 
+import com.example.thuc_tap.common.KeysetCursor;
 import com.example.thuc_tap.dto.response.ApprovalStatsDto;
+import com.example.thuc_tap.dto.response.ApprovalQueueItemDto;
+import com.example.thuc_tap.dto.response.CursorPage;
 import com.example.thuc_tap.entity.*;
+import com.example.thuc_tap.event.TicketChangedEvent;
 import com.example.thuc_tap.repository.*;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
@@ -13,10 +20,15 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
+@Slf4j
 @Service
 public class ApprovalService {
 
@@ -30,7 +42,7 @@ public class ApprovalService {
     private TicketRepository ticketRepository;
 
     @Autowired
-    private TicketStatusRepository ticketStatusRepository;
+    private ReferenceDataRegistry referenceDataRegistry;
 
     @Autowired
     private UserRepository userRepository;
@@ -41,6 +53,18 @@ public class ApprovalService {
     @Autowired
     private TicketHistoryService ticketHistoryService;
 
+    @Autowired
+    private TicketStatsRollupService ticketStatsRollupService;
+
+    @Autowired
+    private TicketSearchService ticketSearchService;
+
+    @Autowired
+    private SlaDeadlineService slaDeadlineService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // --------------- Approve ----------------
     @Transactional
     public void approve(Long taskId, String note, Long actingUserId) {
@@ -70,7 +94,7 @@ public class ApprovalService {
         }
         audit.setAction(ApprovalAction.valueOf("APPROVE"));
         // set status on audit (optional): you might set the ticket status entity or null
-        Optional<TicketStatus> statusOpt = ticketStatusRepository.findByName("APPROVED");
+        Optional<TicketStatus> statusOpt = referenceDataRegistry.findStatusByName("APPROVED");
         statusOpt.ifPresent(audit::setStatus);
         audit.setComments(note);
         audit.setCreatedAt(LocalDateTime.now());
@@ -85,11 +109,11 @@ public class ApprovalService {
         
         if (hasMoreSteps) {
             // Còn tầng workflow nữa -> chuyển sang IN_PROGRESS
-            ticketStatusRepository.findByName("IN_PROGRESS").ifPresent(ticket::setCurrentStatus);
+            referenceDataRegistry.findStatusByName("IN_PROGRESS").ifPresent(ticket::setCurrentStatus);
             toStatus = "IN_PROGRESS";
         } else {
             // Đây là tầng cuối -> chuyển sang COMPLETED
-            ticketStatusRepository.findByName("COMPLETED").ifPresent(ticket::setCurrentStatus);
+            referenceDataRegistry.findStatusByName("COMPLETED").ifPresent(ticket::setCurrentStatus);
             toStatus = "COMPLETED";
         }
         
@@ -97,6 +121,8 @@ public class ApprovalService {
         
         // Tạo lịch sử
         ticketHistoryService.createApprovedHistory(ticket, task.getApprover(), note, fromStatus, toStatus);
+        ticketStatsRollupService.recordTransition(ticket, fromStatus, toStatus);
+        eventPublisher.publishEvent(TicketChangedEvent.statusChanged(ticket, fromStatus, toStatus));
         
         // re-evaluate whether this step is complete, and advance workflow if needed
         boolean stepComplete = isStepComplete(ticket.getId(), task.getStepIndex());
@@ -133,11 +159,13 @@ public class ApprovalService {
         // Business policy: mark ticket rejected and cancel other pending tasks in same step
         Ticket ticket = task.getTicket();
         String fromStatus = ticket.getCurrentStatus().getName();
-        ticketStatusRepository.findByName("REJECTED").ifPresent(ticket::setCurrentStatus);
+        referenceDataRegistry.findStatusByName("REJECTED").ifPresent(ticket::setCurrentStatus);
         ticketRepository.save(ticket);
         
         // Tạo lịch sử từ chối
         ticketHistoryService.createRejectedHistory(ticket, task.getApprover(), reason, fromStatus, "REJECTED");
+        ticketStatsRollupService.recordTransition(ticket, fromStatus, "REJECTED");
+        eventPublisher.publishEvent(TicketChangedEvent.statusChanged(ticket, fromStatus, "REJECTED"));
 
         // Cancel other pending tasks in the same step (optional)
         List<ApprovalTask> sameStep = approvalTaskRepository.findByTicketIdOrderByStepIndex(ticket.getId());
@@ -183,7 +211,9 @@ public class ApprovalService {
         newTask.setApproverRole(next.getRole() != null ? next.getRole().getName() : null);
         newTask.setStatus(ApprovalTaskStatus.PENDING);
         newTask.setAssignedAt(LocalDateTime.from(Instant.now()));
+        newTask.setTimeoutAt(slaDeadlineService.approvalTimeoutFor(newTask.getAssignedAt(), 1));
         approvalTaskRepository.save(newTask);
+        slaDeadlineService.refreshTicketAfterCommit(task.getTicket().getId());
 
         // audit
         TicketApproval audit = new TicketApproval();
@@ -228,8 +258,11 @@ public class ApprovalService {
             }
         }
         // fallback: mark ticket as final APPROVED
-        ticketStatusRepository.findByName("APPROVED").ifPresent(ticket::setCurrentStatus);
+        String fromStatus = ticket.getCurrentStatus().getName();
+        referenceDataRegistry.findStatusByName("APPROVED").ifPresent(ticket::setCurrentStatus);
         ticketRepository.save(ticket);
+        ticketStatsRollupService.recordTransition(ticket, fromStatus, "APPROVED");
+        eventPublisher.publishEvent(TicketChangedEvent.statusChanged(ticket, fromStatus, "APPROVED"));
     }
     
     /**
@@ -257,53 +290,100 @@ public class ApprovalService {
         }
 
         List<ApprovalWorkflow> workflows = ticket.getFormTemplate().getApprovalWorkflows();
-        
+
+        // Tra trước trạng thái PENDING và các approver được chỉ định (1 truy vấn) thay vì trong vòng lặp
+        TicketStatus pendingStatus = referenceDataRegistry.findStatusByName("PENDING").orElse(null);
+        Map<Long, Long> approverIdsByWorkflow = parseApproverIds(workflows, workflowApprovers);
+        Map<Long, User> approversById = findApproversById(approverIdsByWorkflow.values());
+
+        List<ApprovalTask> tasks = new ArrayList<>();
+        List<TicketApproval> pendingAudits = new ArrayList<>();
         for (ApprovalWorkflow workflow : workflows) {
-            String approverValue = workflowApprovers.get(workflow.getId());
-            
             ApprovalTask task = new ApprovalTask();
             task.setTicket(ticket);
             task.setStepIndex(workflow.getStepOrder()); // Use stepIndex instead of stepOrder
             task.setWorkflowStep(workflow); // Link to workflow step
             task.setStatus(ApprovalTaskStatus.PENDING);
             task.setAssignedAt(LocalDateTime.now());
+            task.setTimeoutAt(slaDeadlineService.approvalTimeoutFor(task.getAssignedAt(), workflow.getStepOrder()));
             
             User resolvedApprover = null;
             
             // Set specific approver if not "any"
-            if (approverValue != null && !"any".equals(approverValue) && !approverValue.trim().isEmpty()) {
-                try {
-                    Long approverId = Long.parseLong(approverValue.trim());
-                    User approver = userRepository.findById(approverId)
-                            .orElseThrow(() -> new RuntimeException("Approver not found: " + approverId));
-                    resolvedApprover = approver;
-                    task.setApprover(approver);
-                    task.setApproverRole(approver.getRole() != null ? approver.getRole().getName() : null);
-                } catch (NumberFormatException e) {
-                    System.err.println("Invalid approver ID format: " + approverValue + " for workflow step: " + workflow.getId());
-                    // Leave approver null for department-level approval
+            Long approverId = approverIdsByWorkflow.get(workflow.getId());
+            if (approverId != null) {
+                User approver = approversById.get(approverId);
+                if (approver == null) {
+                    throw new RuntimeException("Approver not found: " + approverId);
                 }
+                resolvedApprover = approver;
+                task.setApprover(approver);
+                task.setApproverRole(approver.getRole() != null ? approver.getRole().getName() : null);
             }
             // If approver is null, it means any approver in the department can approve
             
-            approvalTaskRepository.save(task);
+            tasks.add(task);
 
             // Also create an initial TicketApproval (audit) record in PENDING state
             TicketApproval pendingAudit = new TicketApproval();
             pendingAudit.setTicket(ticket);
             pendingAudit.setWorkflowStep(workflow);
-            ticketStatusRepository.findByName("PENDING").ifPresent(pendingAudit::setStatus);
+            pendingAudit.setStatus(pendingStatus);
             // Store who is assigned if present; otherwise keep null (department-level)
             if (resolvedApprover != null) {
                 pendingAudit.setApprover(resolvedApprover);
             }
-            // Some schemas include PENDING in ApprovalAction; fallback to APPROVE if not present
-            try {
-                pendingAudit.setAction(ApprovalAction.valueOf("PENDING"));
-            } catch (IllegalArgumentException ex) {
-                // If PENDING is not a valid action in enum, skip setting action here
+            pendingAudit.setAction(ApprovalAction.PENDING);
+            pendingAudits.add(pendingAudit);
+        }
+
+        // Lưu theo lô: Hibernate gom thành batch INSERT khi flush
+        approvalTaskRepository.saveAll(tasks);
+        ticketApprovalRepository.saveAll(pendingAudits);
+    }
+
+    /**
+     * Parse approver được chỉ định của từng bước duyệt (mỗi giá trị 1 lần): workflowId -> userId
+     * Bước không có approver cụ thể ("any" / rỗng / sai định dạng) không có trong map
+     */
+    private Map<Long, Long> parseApproverIds(List<ApprovalWorkflow> workflows, Map<Long, String> workflowApprovers) {
+        Map<Long, Long> approverIdsByWorkflow = new HashMap<>();
+        for (ApprovalWorkflow workflow : workflows) {
+            Long approverId = parseApproverId(workflowApprovers.get(workflow.getId()), workflow);
+            if (approverId != null) {
+                approverIdsByWorkflow.put(workflow.getId(), approverId);
             }
-            ticketApprovalRepository.save(pendingAudit);
+        }
+        return approverIdsByWorkflow;
+    }
+
+    /**
+     * Lấy các approver được chỉ định cho các bước duyệt trong 1 truy vấn: userId -> User
+     */
+    private Map<Long, User> findApproversById(Collection<Long> approverIds) {
+        if (approverIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, User> approversById = new HashMap<>();
+        for (User user : userRepository.findAllWithRoleByIdIn(approverIds)) {
+            approversById.put(user.getId(), user);
+        }
+        return approversById;
+    }
+
+    /**
+     * approverValue là id người duyệt, "any"/rỗng nghĩa là bất kỳ approver nào của phòng ban
+     */
+    private Long parseApproverId(String approverValue, ApprovalWorkflow workflow) {
+        if (approverValue == null || "any".equals(approverValue) || approverValue.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(approverValue.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid approver ID format: {} for workflow step: {}", approverValue, workflow.getId());
+            // Leave approver null for department-level approval
+            return null;
         }
     }
 
@@ -342,6 +422,11 @@ public class ApprovalService {
         }
 
         List<ApprovalWorkflow> workflows = ticket.getFormTemplate().getApprovalWorkflows();
+        // status = PENDING if exists
+        TicketStatus pendingStatus = referenceDataRegistry.findStatusByName("PENDING").orElse(null);
+
+        List<ApprovalTask> tasks = new ArrayList<>();
+        List<TicketApproval> pendingAudits = new ArrayList<>();
         for (ApprovalWorkflow workflow : workflows) {
             ApprovalTask task = new ApprovalTask();
             task.setTicket(ticket);
@@ -349,22 +434,24 @@ public class ApprovalService {
             task.setWorkflowStep(workflow);
             task.setStatus(ApprovalTaskStatus.PENDING);
             task.setAssignedAt(LocalDateTime.now());
+            task.setTimeoutAt(slaDeadlineService.approvalTimeoutFor(task.getAssignedAt(), workflow.getStepOrder()));
             // approver left null => any eligible approver can claim/act based on department/role
-            approvalTaskRepository.save(task);
+            tasks.add(task);
 
             // Also seed a TicketApproval audit row in PENDING state
             TicketApproval pendingAudit = new TicketApproval();
             pendingAudit.setTicket(ticket);
             pendingAudit.setWorkflowStep(workflow);
             pendingAudit.setUpdatedAt(LocalDateTime.now());
-            // status = PENDING if exists
-            ticketStatusRepository.findByName("PENDING").ifPresent(pendingAudit::setStatus);
+            pendingAudit.setStatus(pendingStatus);
             // No specific approver assigned for template path
-            try {
-                pendingAudit.setAction(ApprovalAction.valueOf("PENDING"));
-            } catch (IllegalArgumentException ignored) {}
-            ticketApprovalRepository.save(pendingAudit);
+            pendingAudit.setAction(ApprovalAction.PENDING);
+            pendingAudits.add(pendingAudit);
         }
+
+        // Lưu theo lô: Hibernate gom thành batch INSERT khi flush
+        approvalTaskRepository.saveAll(tasks);
+        ticketApprovalRepository.saveAll(pendingAudits);
     }
 
     // --------------- New Methods for Approver Dashboard ----------------
@@ -400,6 +487,9 @@ public class ApprovalService {
         ticketApproval.setComments(note);
 //        ticketApproval.setUpdatedAt(LocalDateTime.now());
         ticketApprovalRepository.save(ticketApproval);
+        // Đồng bộ ApprovalTask của bước này (ghi nhận actedAt cho thống kê thời gian xử lý)
+        approvalTaskRepository.updateStatusForPendingStep(ticketApproval.getTicket().getId(),
+                currentStepOrder, ApprovalTaskStatus.APPROVED);
 
         // Update ticket status
         Ticket ticket = ticketApproval.getTicket();
@@ -411,11 +501,11 @@ public class ApprovalService {
         
         if (hasMoreSteps) {
             // More steps to go -> set to IN_PROGRESS
-            ticketStatusRepository.findByName("IN_PROGRESS").ifPresent(ticket::setCurrentStatus);
+            referenceDataRegistry.findStatusByName("IN_PROGRESS").ifPresent(ticket::setCurrentStatus);
             toStatus = "IN_PROGRESS";
         } else {
             // Final step -> set to COMPLETED
-            ticketStatusRepository.findByName("COMPLETED").ifPresent(ticket::setCurrentStatus);
+            referenceDataRegistry.findStatusByName("COMPLETED").ifPresent(ticket::setCurrentStatus);
             toStatus = "COMPLETED";
         }
         
@@ -423,6 +513,8 @@ public class ApprovalService {
         
         // Create history
         ticketHistoryService.createApprovedHistory(ticket, ticketApproval.getApprover(), note, fromStatus, toStatus);
+        ticketStatsRollupService.recordTransition(ticket, fromStatus, toStatus);
+        eventPublisher.publishEvent(TicketChangedEvent.statusChanged(ticket, fromStatus, toStatus));
     }
 
     /**
@@ -456,15 +548,20 @@ public class ApprovalService {
         ticketApproval.setComments(reason);
 //        ticketApproval.setCreatedAt(LocalDateTime.now());
         ticketApprovalRepository.save(ticketApproval);
+        // Đồng bộ ApprovalTask của bước này (ghi nhận actedAt cho thống kê thời gian xử lý)
+        approvalTaskRepository.updateStatusForPendingStep(ticketApproval.getTicket().getId(),
+                currentStepOrder, ApprovalTaskStatus.REJECTED);
 
         // Update ticket status to REJECTED
         Ticket ticket = ticketApproval.getTicket();
         String fromStatus = ticket.getCurrentStatus().getName();
-        ticketStatusRepository.findByName("REJECTED").ifPresent(ticket::setCurrentStatus);
+        referenceDataRegistry.findStatusByName("REJECTED").ifPresent(ticket::setCurrentStatus);
         ticketRepository.save(ticket);
 
         // Create history
         ticketHistoryService.createRejectedHistory(ticket, ticketApproval.getApprover(), reason, fromStatus, "REJECTED");
+        ticketStatsRollupService.recordTransition(ticket, fromStatus, "REJECTED");
+        eventPublisher.publishEvent(TicketChangedEvent.statusChanged(ticket, fromStatus, "REJECTED"));
 
         // Đổi trạng thái các TicketApproval phía sau thành REJECT
         Integer rejectionStepOrder = ticketApproval.getWorkflowStep().getStepOrder();
@@ -495,23 +592,77 @@ public class ApprovalService {
 
     /**
      * Get pending tickets for specific approver with filters - NEW VERSION using TicketApproval
+     * Trả về projection ApprovalQueueItemDto (read-only), không nạp entity Ticket
+     * Bộ lọc q là điều kiện full-text (search_vector) ngay trong truy vấn, không còn LIKE '%q%' trên toàn bảng
      */
-    public Page<TicketApproval> getPendingTicketsForApprover(Long approverId, Long departmentId, 
+    public Page<ApprovalQueueItemDto> getPendingTicketsForApprover(Long approverId, Long departmentId, 
                                                          Long formTemplateId, String priority, 
                                                          String employeeCode, String q, 
                                                          Pageable pageable) {
+        String keyword = normalizeKeyword(q);
+        String tsQuery = ticketSearchService.toTsQuery(keyword);
+        if (keyword != null && tsQuery == null) {
+            return Page.empty(pageable);
+        }
         return ticketApprovalRepository.findPendingForApprover(approverId, departmentId, formTemplateId, 
-                                                           priority, employeeCode, q, pageable);
+                                                           priority, employeeCode, tsQuery, pageable);
     }
 
     /**
      * Get processed tickets by specific approver with filters - NEW VERSION using TicketApproval
      */
-    public Page<TicketApproval> getProcessedTicketsForApprover(Long approverId, Long departmentId, 
+    public Page<ApprovalQueueItemDto> getProcessedTicketsForApprover(Long approverId, Long departmentId, 
                                                            Long formTemplateId, String priority, 
                                                            String employeeCode, String q, 
                                                            Pageable pageable) {
+        String keyword = normalizeKeyword(q);
+        String tsQuery = ticketSearchService.toTsQuery(keyword);
+        if (keyword != null && tsQuery == null) {
+            return Page.empty(pageable);
+        }
         return ticketApprovalRepository.findProcessedByApprover(approverId, departmentId, formTemplateId, 
-                                                            priority, employeeCode, q, pageable);
+                                                            priority, employeeCode, tsQuery, pageable);
+    }
+
+    /**
+     * Hàng chờ duyệt theo cursor (mới nhất trước) - thay cho phân trang OFFSET ở các trang sâu
+     */
+    public CursorPage<ApprovalQueueItemDto> getPendingTicketsForApproverByCursor(Long approverId, Long departmentId,
+                                                                       Long formTemplateId, String priority,
+                                                                       String employeeCode, String q,
+                                                                       String cursor, int size) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        String keyword = normalizeKeyword(q);
+        String tsQuery = ticketSearchService.toTsQuery(keyword);
+        if (keyword != null && tsQuery == null) {
+            return new CursorPage<>(List.of(), 0, false, null);
+        }
+        List<ApprovalQueueItemDto> rows = ticketApprovalRepository.findPendingForApproverBeforeCursor(approverId, departmentId,
+                formTemplateId, priority, employeeCode, tsQuery,
+                position.createdAt(), position.id(), Limit.of(size + 1));
+        return CursorPage.of(rows, size, ta -> new KeysetCursor(ta.getCreatedAt(), ta.getId()), Function.identity());
+    }
+
+    /**
+     * Danh sách đã xử lý theo cursor (mới nhất trước)
+     */
+    public CursorPage<ApprovalQueueItemDto> getProcessedTicketsForApproverByCursor(Long approverId, Long departmentId,
+                                                                         Long formTemplateId, String priority,
+                                                                         String employeeCode, String q,
+                                                                         String cursor, int size) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        String keyword = normalizeKeyword(q);
+        String tsQuery = ticketSearchService.toTsQuery(keyword);
+        if (keyword != null && tsQuery == null) {
+            return new CursorPage<>(List.of(), 0, false, null);
+        }
+        List<ApprovalQueueItemDto> rows = ticketApprovalRepository.findProcessedByApproverBeforeCursor(approverId, departmentId,
+                formTemplateId, priority, employeeCode, tsQuery,
+                position.createdAt(), position.id(), Limit.of(size + 1));
+        return CursorPage.of(rows, size, ta -> new KeysetCursor(ta.getCreatedAt(), ta.getId()), Function.identity());
+    }
+
+    private String normalizeKeyword(String q) {
+        return q == null || q.isBlank() ? null : q.trim();
     }
 }
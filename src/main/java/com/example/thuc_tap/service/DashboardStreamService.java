@@ -0,0 +1,420 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.event.TicketChangedEvent;
+import com.example.thuc_tap.repository.TicketApprovalRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Service đẩy thống kê dashboard realtime qua Server-Sent Events
+ * - Sự kiện ticket (tạo/duyệt/từ chối/xóa) chỉ đánh dấu "cần tính lại"; mỗi chu kỳ flush tính thống kê
+ *   1 lần cho mỗi topic rồi gửi chung cho mọi client của topic đó
+ * - Client nhận "snapshot" khi kết nối, sau đó chỉ nhận "delta" (các trường thay đổi)
+ * - Mỗi client có hàng đợi giới hạn; client chậm làm đầy hàng đợi sẽ bị ngắt thay vì chặn các client khác
+ * - Reconnect với Last-Event-ID được phát lại từ replay buffer, quá cũ thì gửi lại snapshot
+ */
+@Slf4j
+@Service
+public class DashboardStreamService {
+
+    public static final String ADMIN_TOPIC = "admin";
+    private static final String APPROVER_TOPIC_PREFIX = "approver:";
+
+    private static final String EVENT_SNAPSHOT = "snapshot";
+    private static final String EVENT_DELTA = "delta";
+
+    @Autowired
+    private AdminStatsService adminStatsService;
+
+    @Autowired
+    private ApprovalService approvalService;
+
+    @Autowired
+    private TicketApprovalRepository ticketApprovalRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("sseExecutor")
+    private Executor sseExecutor;
+
+    @Value("${dashboard.stream.client-buffer-size:64}")
+    private int clientBufferSize;
+
+    @Value("${dashboard.stream.replay-buffer-size:256}")
+    private int replayBufferSize;
+
+    @Value("${dashboard.stream.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    // Id sự kiện tăng dần dùng chung cho mọi topic (dùng làm Last-Event-ID)
+    private final AtomicLong eventSequence = new AtomicLong();
+    private final Map<String, TopicState> topics = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<TicketChangedEvent> pendingChanges = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Đăng ký nhận thống kê nhanh của admin
+     */
+    public SseEmitter subscribeAdmin(Long lastEventId) {
+        return subscribe(ADMIN_TOPIC, lastEventId, adminStatsService::getQuickStats);
+    }
+
+    /**
+     * Đăng ký nhận thống kê duyệt của một approver
+     */
+    public SseEmitter subscribeApprover(Long approverId, Long lastEventId) {
+        return subscribe(APPROVER_TOPIC_PREFIX + approverId, lastEventId, () -> approvalService.getApprovalStats(approverId));
+    }
+
+    /**
+     * Ghi nhận thay đổi ticket đã commit; việc tính lại để dành cho chu kỳ flush kế tiếp
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTicketChanged(TicketChangedEvent event) {
+        if (!topics.isEmpty()) {
+            pendingChanges.add(event);
+        }
+    }
+
+    /**
+     * Tính lại thống kê cho các topic bị ảnh hưởng và gửi delta tới client
+     * Nhiều thay đổi trong cùng chu kỳ chỉ tốn 1 lần tính cho mỗi topic
+     */
+    @Scheduled(fixedDelayString = "${dashboard.stream.flush-interval-ms:1000}")
+    public void flushPendingChanges() {
+        List<TicketChangedEvent> changes = new ArrayList<>();
+        TicketChangedEvent change;
+        while ((change = pendingChanges.poll()) != null) {
+            changes.add(change);
+        }
+        if (changes.isEmpty() || topics.isEmpty()) {
+            return;
+        }
+
+        TopicState adminTopic = topics.get(ADMIN_TOPIC);
+        if (adminTopic != null) {
+            refreshTopic(adminTopic, adminStatsService::getQuickStats);
+        }
+
+        for (Long approverId : findAffectedApprovers(changes)) {
+            TopicState approverTopic = topics.get(APPROVER_TOPIC_PREFIX + approverId);
+            if (approverTopic != null) {
+                refreshTopic(approverTopic, () -> approvalService.getApprovalStats(approverId));
+            }
+        }
+    }
+
+    /**
+     * Gửi heartbeat (SSE comment) để giữ kết nối qua proxy và phát hiện client đã ngắt
+     */
+    @Scheduled(fixedRateString = "${dashboard.stream.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        for (TopicState topic : topics.values()) {
+            for (Subscriber subscriber : topic.subscribers) {
+                subscriber.offer(StreamEvent.HEARTBEAT);
+            }
+        }
+    }
+
+    /**
+     * Số client đang kết nối
+     */
+    public int getSubscriberCount() {
+        return topics.values().stream().mapToInt(topic -> topic.subscribers.size()).sum();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private SseEmitter subscribe(String topicName, Long lastEventId, Supplier<Object> statsSupplier) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(topicName, emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+
+        // Snapshot tính ngoài khóa (có thể chậm); chỉ tính khi topic chưa có snapshot
+        Map<String, Object> computedSnapshot = null;
+        while (true) {
+            TopicState topic = topics.computeIfAbsent(topicName, name -> new TopicState(eventSequence.get()));
+            synchronized (topic) {
+                // Topic có thể vừa bị gỡ bởi client cuối cùng rời đi, khi đó tạo lại
+                if (topics.get(topicName) != topic) {
+                    continue;
+                }
+                if (lastEventId != null && topic.canReplayFrom(lastEventId, eventSequence.get())) {
+                    for (StreamEvent event : topic.replayBuffer) {
+                        if (event.id() > lastEventId) {
+                            subscriber.offer(event);
+                        }
+                    }
+                    register(topic, subscriber);
+                    return emitter;
+                }
+                // Kết nối mới hoặc Last-Event-ID quá cũ: gửi snapshot đầy đủ
+                // Đọc snapshot, gắn id và đăng ký trong cùng 1 khóa với refreshTopic:
+                // client không thể nhận delta mới hơn trước snapshot, id của snapshot luôn khớp nội dung
+                if (topic.lastSnapshot == null && computedSnapshot != null) {
+                    topic.lastSnapshot = computedSnapshot;
+                }
+                if (topic.lastSnapshot != null) {
+                    subscriber.offer(new StreamEvent(eventSequence.get(), EVENT_SNAPSHOT, topic.lastSnapshot));
+                    register(topic, subscriber);
+                    return emitter;
+                }
+            }
+            try {
+                computedSnapshot = toMap(statsSupplier.get());
+            } catch (RuntimeException e) {
+                removeIfUnused(topicName, topic);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Thêm client vào topic sau khi đã xếp hàng các sự kiện đầu tiên; gọi trong synchronized (topic)
+     * Client bị đóng ngay khi xếp hàng (replay dài hơn hàng đợi) thì không thêm
+     */
+    private void register(TopicState topic, Subscriber subscriber) {
+        if (!subscriber.closed.get()) {
+            topic.subscribers.add(subscriber);
+        }
+    }
+
+    private void refreshTopic(TopicState topic, Supplier<Object> statsSupplier) {
+        if (topic.subscribers.isEmpty()) {
+            return;
+        }
+        Map<String, Object> snapshot;
+        try {
+            snapshot = toMap(statsSupplier.get());
+        } catch (RuntimeException e) {
+            log.error("Failed to compute dashboard stats for stream", e);
+            return;
+        }
+
+        synchronized (topic) {
+            Map<String, Object> previous = topic.lastSnapshot;
+            topic.lastSnapshot = snapshot;
+
+            Map<String, Object> changedFields = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> field : snapshot.entrySet()) {
+                if (previous == null || !Objects.equals(previous.get(field.getKey()), field.getValue())) {
+                    changedFields.put(field.getKey(), field.getValue());
+                }
+            }
+            if (changedFields.isEmpty()) {
+                return;
+            }
+
+            StreamEvent event = new StreamEvent(eventSequence.incrementAndGet(),
+                    previous == null ? EVENT_SNAPSHOT : EVENT_DELTA, changedFields);
+            topic.append(event, replayBufferSize);
+            for (Subscriber subscriber : topic.subscribers) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Các approver đang kết nối bị ảnh hưởng bởi các thay đổi
+     * Ticket bị xóa thì không còn tra được approver nên làm mới tất cả approver đang kết nối
+     */
+    private Set<Long> findAffectedApprovers(List<TicketChangedEvent> changes) {
+        Set<Long> connectedApprovers = new HashSet<>();
+        for (String topicName : topics.keySet()) {
+            if (topicName.startsWith(APPROVER_TOPIC_PREFIX)) {
+                connectedApprovers.add(Long.valueOf(topicName.substring(APPROVER_TOPIC_PREFIX.length())));
+            }
+        }
+        if (connectedApprovers.isEmpty()) {
+            return connectedApprovers;
+        }
+        boolean hasDeletedTicket = changes.stream().anyMatch(change -> change.type() == TicketChangedEvent.Type.DELETED);
+        if (hasDeletedTicket) {
+            return connectedApprovers;
+        }
+
+        Set<Long> ticketIds = new HashSet<>();
+        changes.forEach(change -> ticketIds.add(change.ticketId()));
+        Set<Long> affected = new HashSet<>(ticketApprovalRepository.findApproverIdsByTicketIds(ticketIds));
+        affected.retainAll(connectedApprovers);
+        return affected;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        TopicState topic = topics.get(subscriber.topicName);
+        if (topic == null) {
+            return;
+        }
+        synchronized (topic) {
+            topic.subscribers.remove(subscriber);
+        }
+        removeIfUnused(subscriber.topicName, topic);
+    }
+
+    /**
+     * Topic không còn ai nghe thì bỏ luôn (snapshot sẽ cũ vì không còn được làm mới)
+     */
+    private void removeIfUnused(String topicName, TopicState topic) {
+        synchronized (topic) {
+            if (topic.subscribers.isEmpty()) {
+                topics.remove(topicName, topic);
+            }
+        }
+    }
+
+    private Map<String, Object> toMap(Object stats) {
+        return objectMapper.convertValue(stats, new TypeReference<LinkedHashMap<String, Object>>() {});
+    }
+
+    // ========== INNER CLASSES ==========
+
+    private record StreamEvent(long id, String name, Object data) {
+        static final StreamEvent HEARTBEAT = new StreamEvent(-1L, null, null);
+
+        boolean isHeartbeat() {
+            return name == null;
+        }
+    }
+
+    /**
+     * Trạng thái của 1 topic: client đang nghe, snapshot gần nhất và replay buffer
+     */
+    private static final class TopicState {
+        private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+        private final Deque<StreamEvent> replayBuffer = new ArrayDeque<>();
+        private volatile Map<String, Object> lastSnapshot;
+        // Mọi sự kiện của topic có id > replayableAfter đều còn trong replay buffer
+        private long replayableAfter;
+
+        TopicState(long createdAtSequence) {
+            this.replayableAfter = createdAtSequence;
+        }
+
+        void append(StreamEvent event, int capacity) {
+            replayBuffer.addLast(event);
+            while (replayBuffer.size() > capacity) {
+                replayableAfter = replayBuffer.removeFirst().id();
+            }
+        }
+
+        boolean canReplayFrom(long lastEventId, long currentSequence) {
+            return lastEventId >= replayableAfter && lastEventId <= currentSequence;
+        }
+    }
+
+    /**
+     * 1 client SSE với hàng đợi giới hạn; việc gửi chạy trên sseExecutor, mỗi client tối đa 1 thread gửi
+     */
+    private final class Subscriber {
+        private final String topicName;
+        private final SseEmitter emitter;
+        private final BlockingQueue<StreamEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(String topicName, SseEmitter emitter) {
+            this.topicName = topicName;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(clientBufferSize);
+        }
+
+        void offer(StreamEvent event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                log.debug("Dropping slow SSE client on topic {}", topicName);
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sseExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                close();
+            }
+        }
+
+        private void drain() {
+            try {
+                StreamEvent event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client đã ngắt kết nối
+                close();
+            } finally {
+                draining.set(false);
+            }
+            if (!closed.get() && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void send(StreamEvent event) throws IOException {
+            if (event.isHeartbeat()) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+                return;
+            }
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.id()))
+                    .name(event.name())
+                    .data(event.data(), MediaType.APPLICATION_JSON));
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            queue.clear();
+            unsubscribe(this);
+            try {
+                emitter.complete();
+            } catch (RuntimeException e) {
+                // emitter đã hoàn tất
+            }
+        }
+    }
+}
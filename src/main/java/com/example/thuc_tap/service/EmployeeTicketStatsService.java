@@ -0,0 +1,82 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.common.CoalescingCache;
+import com.example.thuc_tap.event.TicketChangedEvent;
+import com.example.thuc_tap.repository.TicketRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Bộ đếm ticket theo trạng thái cho dashboard nhân viên
+ * - Lần đầu đếm bằng 1 truy vấn conditional aggregation, sau đó giữ trong bộ nhớ
+ * - Sự kiện tạo / chuyển trạng thái / xóa ticket bỏ bộ đếm của người yêu cầu, lần đọc sau đếm lại
+ *   (không cộng delta: không biết bộ đếm đang giữ đã gồm thay đổi đó hay chưa)
+ * - TTL giới hạn sai lệch nếu có thay đổi dữ liệu không phát sự kiện (import, sửa tay trong DB)
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class EmployeeTicketStatsService {
+
+    private final TicketRepository ticketRepository;
+
+    private final CoalescingCache<Long, EmployeeCounters> countersCache =
+            new CoalescingCache<>("employeeTicketStats", 10_000, Duration.ofMinutes(10));
+
+    /**
+     * Thống kê ticket của nhân viên, đọc từ bộ đếm trong bộ nhớ
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public TicketService.EmployeeTicketStats getStats(Long employeeId) {
+        EmployeeCounters counters = countersCache.getOrLoad(employeeId, this::loadCounters);
+        return new TicketService.EmployeeTicketStats(counters.total(), counters.pending(), counters.approved(),
+                counters.rejected(), counters.inProgress());
+    }
+
+    /**
+     * Bỏ bộ đếm của người yêu cầu sau khi thay đổi ticket đã được commit
+     * Lần load chen giữa commit và sự kiện này đã gồm thay đổi nhưng vẫn bị bỏ (invalidate tăng generation),
+     * lần load đang chạy từ trước commit cũng không được lưu; lần đọc sau đếm lại từ DB
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTicketChanged(TicketChangedEvent event) {
+        if (event.requesterId() != null) {
+            countersCache.invalidate(event.requesterId());
+        }
+    }
+
+    /**
+     * Xóa toàn bộ bộ đếm (sau khi ghi dữ liệu hàng loạt không qua sự kiện)
+     */
+    public void evictAll() {
+        countersCache.invalidateAll();
+    }
+
+    private EmployeeCounters loadCounters(Long employeeId) {
+        List<Object[]> rows = ticketRepository.countDashboardBucketsByRequesterRaw(employeeId);
+        if (rows.isEmpty()) {
+            return EmployeeCounters.EMPTY;
+        }
+        Object[] row = rows.get(0);
+        return new EmployeeCounters(toLong(row[0]), toLong(row[1]), toLong(row[2]), toLong(row[3]), toLong(row[4]));
+    }
+
+    private long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    /**
+     * Bộ đếm bất biến của 1 nhân viên; chỉ các trạng thái hiển thị trên dashboard có bucket riêng
+     */
+    private record EmployeeCounters(long total, long pending, long approved, long rejected, long inProgress) {
+
+        static final EmployeeCounters EMPTY = new EmployeeCounters(0, 0, 0, 0, 0);
+    }
+}
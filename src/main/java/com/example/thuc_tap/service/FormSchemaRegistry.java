@@ -0,0 +1,104 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.common.CompiledFormSchema;
+import com.example.thuc_tap.dto.TicketFormDataDto;
+import com.example.thuc_tap.entity.FormTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache CompiledFormSchema theo form template
+ * Bản biên dịch được dùng lại cho đến khi template đổi (version schema hoặc updatedAt) hoặc bị evict khi cập nhật
+ */
+@Service
+public class FormSchemaRegistry {
+
+    private final Map<Long, CompiledFormSchema> compiledSchemas = new ConcurrentHashMap<>();
+
+    /**
+     * Lấy schema đã biên dịch của template, biên dịch lại nếu template đã thay đổi
+     */
+    public CompiledFormSchema getCompiledSchema(FormTemplate template) {
+        CompiledFormSchema compiled = compiledSchemas.get(template.getId());
+        if (compiled != null && compiled.matches(template.getUpdatedAt(), template.getFormSchema())) {
+            return compiled;
+        }
+        compiled = CompiledFormSchema.compile(template.getId(), template.getUpdatedAt(), template.getFormSchema());
+        if (template.getId() != null) {
+            compiledSchemas.put(template.getId(), compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Kiểm tra các field bắt buộc của template có giá trị trong formData
+     * @return danh sách key bị thiếu (rỗng nếu hợp lệ)
+     */
+    public List<String> findMissingRequiredFields(FormTemplate template, Map<String, Object> formData) {
+        List<String> missing = new ArrayList<>();
+        for (String key : getCompiledSchema(template).getUnconditionallyRequiredKeys()) {
+            Object value = formData != null ? formData.get(key) : null;
+            if (isBlank(value)) {
+                missing.add(key);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Chuyển formData (JSON) của ticket thành danh sách TicketFormDataDto kèm label / type lấy từ schema
+     * @param template null nếu ticket không gắn template (chỉ có key / value)
+     */
+    public List<TicketFormDataDto> toFormDataDtos(FormTemplate template, Long ticketId, Map<String, Object> formData) {
+        if (formData == null || formData.isEmpty()) {
+            return null;
+        }
+        CompiledFormSchema compiledSchema = template != null ? getCompiledSchema(template) : null;
+        List<TicketFormDataDto> formDataList = new ArrayList<>();
+        formData.forEach((key, value) -> {
+            TicketFormDataDto formDataDto = new TicketFormDataDto();
+            formDataDto.setTicketId(ticketId);
+            formDataDto.setFieldName(key);
+            formDataDto.setFieldValue(value != null ? value.toString() : null);
+
+            CompiledFormSchema.FieldDescriptor schemaField = compiledSchema != null ? compiledSchema.getField(key) : null;
+            if (schemaField != null) {
+                formDataDto.setFieldLabel(schemaField.label());
+                formDataDto.setFieldType(schemaField.type());
+            }
+
+            formDataList.add(formDataDto);
+        });
+        return formDataList;
+    }
+
+    /**
+     * Xóa bản biên dịch của template (gọi khi template được cập nhật/xóa)
+     */
+    public void evict(Long templateId) {
+        if (templateId != null) {
+            compiledSchemas.remove(templateId);
+        }
+    }
+
+    private boolean isBlank(Object value) {
+        if (value == null) {
+            return true;
+        }
+        if (value instanceof String text) {
+            return text.isBlank();
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.isEmpty();
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.isEmpty();
+        }
+        return false;
+    }
+}
@@ -24,7 +24,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -37,6 +40,8 @@ public class FormTemplateService {
     private final UserRepository userRepository;
     private final ApprovalWorkflowRepository approvalWorkflowRepository;
     private final DepartmentRepository departmentRepository;
+    private final FormSchemaRegistry formSchemaRegistry;
+    private final TicketFormDataIndexService ticketFormDataIndexService;
 
     public Page<FormTemplateFilterResponse> getAllFormTemplates(FormTemplateFilterRequest filter) {
         Pageable pageable = PageRequest.of(
@@ -59,10 +64,16 @@ public class FormTemplateService {
                 pageable
         );
 
-        responsePage.getContent().forEach(formTemplate -> {
-            List<String> approvalDepartments = formTemplateRepository.findApprovalDepartmentsByFormTemplateId(formTemplate.getId());
-            formTemplate.setApprovalDepartments(approvalDepartments);
-        });
+        // Phòng ban duyệt của cả trang lấy trong 1 truy vấn thay vì 1 truy vấn mỗi template
+        List<Long> formTemplateIds = responsePage.getContent().stream().map(FormTemplateFilterResponse::getId).toList();
+        Map<Long, List<String>> departmentsByTemplate = new HashMap<>();
+        if (!formTemplateIds.isEmpty()) {
+            for (Object[] row : formTemplateRepository.findApprovalDepartmentNamesByFormTemplateIdsRaw(formTemplateIds)) {
+                departmentsByTemplate.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
+        }
+        responsePage.getContent().forEach(formTemplate ->
+                formTemplate.setApprovalDepartments(departmentsByTemplate.getOrDefault(formTemplate.getId(), List.of())));
 
         return responsePage;
     }
@@ -138,6 +149,7 @@ public class FormTemplateService {
         formTemplate.setApprovalWorkflows(approvalWorkflows);
 
         FormTemplate savedFormTemplate = formTemplateRepository.save(formTemplate);
+        ticketFormDataIndexService.syncIndexesAfterCommit(savedFormTemplate.getId());
 
         return formTemplateMapper.toResponse(savedFormTemplate);
     }
@@ -223,6 +235,8 @@ public class FormTemplateService {
         }
 
         FormTemplate savedFormTemplate = formTemplateRepository.save(formTemplate);
+        formSchemaRegistry.evict(savedFormTemplate.getId());
+        ticketFormDataIndexService.syncIndexesAfterCommit(savedFormTemplate.getId());
 
         return formTemplateMapper.toResponse(savedFormTemplate);
     }
@@ -254,6 +268,8 @@ public class FormTemplateService {
 
         try {
             formTemplateRepository.delete(formTemplate);
+            formSchemaRegistry.evict(id);
+            ticketFormDataIndexService.syncIndexesAfterCommit(id);
         } catch (DataIntegrityViolationException ex) {
             throw new ConflictException("Không thể xóa form do đã được sử dụng, hãy hủy kích hoạt form thay vì xóa.");
         }
@@ -0,0 +1,164 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.common.CoalescingCache;
+import com.example.thuc_tap.dto.response.CacheMetricsDto;
+import com.example.thuc_tap.dto.response.ProcessingTimeStatsDto;
+import com.example.thuc_tap.entity.Department;
+import com.example.thuc_tap.repository.ApprovalTaskRepository;
+import com.example.thuc_tap.repository.DepartmentRepository;
+import com.example.thuc_tap.repository.FormTemplateRepository;
+import com.example.thuc_tap.repository.TicketHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Service thống kê thời gian xử lý ticket (SLA) theo phòng ban và theo form template
+ * Số liệu được tổng hợp trong DB (percentile_cont) và cache theo từng period (CoalescingCache, TTL 5 phút)
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class ProcessingTimeStatsService {
+
+    public static final String DIMENSION_DEPARTMENT = "DEPARTMENT";
+    public static final String DIMENSION_FORM_TEMPLATE = "FORM_TEMPLATE";
+
+    private final TicketHistoryRepository ticketHistoryRepository;
+    private final ApprovalTaskRepository approvalTaskRepository;
+    private final DepartmentRepository departmentRepository;
+    private final FormTemplateRepository formTemplateRepository;
+
+    // Cache theo period ("week", "month", "year"), nhiều admin cùng miss chỉ tính 1 lần
+    private final CoalescingCache<String, List<ProcessingTimeStatsDto>> cache =
+            new CoalescingCache<>("processingTimeStats", 8, Duration.ofMinutes(5));
+
+    /**
+     * Lấy thống kê thời gian xử lý cho period ("week", "month", "year")
+     * Kết quả gồm cả 2 chiều DEPARTMENT và FORM_TEMPLATE
+     */
+    public List<ProcessingTimeStatsDto> getProcessingTimeStats(String period) {
+        return cache.getOrLoad(period, this::computeProcessingTimeStats);
+    }
+
+    /**
+     * Thời gian xử lý trung bình (giờ) của từng phòng ban trong period: departmentId -> averageHours
+     */
+    public Map<Long, Double> getAverageHoursByDepartment(String period) {
+        return getProcessingTimeStats(period).stream()
+                .filter(stat -> DIMENSION_DEPARTMENT.equals(stat.getDimension()))
+                .filter(stat -> stat.getAverageHours() != null)
+                .collect(Collectors.toMap(ProcessingTimeStatsDto::getGroupId, ProcessingTimeStatsDto::getAverageHours));
+    }
+
+    /**
+     * Xóa cache (khi dữ liệu ticket thay đổi nhiều, ví dụ sau khi import)
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Số liệu hoạt động của cache thời gian xử lý
+     */
+    public CacheMetricsDto getCacheMetrics() {
+        return cache.metrics();
+    }
+
+    private List<ProcessingTimeStatsDto> computeProcessingTimeStats(String period) {
+        LocalDateTime fromDate = LocalDate.now().minusDays(periodDays(period) - 1).atStartOfDay();
+
+        Map<String, ProcessingTimeStatsDto> byGroup = new LinkedHashMap<>();
+
+        // [dimension, groupId, count, avg, p50, p90, p99]
+        for (Object[] row : ticketHistoryRepository.findProcessingTimeStatsRaw(fromDate)) {
+            if (row[1] == null) {
+                continue; // ticket không gắn form template
+            }
+            ProcessingTimeStatsDto stat = byGroup.computeIfAbsent(groupKey(row), key -> newStat(row));
+            stat.setTicketCount(toLong(row[2]));
+            stat.setAverageHours(toHours(row[3]));
+            stat.setP50Hours(toHours(row[4]));
+            stat.setP90Hours(toHours(row[5]));
+            stat.setP99Hours(toHours(row[6]));
+        }
+
+        // [dimension, groupId, count, avg, p90]
+        for (Object[] row : approvalTaskRepository.findApprovalStepTimeStatsRaw(fromDate)) {
+            if (row[1] == null) {
+                continue;
+            }
+            ProcessingTimeStatsDto stat = byGroup.computeIfAbsent(groupKey(row), key -> newStat(row));
+            stat.setApprovalStepCount(toLong(row[2]));
+            stat.setAverageApprovalStepHours(toHours(row[3]));
+            stat.setP90ApprovalStepHours(toHours(row[4]));
+        }
+
+        resolveGroupNames(byGroup.values());
+
+        List<ProcessingTimeStatsDto> stats = new ArrayList<>(byGroup.values());
+        stats.sort(Comparator.comparing(ProcessingTimeStatsDto::getDimension)
+                .thenComparing(ProcessingTimeStatsDto::getGroupId));
+        return stats;
+    }
+
+    private void resolveGroupNames(Iterable<ProcessingTimeStatsDto> stats) {
+        Map<Long, String> departmentNames = departmentRepository.findAll().stream()
+                .collect(Collectors.toMap(Department::getId, Department::getName));
+        Map<Long, String> formTemplateNames = new HashMap<>();
+        for (Object[] row : formTemplateRepository.findAllIdAndNameRaw()) {
+            formTemplateNames.put((Long) row[0], (String) row[1]);
+        }
+
+        for (ProcessingTimeStatsDto stat : stats) {
+            Map<Long, String> names = DIMENSION_DEPARTMENT.equals(stat.getDimension()) ? departmentNames : formTemplateNames;
+            stat.setGroupName(names.get(stat.getGroupId()));
+            if (stat.getTicketCount() == null) {
+                stat.setTicketCount(0L);
+            }
+            if (stat.getApprovalStepCount() == null) {
+                stat.setApprovalStepCount(0L);
+            }
+        }
+    }
+
+    private String groupKey(Object[] row) {
+        return row[0] + ":" + row[1];
+    }
+
+    private ProcessingTimeStatsDto newStat(Object[] row) {
+        return ProcessingTimeStatsDto.builder()
+                .dimension((String) row[0])
+                .groupId(toLong(row[1]))
+                .build();
+    }
+
+    private int periodDays(String period) {
+        return "week".equals(period) ? 7 : ("year".equals(period) ? 365 : 30);
+    }
+
+    private long toLong(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    /**
+     * Làm tròn số giờ đến 2 chữ số thập phân
+     */
+    private Double toHours(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return Math.round(((Number) value).doubleValue() * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.entity.FieldType;
+import com.example.thuc_tap.entity.PriorityLevel;
+import com.example.thuc_tap.entity.Role;
+import com.example.thuc_tap.entity.TicketStatus;
+import com.example.thuc_tap.repository.FieldTypeRepository;
+import com.example.thuc_tap.repository.PriorityLevelRepository;
+import com.example.thuc_tap.repository.RoleRepository;
+import com.example.thuc_tap.repository.TicketStatusRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Dữ liệu danh mục trong bộ nhớ: trạng thái ticket, mức ưu tiên, role, loại field
+ * - Nạp 1 lần lúc khởi động, tra cứu theo name / id là O(1), không truy vấn DB trên luồng tạo / duyệt ticket
+ * - Copy-on-write: mỗi lần reload dựng snapshot mới rồi thay cả snapshot bằng AtomicReference,
+ *   luồng đọc luôn thấy trọn 1 phiên bản (không bao giờ thấy snapshot đang dựng dở)
+ * - Entity trong snapshot là bản sao tách khỏi persistence context (không có quan hệ OneToMany) và không
+ *   bao giờ ra ngoài: mỗi lần tra cứu trả về 1 bản sao mới, caller có sửa (setName, merge rồi dirty-check)
+ *   cũng không ảnh hưởng snapshot dùng chung; bản sao gán làm tham chiếu ManyToOne được (Hibernate chỉ dùng id)
+ *
+ * Sửa danh mục qua service (RoleService) thì gọi reloadAfterCommit; sửa trực tiếp trong DB thì gọi
+ * POST /api/admin/reference-data/reload
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReferenceDataRegistry {
+
+    private final TicketStatusRepository ticketStatusRepository;
+    private final PriorityLevelRepository priorityLevelRepository;
+    private final RoleRepository roleRepository;
+    private final FieldTypeRepository fieldTypeRepository;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    /**
+     * Nạp lại toàn bộ danh mục từ DB và thay snapshot hiện tại
+     * @return số bản ghi mỗi loại
+     */
+    public Map<String, Integer> reload() {
+        Snapshot loaded = new Snapshot(
+                Lookup.of(ticketStatusRepository.findAll(), TicketStatus::getId, TicketStatus::getName, this::copy),
+                Lookup.of(priorityLevelRepository.findAll(), PriorityLevel::getId, PriorityLevel::getName, this::copy),
+                Lookup.of(roleRepository.findAll(), Role::getId, Role::getName, this::copy),
+                Lookup.of(fieldTypeRepository.findAll(), FieldType::getId, FieldType::getName, this::copy));
+        snapshot.set(loaded);
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("statuses", loaded.statuses().size());
+        counts.put("priorities", loaded.priorities().size());
+        counts.put("roles", loaded.roles().size());
+        counts.put("fieldTypes", loaded.fieldTypes().size());
+        log.info("Reference data loaded: {}", counts);
+        return counts;
+    }
+
+    /**
+     * Nạp lại sau khi transaction hiện tại commit (danh mục vừa được tạo / sửa / xóa)
+     */
+    public void reloadAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    public Optional<TicketStatus> findStatusByName(String name) {
+        return current().statuses().byName(name);
+    }
+
+    public Optional<TicketStatus> findStatusById(Long id) {
+        return current().statuses().byId(id);
+    }
+
+    public List<TicketStatus> getStatuses() {
+        return current().statuses().list();
+    }
+
+    public Optional<PriorityLevel> findPriorityByName(String name) {
+        return current().priorities().byName(name);
+    }
+
+    public Optional<PriorityLevel> findPriorityById(Long id) {
+        return current().priorities().byId(id);
+    }
+
+    public List<PriorityLevel> getPriorities() {
+        return current().priorities().list();
+    }
+
+    public Optional<Role> findRoleByName(String name) {
+        return current().roles().byName(name);
+    }
+
+    public Optional<Role> findRoleById(Long id) {
+        return current().roles().byId(id);
+    }
+
+    public List<Role> getRoles() {
+        return current().roles().list();
+    }
+
+    public Optional<FieldType> findFieldTypeByName(String name) {
+        return current().fieldTypes().byName(name);
+    }
+
+    public Optional<FieldType> findFieldTypeById(Long id) {
+        return current().fieldTypes().byId(id);
+    }
+
+    public List<FieldType> getFieldTypes() {
+        return current().fieldTypes().list();
+    }
+
+    /**
+     * Snapshot hiện tại; nạp ngay nếu được gọi trước ApplicationReadyEvent (vd: từ runner lúc khởi động)
+     */
+    private Snapshot current() {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot.get();
+                if (current == null) {
+                    reload();
+                    current = snapshot.get();
+                }
+            }
+        }
+        return current;
+    }
+
+    private TicketStatus copy(TicketStatus source) {
+        TicketStatus status = new TicketStatus();
+        status.setId(source.getId());
+        status.setName(source.getName());
+        status.setDescription(source.getDescription());
+        return status;
+    }
+
+    private PriorityLevel copy(PriorityLevel source) {
+        PriorityLevel priority = new PriorityLevel();
+        priority.setId(source.getId());
+        priority.setName(source.getName());
+        priority.setDescription(source.getDescription());
+        return priority;
+    }
+
+    private Role copy(Role source) {
+        Role role = new Role();
+        role.setId(source.getId());
+        role.setName(source.getName());
+        role.setDescription(source.getDescription());
+        role.setCreatedAt(source.getCreatedAt());
+        return role;
+    }
+
+    private FieldType copy(FieldType source) {
+        FieldType fieldType = new FieldType();
+        fieldType.setId(source.getId());
+        fieldType.setName(source.getName());
+        fieldType.setDescription(source.getDescription());
+        return fieldType;
+    }
+
+    private record Snapshot(Lookup<TicketStatus> statuses, Lookup<PriorityLevel> priorities,
+                            Lookup<Role> roles, Lookup<FieldType> fieldTypes) {
+    }
+
+    /**
+     * Bảng tra cứu bất biến của 1 loại danh mục (danh sách theo id tăng dần)
+     * Phần tử lưu trong bảng chỉ dùng làm bản gốc, mọi kết quả trả ra đều qua copy
+     */
+    private record Lookup<T>(List<T> all, Map<Long, T> ids, Map<String, T> names, Function<T, T> copy) {
+
+        static <T> Lookup<T> of(List<T> entities, Function<T, Long> idOf, Function<T, String> nameOf, Function<T, T> copy) {
+            List<T> all = entities.stream()
+                    .map(copy)
+                    .sorted(Comparator.comparing(idOf))
+                    .toList();
+            Map<Long, T> ids = new LinkedHashMap<>();
+            Map<String, T> names = new LinkedHashMap<>();
+            for (T entity : all) {
+                ids.put(idOf.apply(entity), entity);
+                names.put(nameOf.apply(entity), entity);
+            }
+            return new Lookup<>(all, Map.copyOf(ids), Map.copyOf(names), copy);
+        }
+
+        int size() {
+            return all.size();
+        }
+
+        List<T> list() {
+            return all.stream().map(copy).toList();
+        }
+
+        Optional<T> byId(Long id) {
+            return id != null ? Optional.ofNullable(ids.get(id)).map(copy) : Optional.empty();
+        }
+
+        Optional<T> byName(String name) {
+            return name != null ? Optional.ofNullable(names.get(name)).map(copy) : Optional.empty();
+        }
+    }
+}
@@ -25,6 +25,9 @@ public class RoleService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ReferenceDataRegistry referenceDataRegistry;
+
     @Autowired
     private UserMapper userMapper; // Loại bỏ method convertToDto trùng lặp - sử dụng Mapper thay thế
 
@@ -53,6 +56,7 @@ public class RoleService {
 
         Role role = convertToEntity(roleDto);
         Role savedRole = roleRepository.save(role);
+        referenceDataRegistry.reloadAfterCommit();
         return convertToDto(savedRole);
     }
 
@@ -69,6 +73,7 @@ public class RoleService {
                     existingRole.setDescription(roleDto.getDescription());
 
                     Role updatedRole = roleRepository.save(existingRole);
+                    referenceDataRegistry.reloadAfterCommit();
                     return convertToDto(updatedRole);
                 });
     }
@@ -83,6 +88,7 @@ public class RoleService {
                     }
 
                     roleRepository.delete(role);
+                    referenceDataRegistry.reloadAfterCommit();
                     return true;
                 })
                 .orElse(false);
@@ -0,0 +1,359 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.common.HierarchicalTimingWheel;
+import com.example.thuc_tap.entity.Notification;
+import com.example.thuc_tap.entity.Ticket;
+import com.example.thuc_tap.entity.TicketHistory;
+import com.example.thuc_tap.event.TicketChangedEvent;
+import com.example.thuc_tap.repository.ApprovalTaskRepository;
+import com.example.thuc_tap.repository.NotificationRepository;
+import com.example.thuc_tap.repository.TicketHistoryRepository;
+import com.example.thuc_tap.repository.TicketRepository;
+import com.example.thuc_tap.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SLA engine: theo dõi hạn xử lý ticket (dueDate) và hạn từng bước duyệt (ApprovalTask.timeoutAt)
+ * - Lúc khởi động nạp các hạn còn mở vào bánh xe thời gian phân cấp (1 lần, qua partial index)
+ * - Sau đó cập nhật theo từng ticket khi có sự kiện thay đổi, không quét lại bảng tickets
+ * - Mỗi tick lấy các hạn đã tới và xử lý theo lô: đánh dấu trong DB (UPDATE ... RETURNING để chống trùng),
+ *   rồi ghi Notification + TicketHistory bằng batch insert
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SlaDeadlineService {
+
+    // Tick 1s x 64 ô x 4 tầng ~ 194 ngày, hạn xa hơn nằm ở vùng tràn
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+    private static final long RETRY_DELAY_MS = 60_000;
+
+    private final TicketRepository ticketRepository;
+    private final ApprovalTaskRepository approvalTaskRepository;
+    private final NotificationRepository notificationRepository;
+    private final TicketHistoryRepository ticketHistoryRepository;
+    private final UserRepository userRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${sla.tick-interval-ms:1000}")
+    private long tickIntervalMs;
+
+    @Value("${sla.fire-batch-size:500}")
+    private int fireBatchSize;
+
+    @Value("${sla.approval-step-timeout-hours:48}")
+    private long approvalStepTimeoutHours;
+
+    // Toàn bộ trạng thái dưới đây truy cập qua synchronized(lock)
+    private final Object lock = new Object();
+    private HierarchicalTimingWheel<SlaTarget> wheel;
+    private final Map<Long, Set<SlaTarget>> targetsByTicket = new HashMap<>();
+    private final Deque<SlaTarget> dueQueue = new ArrayDeque<>();
+    // Ticket thay đổi trong lúc đang nạp, cần nạp lại sau khi nạp xong
+    private final Set<Long> refreshDuringLoad = new LinkedHashSet<>();
+    private boolean loading;
+
+    public enum Kind {
+        TICKET_DUE,          // Ticket quá dueDate
+        APPROVAL_TIMEOUT     // Bước duyệt quá timeoutAt
+    }
+
+    public record SlaTarget(Kind kind, Long id, Long ticketId) {
+    }
+
+    /**
+     * Hạn của bước duyệt: các bước được tạo cùng lúc nên bước thứ n có n lần thời gian chuẩn
+     */
+    public LocalDateTime approvalTimeoutFor(LocalDateTime assignedAt, Integer stepOrder) {
+        int steps = stepOrder != null ? Math.max(1, stepOrder) : 1;
+        return assignedAt.plusHours(approvalStepTimeoutHours * steps);
+    }
+
+    // ========== NẠP / CẬP NHẬT HẠN ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reloadAll();
+    }
+
+    /**
+     * Nạp lại toàn bộ hạn còn mở (khởi động, sau khi import hàng loạt)
+     */
+    public void reloadAll() {
+        synchronized (lock) {
+            loading = true;
+        }
+        List<Object[]> ticketRows;
+        List<Object[]> taskRows;
+        try {
+            TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+            readOnlyTransaction.setReadOnly(true);
+            ticketRows = readOnlyTransaction.execute(status -> ticketRepository.findOpenSlaDeadlinesRaw());
+            taskRows = readOnlyTransaction.execute(status -> approvalTaskRepository.findOpenApprovalTimeoutsRaw());
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                loading = false;
+            }
+            throw e;
+        }
+
+        List<Long> changedWhileLoading;
+        synchronized (lock) {
+            wheel = new HierarchicalTimingWheel<>(tickIntervalMs, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+            targetsByTicket.clear();
+            dueQueue.clear();
+            ticketRows.forEach(row -> scheduleLocked(new SlaTarget(Kind.TICKET_DUE, toLong(row[0]), toLong(row[0])), row[1]));
+            taskRows.forEach(row -> scheduleLocked(new SlaTarget(Kind.APPROVAL_TIMEOUT, toLong(row[0]), toLong(row[1])), row[2]));
+            loading = false;
+            changedWhileLoading = new ArrayList<>(refreshDuringLoad);
+            refreshDuringLoad.clear();
+        }
+        changedWhileLoading.forEach(this::refreshTicket);
+        log.info("SLA engine loaded {} ticket deadlines and {} approval timeouts", ticketRows.size(), taskRows.size());
+    }
+
+    /**
+     * Ticket được tạo / đổi trạng thái / xóa: cập nhật các hạn của riêng ticket đó
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTicketChanged(TicketChangedEvent event) {
+        if (event.type() == TicketChangedEvent.Type.DELETED) {
+            cancelTicket(event.ticketId());
+        } else {
+            refreshTicket(event.ticketId());
+        }
+    }
+
+    /**
+     * Nạp lại hạn của ticket sau khi transaction hiện tại commit (dùng cho thay đổi không phát TicketChangedEvent,
+     * ví dụ sửa dueDate hoặc chuyển tiếp bước duyệt)
+     */
+    public void refreshTicketAfterCommit(Long ticketId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshTicket(ticketId);
+                }
+            });
+        } else {
+            refreshTicket(ticketId);
+        }
+    }
+
+    public void refreshTicket(Long ticketId) {
+        if (ticketId == null) {
+            return;
+        }
+        synchronized (lock) {
+            if (wheel == null || loading) {
+                refreshDuringLoad.add(ticketId);
+                return;
+            }
+        }
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        List<Object[]> ticketRows = readOnlyTransaction.execute(status -> ticketRepository.findOpenSlaDeadlineByTicketIdRaw(ticketId));
+        List<Object[]> taskRows = readOnlyTransaction.execute(status -> approvalTaskRepository.findOpenApprovalTimeoutsByTicketIdRaw(ticketId));
+
+        synchronized (lock) {
+            cancelTicketLocked(ticketId);
+            ticketRows.forEach(row -> scheduleLocked(new SlaTarget(Kind.TICKET_DUE, ticketId, ticketId), row[1]));
+            taskRows.forEach(row -> scheduleLocked(new SlaTarget(Kind.APPROVAL_TIMEOUT, toLong(row[0]), ticketId), row[2]));
+        }
+    }
+
+    public void cancelTicket(Long ticketId) {
+        if (ticketId == null) {
+            return;
+        }
+        synchronized (lock) {
+            cancelTicketLocked(ticketId);
+        }
+    }
+
+    /**
+     * Số hạn đang được theo dõi
+     */
+    public int getTrackedDeadlineCount() {
+        synchronized (lock) {
+            return wheel != null ? wheel.size() : 0;
+        }
+    }
+
+    // ========== XỬ LÝ HẠN TỚI ==========
+
+    @Scheduled(fixedDelayString = "${sla.tick-interval-ms:1000}")
+    public void tick() {
+        synchronized (lock) {
+            if (wheel == null || loading) {
+                return;
+            }
+            for (SlaTarget target : wheel.advance(System.currentTimeMillis())) {
+                Set<SlaTarget> targets = targetsByTicket.get(target.ticketId());
+                if (targets != null) {
+                    targets.remove(target);
+                    if (targets.isEmpty()) {
+                        targetsByTicket.remove(target.ticketId());
+                    }
+                }
+                dueQueue.add(target);
+            }
+        }
+
+        while (true) {
+            List<SlaTarget> batch = new ArrayList<>(fireBatchSize);
+            synchronized (lock) {
+                while (batch.size() < fireBatchSize && !dueQueue.isEmpty()) {
+                    batch.add(dueQueue.poll());
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                fireBatch(batch);
+            } catch (RuntimeException e) {
+                log.error("Failed to process {} SLA deadlines, retrying in {} ms", batch.size(), RETRY_DELAY_MS, e);
+                synchronized (lock) {
+                    long retryAt = System.currentTimeMillis() + RETRY_DELAY_MS;
+                    batch.forEach(target -> scheduleLocked(target, retryAt));
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Xử lý 1 lô hạn tới trong 1 transaction
+     * Điều kiện được kiểm tra lại trong câu UPDATE nên hạn đã được xử lý / ticket đã đóng sẽ tự bị bỏ qua
+     */
+    private void fireBatch(List<SlaTarget> batch) {
+        List<Long> ticketIds = new ArrayList<>();
+        List<Long> taskIds = new ArrayList<>();
+        for (SlaTarget target : batch) {
+            (target.kind() == Kind.TICKET_DUE ? ticketIds : taskIds).add(target.id());
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int[] counts = transaction.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Notification> notifications = new ArrayList<>();
+            List<TicketHistory> histories = new ArrayList<>();
+
+            int breached = 0;
+            if (!ticketIds.isEmpty()) {
+                for (Object[] row : ticketRepository.markSlaBreachedRaw(ticketIds, now)) {
+                    Ticket ticket = ticketRepository.getReferenceById(toLong(row[0]));
+                    String ticketLabel = row[1] + " - " + row[2];
+                    notifications.add(notification(toLong(row[3]), ticket, "Ticket quá hạn xử lý",
+                            "Ticket " + ticketLabel + " đã quá hạn xử lý", "TICKET_OVERDUE"));
+                    histories.add(history(ticket, TicketHistory.TicketHistoryAction.SLA_BREACHED,
+                            "Ticket quá hạn xử lý (SLA)"));
+                    breached++;
+                }
+            }
+
+            int escalated = 0;
+            if (!taskIds.isEmpty()) {
+                for (Object[] row : approvalTaskRepository.markEscalatedRaw(taskIds, now)) {
+                    Ticket ticket = ticketRepository.getReferenceById(toLong(row[1]));
+                    String ticketLabel = row[2] + " - " + row[3];
+                    Long approverId = row[4] != null ? toLong(row[4]) : null;
+                    Long departmentHeadId = row[5] != null ? toLong(row[5]) : null;
+                    Object stepIndex = row[6];
+
+                    if (approverId != null) {
+                        notifications.add(notification(approverId, ticket, "Bước duyệt quá hạn",
+                                "Ticket " + ticketLabel + " đang chờ bạn duyệt (bước " + stepIndex + ") đã quá hạn", "APPROVAL_ESCALATED"));
+                    }
+                    if (departmentHeadId != null && !departmentHeadId.equals(approverId)) {
+                        notifications.add(notification(departmentHeadId, ticket, "Escalation: bước duyệt quá hạn",
+                                "Bước " + stepIndex + " của ticket " + ticketLabel + " đã quá hạn duyệt", "APPROVAL_ESCALATED"));
+                    }
+                    histories.add(history(ticket, TicketHistory.TicketHistoryAction.ESCALATED,
+                            "Bước duyệt " + stepIndex + " quá hạn, đã báo trưởng phòng"));
+                    escalated++;
+                }
+            }
+
+            notificationRepository.saveAll(notifications);
+            ticketHistoryRepository.saveAll(histories);
+            return new int[] { breached, escalated };
+        });
+
+        if (counts != null && (counts[0] > 0 || counts[1] > 0)) {
+            log.info("SLA engine: {} tickets overdue, {} approval steps escalated", counts[0], counts[1]);
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private void scheduleLocked(SlaTarget target, Object deadline) {
+        long deadlineMillis = deadline instanceof Long millis ? millis : toEpochMillis(deadline);
+        wheel.schedule(target, deadlineMillis);
+        targetsByTicket.computeIfAbsent(target.ticketId(), id -> new HashSet<>()).add(target);
+    }
+
+    private void cancelTicketLocked(Long ticketId) {
+        Set<SlaTarget> targets = targetsByTicket.remove(ticketId);
+        if (targets != null && wheel != null) {
+            targets.forEach(wheel::cancel);
+        }
+        dueQueue.removeIf(target -> ticketId.equals(target.ticketId()));
+    }
+
+    private Notification notification(Long userId, Ticket ticket, String title, String message, String type) {
+        Notification notification = new Notification();
+        notification.setUser(userRepository.getReferenceById(userId));
+        notification.setTicket(ticket);
+        notification.setTitle(title);
+        notification.setMessage(message);
+        notification.setType(type);
+        notification.setIsRead(false);
+        return notification;
+    }
+
+    private TicketHistory history(Ticket ticket, TicketHistory.TicketHistoryAction action, String description) {
+        TicketHistory history = new TicketHistory();
+        history.setTicket(ticket);
+        history.setActionType(action);
+        history.setActionDescription(description);
+        return history;
+    }
+
+    private long toEpochMillis(Object value) {
+        LocalDateTime dateTime = value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private Long toLong(Object value) {
+        return ((Number) value).longValue();
+    }
+}
@@ -10,7 +10,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,7 +24,7 @@ public class TicketApprovalService {
     
     private final TicketApprovalRepository ticketApprovalRepository;
     private final UserRepository userRepository;
-    private final TicketStatusRepository ticketStatusRepository;
+    private final ReferenceDataRegistry referenceDataRegistry;
     private final TicketRepository ticketRepository;
     private final TicketHistoryService ticketHistoryService;
     
@@ -40,12 +44,13 @@ public class TicketApprovalService {
         }
         
         // Lấy status PENDING
-        TicketStatus pendingStatus = ticketStatusRepository.findByName("PENDING")
+        TicketStatus pendingStatus = referenceDataRegistry.findStatusByName("PENDING")
                 .orElseThrow(() -> new RuntimeException("PENDING status not found"));
         
         // Tạo approval tasks từ workflows
         List<ApprovalWorkflow> workflows = ticket.getFormTemplate().getApprovalWorkflows();
         
+        List<TicketApproval> approvals = new ArrayList<>();
         for (ApprovalWorkflow workflow : workflows) {
             TicketApproval approval = new TicketApproval();
             approval.setTicket(ticket);
@@ -56,8 +61,10 @@ public class TicketApprovalService {
             // Không assign approver cụ thể - bất kỳ APPROVER nào trong department có thể approve
             // approval.setApprover(null); // Sẽ được assign khi có người approve
             
-            ticketApprovalRepository.save(approval);
+            approvals.add(approval);
         }
+        // Lưu theo lô (batch INSERT)
+        ticketApprovalRepository.saveAll(approvals);
     }
     
     /**
@@ -70,16 +77,39 @@ public class TicketApprovalService {
                 .collect(Collectors.toList());
     }
 
-    public TicketApprovalsResponse getTicketApprovalsPayload(Long ticketId) {
-        // load ticket (this class is transactional so relationships can be accessed)
-        Ticket ticket = ticketRepository.findById(ticketId)
+    /**
+     * Lấy approvals của nhiều ticket trong 1 truy vấn, nhóm theo ticketId (giữ thứ tự step)
+     * Ticket không có approval nào sẽ không có key trong map
+     */
+    public Map<Long, List<TicketApprovalDto>> getTicketApprovalsByTicketIds(Collection<Long> ticketIds) {
+        if (ticketIds.isEmpty()) {
+            return Map.of();
+        }
+        return ticketApprovalRepository.findByTicketIdsWithDetails(ticketIds).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.groupingBy(TicketApprovalDto::getTicketId, LinkedHashMap::new, Collectors.toList()));
+    }
+
+    /**
+     * Chi tiết ticket cho màn hình duyệt
+     * - Ticket và approvals (kèm bước duyệt, phòng ban, người duyệt) nạp bằng fetch join, bước pending đầu tiên lấy từ chính danh sách đó
+     * - Lịch sử ticket chỉ được truy vấn khi includeHistory = true
+     */
+    @Transactional(readOnly = true)
+    public TicketApprovalsResponse getTicketApprovalsPayload(Long ticketId, boolean includeHistory) {
+        Ticket ticket = ticketRepository.findAllWithDetailsByIdIn(List.of(ticketId)).stream()
+                .findFirst()
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Ticket not found"));
 
-        // approvals (history)
-        List<TicketApprovalDto> approvals = getTicketApprovals(ticketId);
+        // approvals theo thứ tự step
+        List<TicketApprovalDto> approvals = getTicketApprovalsByTicketIds(List.of(ticketId))
+                .getOrDefault(ticketId, List.of());
 
-        // next pending task (may be null)
-        TicketApprovalDto nextPending = getNextPendingApproval(ticketId);
+        // next pending task (may be null) - giống getNextPendingApproval
+        TicketApprovalDto nextPending = approvals.stream()
+                .filter(approval -> ApprovalAction.PENDING.name().equals(approval.getAction()))
+                .findFirst()
+                .orElse(null);
 
         TicketApprovalsResponse r = new TicketApprovalsResponse();
         r.setTicketId(ticket.getId());
@@ -87,6 +117,7 @@ public class TicketApprovalService {
         r.setTitle(ticket.getTitle());
         r.setDescription(ticket.getDescription());
         r.setCreatedAt(ticket.getCreatedAt());
+        r.setUpdatedAt(ticket.getUpdatedAt());
         r.setDueDate(ticket.getDueDate());
 
         // requester: many schemas name the relationship 'requester' (see your tickets table requester_id)
@@ -130,11 +161,11 @@ public class TicketApprovalService {
 
         r.setApprovals(approvals);
         r.setNextPending(nextPending);
-        
-        // Thêm lịch sử ticket
-        List<TicketHistory> history = ticketHistoryService.getTicketHistory(ticketId);
-        // TODO: Có thể thêm history vào response nếu cần
-        
+
+        if (includeHistory) {
+            r.setHistory(ticketHistoryService.getTicketHistoryDtos(ticketId));
+        }
+
         return r;
     }
     
@@ -0,0 +1,306 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.dto.TicketApprovalDto;
+import com.example.thuc_tap.dto.TicketDto;
+import com.example.thuc_tap.entity.FormTemplate;
+import com.example.thuc_tap.repository.FormTemplateRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Lưu trữ lạnh ticket đã đóng lâu ngày
+ * - Job định kỳ chuyển ticket COMPLETED / REJECTED / CANCELLED cập nhật lần cuối trước (now - after-days)
+ *   cùng ticket_approvals, ticket_history sang các bảng *_archive (partition theo năm của created_at)
+ * - Mỗi lô là 1 transaction, chọn ứng viên bằng FOR UPDATE SKIP LOCKED nên nhiều node chạy cùng lúc không đụng nhau
+ * - Chạy trên archiveExecutor (không chiếm thread scheduler dùng cho SLA tick / heartbeat SSE),
+ *   tối đa max-batches-per-run lô mỗi lần, phần còn lại để lần chạy sau
+ * - Bảng live chỉ còn ticket "nóng" nên các truy vấn đếm / danh sách / tìm kiếm không phải quét dữ liệu cũ
+ * - getTicketById đọc bảng archive khi không thấy ticket trong bảng live (findArchivedTicket)
+ *
+ * Bảng archive được tạo bởi create_ticket_archive_tables.sql
+ */
+@Slf4j
+@Service
+public class TicketArchiveService {
+
+    private static final String CLOSED_STATUS_CODES =
+            "ticket_status_code('COMPLETED'), ticket_status_code('REJECTED'), ticket_status_code('CANCELLED')";
+    // Bảng live -> bảng archive, theo thứ tự chép (ticket trước, bảng con sau)
+    private static final Map<String, String> ARCHIVE_TABLES = Map.of(
+            "tickets", "tickets_archive",
+            "ticket_approvals", "ticket_approvals_archive",
+            "ticket_history", "ticket_history_archive");
+    private static final TypeReference<LinkedHashMap<String, Object>> FORM_DATA_TYPE = new TypeReference<>() {};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FormTemplateRepository formTemplateRepository;
+    private final FormSchemaRegistry formSchemaRegistry;
+    private final EmployeeTicketStatsService employeeTicketStatsService;
+    private final ObjectMapper objectMapper;
+    private final Executor archiveExecutor;
+
+    @Value("${ticket.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ticket.archive.after-days:365}")
+    private int afterDays;
+
+    @Value("${ticket.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${ticket.archive.max-batches-per-run:200}")
+    private int maxBatchesPerRun;
+
+    public TicketArchiveService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                FormTemplateRepository formTemplateRepository,
+                                FormSchemaRegistry formSchemaRegistry,
+                                EmployeeTicketStatsService employeeTicketStatsService,
+                                ObjectMapper objectMapper,
+                                @Qualifier("archiveExecutor") Executor archiveExecutor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.formTemplateRepository = formTemplateRepository;
+        this.formSchemaRegistry = formSchemaRegistry;
+        this.employeeTicketStatsService = employeeTicketStatsService;
+        this.objectMapper = objectMapper;
+        this.archiveExecutor = archiveExecutor;
+    }
+
+    /**
+     * Chạy hằng đêm: giao việc cho archiveExecutor rồi trả thread scheduler ngay
+     * Lần chạy trước chưa xong thì bỏ qua lần này
+     */
+    @Scheduled(cron = "${ticket.archive.cron:0 30 2 * * *}")
+    public void scheduleArchiving() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archiveExecutor.execute(this::archiveClosedTickets);
+        } catch (RejectedExecutionException e) {
+            log.warn("Ticket archiving skipped: previous run is still in progress");
+        }
+    }
+
+    /**
+     * Chuyển theo lô cho tới khi hết ứng viên hoặc đủ maxBatchesPerRun lô
+     */
+    public void archiveClosedTickets() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(afterDays);
+        long startedAt = System.currentTimeMillis();
+        int total = 0;
+        int batches = 0;
+        try {
+            Map<String, String> columns = syncArchiveColumns();
+            int moved;
+            do {
+                moved = transactionTemplate.execute(status -> archiveBatch(cutoff, columns));
+                total += moved;
+                batches++;
+            } while (moved == batchSize && batches < maxBatchesPerRun);
+            if (moved == batchSize) {
+                log.info("Ticket archiving reached {} batches, remaining tickets are left for the next run", maxBatchesPerRun);
+            }
+        } catch (RuntimeException e) {
+            log.error("Ticket archiving stopped after {} tickets", total, e);
+        }
+        if (total > 0) {
+            // Bộ đếm dashboard nhân viên chỉ tính ticket trong bảng live
+            employeeTicketStatsService.evictAll();
+            log.info("Archived {} closed tickets older than {} in {} ms", total, cutoff, System.currentTimeMillis() - startedAt);
+        }
+    }
+
+    /**
+     * Chuyển 1 lô ticket (cùng approvals, history) sang bảng archive; chạy trong transaction của bên gọi
+     * @return số ticket đã chuyển
+     */
+    private int archiveBatch(LocalDateTime cutoff, Map<String, String> columns) {
+        List<Object[]> candidates = jdbcTemplate.query("""
+                SELECT t.id, EXTRACT(YEAR FROM t.created_at)
+                FROM tickets t
+                WHERE t.status_code IN (%s) AND COALESCE(t.updated_at, t.created_at) < ?
+                ORDER BY t.id
+                LIMIT ?
+                FOR UPDATE OF t SKIP LOCKED
+                """.formatted(CLOSED_STATUS_CODES),
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getInt(2)},
+                Timestamp.valueOf(cutoff), batchSize);
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        Long[] ticketIds = candidates.stream().map(row -> (Long) row[0]).toArray(Long[]::new);
+
+        // Approvals / history có thể tạo sau năm của ticket: tạo partition từ năm nhỏ nhất tới năm nay
+        int fromYear = candidates.stream().mapToInt(row -> (Integer) row[1]).min().orElseThrow();
+        for (int year = fromYear; year <= LocalDateTime.now().getYear(); year++) {
+            jdbcTemplate.execute("SELECT ensure_ticket_archive_partitions(" + year + ")");
+        }
+
+        updateWithIds("INSERT INTO tickets_archive (" + columns.get("tickets") + ") "
+                + "SELECT " + columns.get("tickets") + " FROM tickets WHERE id = ANY(?)", ticketIds);
+        updateWithIds("INSERT INTO ticket_approvals_archive (" + columns.get("ticket_approvals") + ") "
+                + "SELECT " + columns.get("ticket_approvals") + " FROM ticket_approvals WHERE ticket_id = ANY(?)", ticketIds);
+        updateWithIds("INSERT INTO ticket_history_archive (" + columns.get("ticket_history") + ") "
+                + "SELECT " + columns.get("ticket_history") + " FROM ticket_history WHERE ticket_id = ANY(?)", ticketIds);
+
+        // Thông báo cũ vẫn giữ cho người nhận, chỉ bỏ liên kết tới ticket
+        updateWithIds("UPDATE notifications SET ticket_id = NULL WHERE ticket_id = ANY(?)", ticketIds);
+        // Task workflow của ticket đã đóng không còn dùng; vết duyệt nằm ở ticket_approvals_archive
+        updateWithIds("DELETE FROM approval_tasks WHERE ticket_id = ANY(?)", ticketIds);
+        updateWithIds("DELETE FROM ticket_form_data WHERE ticket_id = ANY(?)", ticketIds);
+        updateWithIds("DELETE FROM ticket_approvals WHERE ticket_id = ANY(?)", ticketIds);
+        updateWithIds("DELETE FROM ticket_history WHERE ticket_id = ANY(?)", ticketIds);
+        return updateWithIds("DELETE FROM tickets WHERE id = ANY(?)", ticketIds);
+    }
+
+    /**
+     * Thêm vào bảng archive các cột Hibernate mới thêm ở bảng live (ddl-auto=update), rồi trả về danh sách cột cần chép
+     * @return bảng live -> danh sách cột (đã quote) dùng chung cho INSERT ... SELECT
+     */
+    private Map<String, String> syncArchiveColumns() {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (Map.Entry<String, String> table : ARCHIVE_TABLES.entrySet()) {
+            String live = table.getKey();
+            String archive = table.getValue();
+            jdbcTemplate.query("""
+                    SELECT a.attname, format_type(a.atttypid, a.atttypmod)
+                    FROM pg_attribute a
+                    WHERE a.attrelid = CAST(? AS regclass) AND a.attnum > 0 AND NOT a.attisdropped
+                      AND NOT EXISTS (SELECT 1 FROM pg_attribute b
+                                      WHERE b.attrelid = CAST(? AS regclass) AND b.attname = a.attname AND NOT b.attisdropped)
+                    """,
+                    rs -> {
+                        log.info("Adding column {} ({}) to {}", rs.getString(1), rs.getString(2), archive);
+                        jdbcTemplate.execute("ALTER TABLE " + archive + " ADD COLUMN IF NOT EXISTS \""
+                                + rs.getString(1) + "\" " + rs.getString(2));
+                    },
+                    live, archive);
+            List<String> names = jdbcTemplate.queryForList("""
+                    SELECT a.attname
+                    FROM pg_attribute a
+                    WHERE a.attrelid = CAST(? AS regclass) AND a.attnum > 0 AND NOT a.attisdropped
+                    ORDER BY a.attnum
+                    """, String.class, live);
+            columns.put(live, names.stream().map(name -> "\"" + name + "\"").collect(Collectors.joining(", ")));
+        }
+        return columns;
+    }
+
+    private int updateWithIds(String sql, Long[] ids) {
+        return jdbcTemplate.update(sql, ps -> {
+            Array array = ps.getConnection().createArrayOf("bigint", ids);
+            ps.setArray(1, array);
+        });
+    }
+
+    /**
+     * Đọc ticket đã lưu trữ (cùng formData và vết duyệt); rỗng nếu không có
+     */
+    public Optional<TicketDto> findArchivedTicket(Long ticketId) {
+        List<TicketDto> tickets = jdbcTemplate.query("""
+                SELECT t.id, t.ticket_code, t.title, t.description,
+                       t.requester_id, r.full_name, t.form_template_id, ft.name,
+                       t.department_id, d.name, t.current_status_id, s.name, t.priority_id, p.name,
+                       t.due_date, t.created_at, t.updated_at, CAST(t.form_data AS text)
+                FROM tickets_archive t
+                JOIN users r ON r.id = t.requester_id
+                JOIN departments d ON d.id = t.department_id
+                JOIN ticket_status s ON s.id = t.current_status_id
+                LEFT JOIN form_templates ft ON ft.id = t.form_template_id
+                LEFT JOIN priority_levels p ON p.id = t.priority_id
+                WHERE t.id = ?
+                """, this::mapArchivedTicket, ticketId);
+        if (tickets.isEmpty()) {
+            return Optional.empty();
+        }
+        TicketDto dto = tickets.get(0);
+        dto.setApprovals(jdbcTemplate.query("""
+                SELECT ta.id, ta.ticket_id, ta.approver_id, u.full_name, ta.workflow_step_id, ws.step_name, ws.step_order,
+                       ta.action, ta.status_id, st.name, ta.comments, ws.department_id, d.name,
+                       ta.forwarded_to_department_id, fd.name, ta.created_at, ta.updated_at
+                FROM ticket_approvals_archive ta
+                LEFT JOIN users u ON u.id = ta.approver_id
+                LEFT JOIN approval_workflows ws ON ws.id = ta.workflow_step_id
+                LEFT JOIN ticket_status st ON st.id = ta.status_id
+                LEFT JOIN departments d ON d.id = ws.department_id
+                LEFT JOIN departments fd ON fd.id = ta.forwarded_to_department_id
+                WHERE ta.ticket_id = ?
+                ORDER BY ws.step_order, ta.id
+                """, this::mapArchivedApproval, ticketId));
+        return Optional.of(dto);
+    }
+
+    private TicketDto mapArchivedTicket(ResultSet rs, int rowNum) throws SQLException {
+        TicketDto dto = new TicketDto(
+                rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                rs.getLong(5), rs.getString(6), rs.getObject(7, Long.class), rs.getString(8),
+                rs.getLong(9), rs.getString(10), rs.getLong(11), rs.getString(12),
+                rs.getObject(13, Long.class), rs.getString(14),
+                toLocalDateTime(rs.getTimestamp(15)), toLocalDateTime(rs.getTimestamp(16)), toLocalDateTime(rs.getTimestamp(17)));
+        String formDataJson = rs.getString(18);
+        if (formDataJson != null) {
+            try {
+                Map<String, Object> formData = objectMapper.readValue(formDataJson, FORM_DATA_TYPE);
+                FormTemplate template = dto.getFormTemplateId() != null
+                        ? formTemplateRepository.findById(dto.getFormTemplateId()).orElse(null)
+                        : null;
+                dto.setFormData(formSchemaRegistry.toFormDataDtos(template, dto.getId(), formData));
+            } catch (JsonProcessingException e) {
+                log.warn("Archived ticket {} has unreadable form_data", dto.getId());
+            }
+        }
+        return dto;
+    }
+
+    private TicketApprovalDto mapArchivedApproval(ResultSet rs, int rowNum) throws SQLException {
+        TicketApprovalDto dto = new TicketApprovalDto();
+        dto.setId(rs.getLong(1));
+        dto.setTicketId(rs.getLong(2));
+        dto.setApproverId(rs.getObject(3, Long.class));
+        dto.setApproverName(rs.getString(4));
+        dto.setWorkflowStepId(rs.getObject(5, Long.class));
+        dto.setWorkflowStepName(rs.getString(6));
+        dto.setStepName(rs.getString(6));
+        dto.setStepOrder(rs.getObject(7, Integer.class));
+        dto.setAction(rs.getString(8));
+        dto.setStatusId(rs.getObject(9, Long.class));
+        dto.setStatusName(rs.getString(10));
+        dto.setComments(rs.getString(11));
+        dto.setDepartmentId(rs.getObject(12, Long.class));
+        dto.setDepartmentName(rs.getString(13));
+        dto.setForwardedToDepartmentId(rs.getObject(14, Long.class));
+        dto.setForwardedToDepartmentName(rs.getString(15));
+        dto.setCreatedAt(toLocalDateTime(rs.getTimestamp(16)));
+        dto.setUpdatedAt(toLocalDateTime(rs.getTimestamp(17)));
+        return dto;
+    }
+
+    private LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.repository.TicketCodeCounterRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Year;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cấp mã ticket TICKET-YYYY-NNNNN theo cơ chế hi/lo
+ * - Mỗi lần chạm DB đặt trước 1 khối số (ticket_code_counters), sau đó cấp từng số bằng AtomicLong không cần khóa
+ * - Việc đặt khối là UPDATE/UPSERT nguyên tử trên 1 dòng nên an toàn khi chạy nhiều node
+ * - Bộ đếm tách theo năm; số trong khối chưa dùng hết khi restart sẽ bị bỏ qua (mã có thể không liên tục)
+ */
+@Slf4j
+@Service
+public class TicketCodeAllocator {
+
+    private final TicketCodeCounterRepository ticketCodeCounterRepository;
+    private final TransactionTemplate requiresNewTransaction;
+    private final long blockSize;
+
+    private final AtomicReference<CodeBlock> currentBlock = new AtomicReference<>(CodeBlock.EMPTY);
+    private final Object refillLock = new Object();
+
+    public TicketCodeAllocator(TicketCodeCounterRepository ticketCodeCounterRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${ticket.code.block-size:50}") long blockSize) {
+        this.ticketCodeCounterRepository = ticketCodeCounterRepository;
+        // Đặt khối trong transaction riêng: commit ngay, không giữ khóa dòng bộ đếm suốt transaction tạo ticket
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Cấp mã ticket tiếp theo của năm hiện tại
+     */
+    public String nextTicketCode() {
+        int year = Year.now().getValue();
+        while (true) {
+            CodeBlock block = currentBlock.get();
+            if (block.year() == year) {
+                long value = block.next().getAndIncrement();
+                if (value < block.end()) {
+                    return String.format("TICKET-%d-%05d", year, value);
+                }
+            }
+            // Hết khối hoặc sang năm mới: chỉ 1 thread đặt khối mới, các thread khác thử lại với khối đó
+            synchronized (refillLock) {
+                if (currentBlock.get() == block) {
+                    currentBlock.set(reserveBlock(year));
+                }
+            }
+        }
+    }
+
+    private CodeBlock reserveBlock(int year) {
+        Long end = requiresNewTransaction.execute(status -> {
+            Long reservedEnd = ticketCodeCounterRepository.reserveBlock(year, blockSize);
+            if (reservedEnd == null) {
+                reservedEnd = ticketCodeCounterRepository.initializeAndReserveBlock(year, blockSize);
+            }
+            return reservedEnd;
+        });
+        if (end == null) {
+            throw new RuntimeException("Could not reserve ticket code block for year " + year);
+        }
+        log.debug("Reserved ticket code block [{}, {}) for year {}", end - blockSize, end, year);
+        return new CodeBlock(year, new AtomicLong(end - blockSize), end);
+    }
+
+    private record CodeBlock(int year, AtomicLong next, long end) {
+        static final CodeBlock EMPTY = new CodeBlock(0, new AtomicLong(), 0L);
+    }
+}
@@ -0,0 +1,363 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.entity.Ticket;
+import com.example.thuc_tap.entity.TicketApproval;
+import com.example.thuc_tap.repository.TicketApprovalRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Export ticket cho kiểm toán (CSV hoặc NDJSON), ghi thẳng ra stream của response
+ * - Đọc bằng cursor DB forward-only (ScrollableResults, fetch size cố định), không nạp cả năm vào List
+ * - Mỗi chunk: nạp approval trail của cả chunk trong 1 truy vấn, ghi ra, rồi clear persistence context
+ *   nên bộ nhớ dùng không phụ thuộc số ticket
+ *
+ * - Sau bảng live đọc tiếp tickets_archive / ticket_approvals_archive cùng khoảng thời gian
+ *   (ticket đã được TicketArchiveService lưu trữ vẫn có trong export), cũng theo chunk bằng cursor JDBC
+ *
+ * Mỗi ticket gồm thông tin chung, formData và approvals (các bước duyệt theo thứ tự)
+ * CSV: formData và approvals là chuỗi JSON trong 1 cột (mỗi template có bộ field khác nhau)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TicketExportService {
+
+    public static final String FORMAT_NDJSON = TicketImportService.FORMAT_NDJSON;
+    public static final String FORMAT_CSV = TicketImportService.FORMAT_CSV;
+
+    private static final int MAX_FETCH_SIZE = 5000;
+    private static final List<String> CSV_COLUMNS = List.of(
+            "ticketId", "ticketCode", "templateId", "templateName", "requesterId", "requesterCode", "requesterName",
+            "departmentId", "departmentName", "priority", "status", "title", "description",
+            "createdAt", "updatedAt", "dueDate", "slaBreachedAt", "formData", "approvals");
+    // Cột CSV chứa chuỗi JSON
+    private static final List<String> JSON_COLUMNS = List.of("formData", "approvals");
+
+    private final TicketApprovalRepository ticketApprovalRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${ticket.export.fetch-size:500}")
+    private int fetchSize;
+
+    /**
+     * Ghi các ticket tạo trong [from, to) ra output: ticket trong bảng live theo thứ tự id, rồi ticket đã lưu trữ theo thứ tự id
+     * Không đóng output (bên gọi quản lý stream / gzip)
+     * @return số ticket đã ghi
+     */
+    @Transactional(readOnly = true)
+    public long exportTickets(LocalDateTime from, LocalDateTime to, String format, OutputStream output) throws IOException {
+        int chunkSize = Math.max(1, Math.min(fetchSize, MAX_FETCH_SIZE));
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        RowWriter rowWriter = FORMAT_CSV.equals(format) ? csvRowWriter(writer) : ndjsonRowWriter(writer);
+
+        Session session = entityManager.unwrap(Session.class);
+        long exported = 0;
+        try (ScrollableResults<Ticket> results = session.createQuery("""
+                        SELECT t FROM Ticket t
+                        JOIN FETCH t.requester JOIN FETCH t.department JOIN FETCH t.currentStatus
+                        LEFT JOIN FETCH t.priority LEFT JOIN FETCH t.formTemplate
+                        WHERE t.createdAt >= :from AND t.createdAt < :to
+                        ORDER BY t.id
+                        """, Ticket.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setFetchSize(chunkSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+
+            List<Ticket> chunk = new ArrayList<>(chunkSize);
+            while (results.next()) {
+                chunk.add(results.get());
+                if (chunk.size() == chunkSize) {
+                    exported += writeChunk(chunk, rowWriter);
+                }
+            }
+            exported += writeChunk(chunk, rowWriter);
+        }
+        exported += exportArchivedTickets(from, to, chunkSize, rowWriter);
+        rowWriter.flush();
+        writer.flush();
+        log.info("Exported {} tickets created in [{}, {}) as {}", exported, from, to, format);
+        return exported;
+    }
+
+    private int writeChunk(List<Ticket> chunk, RowWriter rowWriter) throws IOException {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        List<Long> ticketIds = chunk.stream().map(Ticket::getId).toList();
+        Map<Long, List<Map<String, Object>>> approvalsByTicket = ticketApprovalRepository.findByTicketIdsWithDetails(ticketIds)
+                .stream()
+                .collect(Collectors.groupingBy(approval -> approval.getTicket().getId(), LinkedHashMap::new,
+                        Collectors.mapping(this::toApprovalRecord, Collectors.toList())));
+        for (Ticket ticket : chunk) {
+            Map<String, Object> record = toTicketRecord(ticket);
+            record.put("formData", ticket.getFormData());
+            record.put("approvals", approvalsByTicket.getOrDefault(ticket.getId(), List.of()));
+            rowWriter.write(record);
+        }
+        int written = chunk.size();
+        chunk.clear();
+        entityManager.clear();
+        return written;
+    }
+
+    /**
+     * Ghi các ticket đã lưu trữ tạo trong [from, to) (cursor JDBC với fetch size = chunkSize, cùng transaction read-only)
+     * @return số ticket đã ghi
+     */
+    private long exportArchivedTickets(LocalDateTime from, LocalDateTime to, int chunkSize, RowWriter rowWriter) throws IOException {
+        List<Map<String, Object>> chunk = new ArrayList<>(chunkSize);
+        long[] exported = {0};
+        RowCallbackHandler handler = rs -> {
+            chunk.add(toArchivedTicketRecord(rs));
+            if (chunk.size() == chunkSize) {
+                exported[0] += writeArchivedChunk(chunk, rowWriter);
+            }
+        };
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement("""
+                        SELECT t.id, t.ticket_code, t.form_template_id, ft.name, t.requester_id, r.employee_code, r.full_name,
+                               t.department_id, d.name, p.name, s.name, t.title, t.description,
+                               t.created_at, t.updated_at, t.due_date, t.sla_breached_at, CAST(t.form_data AS text)
+                        FROM tickets_archive t
+                        JOIN users r ON r.id = t.requester_id
+                        JOIN departments d ON d.id = t.department_id
+                        JOIN ticket_status s ON s.id = t.current_status_id
+                        LEFT JOIN priority_levels p ON p.id = t.priority_id
+                        LEFT JOIN form_templates ft ON ft.id = t.form_template_id
+                        WHERE t.created_at >= ? AND t.created_at < ?
+                        ORDER BY t.id
+                        """);
+                ps.setFetchSize(chunkSize);
+                ps.setTimestamp(1, Timestamp.valueOf(from));
+                ps.setTimestamp(2, Timestamp.valueOf(to));
+                return ps;
+            }, handler);
+            exported[0] += writeArchivedChunk(chunk, rowWriter);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return exported[0];
+    }
+
+    private int writeArchivedChunk(List<Map<String, Object>> chunk, RowWriter rowWriter) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        Long[] ticketIds = chunk.stream().map(record -> (Long) record.get("ticketId")).toArray(Long[]::new);
+        Map<Long, List<Map<String, Object>>> approvalsByTicket = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+                SELECT ta.ticket_id, ws.step_order, ws.step_name, d.name, u.employee_code, u.full_name,
+                       ta.action, st.name, ta.comments, fd.name, ta.created_at, ta.updated_at
+                FROM ticket_approvals_archive ta
+                LEFT JOIN approval_workflows ws ON ws.id = ta.workflow_step_id
+                LEFT JOIN departments d ON d.id = ws.department_id
+                LEFT JOIN users u ON u.id = ta.approver_id
+                LEFT JOIN ticket_status st ON st.id = ta.status_id
+                LEFT JOIN departments fd ON fd.id = ta.forwarded_to_department_id
+                WHERE ta.ticket_id = ANY(?)
+                ORDER BY ta.ticket_id, ws.step_order, ta.id
+                """,
+                ps -> {
+                    Array array = ps.getConnection().createArrayOf("bigint", ticketIds);
+                    ps.setArray(1, array);
+                },
+                (RowCallbackHandler) rs -> approvalsByTicket
+                        .computeIfAbsent(rs.getLong(1), ticketId -> new ArrayList<>())
+                        .add(toArchivedApprovalRecord(rs)));
+        try {
+            for (Map<String, Object> record : chunk) {
+                record.put("approvals", approvalsByTicket.getOrDefault((Long) record.get("ticketId"), List.of()));
+                rowWriter.write(record);
+            }
+        } catch (IOException e) {
+            // RowCallbackHandler không ném được IOException, exportArchivedTickets mở gói lại
+            throw new UncheckedIOException(e);
+        }
+        int written = chunk.size();
+        chunk.clear();
+        return written;
+    }
+
+    private Map<String, Object> toTicketRecord(Ticket ticket) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("ticketId", ticket.getId());
+        record.put("ticketCode", ticket.getTicketCode());
+        record.put("templateId", ticket.getFormTemplate() != null ? ticket.getFormTemplate().getId() : null);
+        record.put("templateName", ticket.getFormTemplate() != null ? ticket.getFormTemplate().getName() : null);
+        record.put("requesterId", ticket.getRequester().getId());
+        record.put("requesterCode", ticket.getRequester().getEmployeeCode());
+        record.put("requesterName", ticket.getRequester().getFullName());
+        record.put("departmentId", ticket.getDepartment().getId());
+        record.put("departmentName", ticket.getDepartment().getName());
+        record.put("priority", ticket.getPriority() != null ? ticket.getPriority().getName() : null);
+        record.put("status", ticket.getCurrentStatus().getName());
+        record.put("title", ticket.getTitle());
+        record.put("description", ticket.getDescription());
+        record.put("createdAt", ticket.getCreatedAt());
+        record.put("updatedAt", ticket.getUpdatedAt());
+        record.put("dueDate", ticket.getDueDate());
+        record.put("slaBreachedAt", ticket.getSlaBreachedAt());
+        return record;
+    }
+
+    /**
+     * Cùng cột với toTicketRecord, kèm formData (JSON đã parse)
+     */
+    private Map<String, Object> toArchivedTicketRecord(ResultSet rs) throws SQLException {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("ticketId", rs.getLong(1));
+        record.put("ticketCode", rs.getString(2));
+        record.put("templateId", rs.getObject(3, Long.class));
+        record.put("templateName", rs.getString(4));
+        record.put("requesterId", rs.getLong(5));
+        record.put("requesterCode", rs.getString(6));
+        record.put("requesterName", rs.getString(7));
+        record.put("departmentId", rs.getLong(8));
+        record.put("departmentName", rs.getString(9));
+        record.put("priority", rs.getString(10));
+        record.put("status", rs.getString(11));
+        record.put("title", rs.getString(12));
+        record.put("description", rs.getString(13));
+        record.put("createdAt", toLocalDateTime(rs.getTimestamp(14)));
+        record.put("updatedAt", toLocalDateTime(rs.getTimestamp(15)));
+        record.put("dueDate", toLocalDateTime(rs.getTimestamp(16)));
+        record.put("slaBreachedAt", toLocalDateTime(rs.getTimestamp(17)));
+        String formDataJson = rs.getString(18);
+        try {
+            record.put("formData", formDataJson != null ? objectMapper.readTree(formDataJson) : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return record;
+    }
+
+    private Map<String, Object> toArchivedApprovalRecord(ResultSet rs) throws SQLException {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("stepOrder", rs.getObject(2, Integer.class));
+        record.put("stepName", rs.getString(3));
+        record.put("department", rs.getString(4));
+        record.put("approverCode", rs.getString(5));
+        record.put("approverName", rs.getString(6));
+        record.put("action", rs.getString(7));
+        record.put("status", rs.getString(8));
+        record.put("comments", rs.getString(9));
+        record.put("forwardedToDepartment", rs.getString(10));
+        record.put("createdAt", toLocalDateTime(rs.getTimestamp(11)));
+        record.put("updatedAt", toLocalDateTime(rs.getTimestamp(12)));
+        return record;
+    }
+
+    private LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private Map<String, Object> toApprovalRecord(TicketApproval approval) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("stepOrder", approval.getWorkflowStep().getStepOrder());
+        record.put("stepName", approval.getWorkflowStep().getStepName());
+        record.put("department", approval.getWorkflowStep().getDepartment() != null
+                ? approval.getWorkflowStep().getDepartment().getName() : null);
+        record.put("approverCode", approval.getApprover() != null ? approval.getApprover().getEmployeeCode() : null);
+        record.put("approverName", approval.getApprover() != null ? approval.getApprover().getFullName() : null);
+        record.put("action", approval.getAction());
+        record.put("status", approval.getStatus() != null ? approval.getStatus().getName() : null);
+        record.put("comments", approval.getComments());
+        record.put("forwardedToDepartment", approval.getForwardedToDepartment() != null
+                ? approval.getForwardedToDepartment().getName() : null);
+        record.put("createdAt", approval.getCreatedAt());
+        record.put("updatedAt", approval.getUpdatedAt());
+        return record;
+    }
+
+    private RowWriter ndjsonRowWriter(Writer writer) {
+        // Không để Jackson đóng writer sau mỗi dòng
+        ObjectMapper lineMapper = objectMapper.copy().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return record -> {
+            lineMapper.writeValue(writer, record);
+            writer.write('\n');
+        };
+    }
+
+    private RowWriter csvRowWriter(Writer writer) throws IOException {
+        CsvSchema.Builder schemaBuilder = CsvSchema.builder().setUseHeader(true);
+        CSV_COLUMNS.forEach(schemaBuilder::addColumn);
+        SequenceWriter sequenceWriter = new CsvMapper()
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writer(schemaBuilder.build())
+                .writeValues(writer);
+        return new RowWriter() {
+            @Override
+            public void write(Map<String, Object> record) throws IOException {
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> column : record.entrySet()) {
+                    Object value = column.getValue();
+                    if (value == null) {
+                        row.put(column.getKey(), null);
+                    } else if (JSON_COLUMNS.contains(column.getKey())) {
+                        row.put(column.getKey(), objectMapper.writeValueAsString(value));
+                    } else {
+                        row.put(column.getKey(), value.toString());
+                    }
+                }
+                sequenceWriter.write(row);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                // CsvGenerator có buffer riêng
+                sequenceWriter.flush();
+            }
+        };
+    }
+
+    /**
+     * Ghi 1 ticket: các cột của CSV_COLUMNS, formData và approvals là object (CSV ghi thành chuỗi JSON)
+     */
+    private interface RowWriter {
+        void write(Map<String, Object> record) throws IOException;
+
+        default void flush() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.common.CompiledFormSchema;
+import com.example.thuc_tap.common.FormDataFields;
+import com.example.thuc_tap.dto.TicketDto;
+import com.example.thuc_tap.dto.request.TicketFormDataFilterRequest;
+import com.example.thuc_tap.entity.FormTemplate;
+import com.example.thuc_tap.exception.ResourceNotFoundException;
+import com.example.thuc_tap.repository.FormTemplateRepository;
+import com.example.thuc_tap.repository.TicketRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Lọc ticket của 1 form template theo giá trị formData (JSONB)
+ * - Mỗi điều kiện (field, operator, value) được kiểm tra theo FormSchema đã biên dịch của template
+ * - Field chữ: EQ / IN -> form_data @> '{"key": "value"}' (GIN jsonb_path_ops)
+ * - Field NUMBER / DATE / DATETIME có meta.filterable: so sánh trên cùng biểu thức với expression index
+ *   do TicketFormDataIndexService tạo (partial theo form_template_id nên id template được nhúng dạng hằng số)
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TicketFormDataFilterService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_CONDITIONS = 10;
+    private static final int MAX_IN_VALUES = 50;
+
+    public enum Operator {
+        EQ, IN, GT, GTE, LT, LTE, BETWEEN;
+
+        boolean isRange() {
+            return this != EQ && this != IN;
+        }
+    }
+
+    private final FormTemplateRepository formTemplateRepository;
+    private final FormSchemaRegistry formSchemaRegistry;
+    private final TicketRepository ticketRepository;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public Page<TicketDto> filterTickets(TicketFormDataFilterRequest request) {
+        FormTemplate template = formTemplateRepository.findById(request.getFormTemplateId())
+                .orElseThrow(() -> new ResourceNotFoundException("FormTemplate not found with id: " + request.getFormTemplateId()));
+        CompiledFormSchema schema = formSchemaRegistry.getCompiledSchema(template);
+
+        if (request.getConditions().size() > MAX_CONDITIONS) {
+            throw new IllegalArgumentException("Too many conditions (max " + MAX_CONDITIONS + ")");
+        }
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder where = new StringBuilder("t.form_template_id = ").append(template.getId());
+        if (request.getRequesterId() != null) {
+            where.append(" AND t.requester_id = :requesterId");
+            params.put("requesterId", request.getRequesterId());
+        }
+        for (TicketFormDataFilterRequest.Condition condition : request.getConditions()) {
+            where.append(" AND ").append(compile(schema, condition, params));
+        }
+
+        int page = Math.max(request.getPage() != null ? request.getPage() : 0, 0);
+        int size = Math.max(1, Math.min(request.getPageSize() != null ? request.getPageSize() : 10, MAX_PAGE_SIZE));
+        Pageable pageable = PageRequest.of(page, size);
+
+        Query countQuery = entityManager.createNativeQuery("SELECT COUNT(*) FROM tickets t WHERE " + where);
+        params.forEach(countQuery::setParameter);
+        long total = ((Number) countQuery.getSingleResult()).longValue();
+        if (total == 0 || pageable.getOffset() >= total) {
+            return new PageImpl<>(List.of(), pageable, total);
+        }
+
+        Query idQuery = entityManager.createNativeQuery(
+                "SELECT t.id FROM tickets t WHERE " + where + " ORDER BY t.created_at DESC, t.id DESC");
+        params.forEach(idQuery::setParameter);
+        idQuery.setFirstResult((int) pageable.getOffset());
+        idQuery.setMaxResults(size);
+        List<Long> ids = new ArrayList<>();
+        for (Object id : idQuery.getResultList()) {
+            ids.add(((Number) id).longValue());
+        }
+
+        // Dựng DTO bằng projection rồi giữ đúng thứ tự của trang
+        Map<Long, TicketDto> byId = new HashMap<>();
+        for (TicketDto dto : ticketRepository.findListItemsByIdIn(ids)) {
+            byId.put(dto.getId(), dto);
+        }
+        List<TicketDto> content = ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Biên dịch 1 điều kiện thành predicate SQL; giá trị luôn đi qua tham số bind
+     */
+    private String compile(CompiledFormSchema schema, TicketFormDataFilterRequest.Condition condition,
+                           Map<String, Object> params) {
+        String key = condition.getField();
+        CompiledFormSchema.FieldDescriptor field = schema.getField(key);
+        if (field == null || field.parentKey() != null) {
+            throw new IllegalArgumentException("Unknown form field: " + key);
+        }
+        FormDataFields.Kind kind = FormDataFields.kindOf(field.type());
+        if (kind == null || !FormDataFields.isSafeKey(key)) {
+            throw new IllegalArgumentException("Form field '" + key + "' (" + field.type() + ") cannot be filtered");
+        }
+        Operator operator = parseOperator(condition.getOperator());
+        if (operator.isRange() && !kind.supportsRange()) {
+            throw new IllegalArgumentException("Operator " + operator + " is not supported for field '" + key + "'");
+        }
+        if (kind.supportsRange() && !FormDataFields.isFilterable(field)) {
+            // Chỉ cho so sánh trên field có expression index, tránh quét toàn bộ ticket của template
+            throw new IllegalArgumentException("Form field '" + key + "' is not marked as filterable");
+        }
+
+        List<Object> values = operands(operator, condition, key);
+        if (kind == FormDataFields.Kind.TEXT) {
+            List<String> predicates = new ArrayList<>();
+            for (Object value : values) {
+                String param = nextParam(params);
+                params.put(param, containmentJson(key, value));
+                predicates.add("t.form_data @> CAST(:" + param + " AS jsonb)");
+            }
+            return predicates.size() == 1 ? predicates.get(0) : "(" + String.join(" OR ", predicates) + ")";
+        }
+
+        String expression = FormDataFields.valueExpression(kind, "t.form_data", key);
+        List<String> bound = new ArrayList<>();
+        for (Object value : values) {
+            String param = nextParam(params);
+            params.put(param, normalize(kind, key, value));
+            bound.add(":" + param);
+        }
+        return switch (operator) {
+            case EQ -> expression + " = " + bound.get(0);
+            case IN -> expression + " IN (" + String.join(", ", bound) + ")";
+            case GT -> expression + " > " + bound.get(0);
+            case GTE -> expression + " >= " + bound.get(0);
+            case LT -> expression + " < " + bound.get(0);
+            case LTE -> expression + " <= " + bound.get(0);
+            case BETWEEN -> expression + " BETWEEN " + bound.get(0) + " AND " + bound.get(1);
+        };
+    }
+
+    private Operator parseOperator(String operator) {
+        try {
+            return Operator.valueOf(operator.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported operator: " + operator);
+        }
+    }
+
+    private List<Object> operands(Operator operator, TicketFormDataFilterRequest.Condition condition, String key) {
+        List<Object> values = condition.getValues();
+        switch (operator) {
+            case IN -> {
+                if (values == null || values.isEmpty() || values.size() > MAX_IN_VALUES) {
+                    throw new IllegalArgumentException("IN on '" + key + "' requires 1.." + MAX_IN_VALUES + " values");
+                }
+            }
+            case BETWEEN -> {
+                if (values == null || values.size() != 2) {
+                    throw new IllegalArgumentException("BETWEEN on '" + key + "' requires exactly 2 values");
+                }
+            }
+            default -> {
+                values = new ArrayList<>();
+                values.add(condition.getValue());
+            }
+        }
+        for (Object value : values) {
+            if (value == null || value instanceof Map || value instanceof List) {
+                throw new IllegalArgumentException("Invalid value for form field '" + key + "'");
+            }
+        }
+        return values;
+    }
+
+    /**
+     * {"key": "value"} - giá trị chữ được so khớp ở dạng chuỗi như khi nhân viên nhập form
+     */
+    private String containmentJson(String key, Object value) {
+        Object jsonValue = value instanceof Boolean ? value : value.toString();
+        try {
+            return objectMapper.writeValueAsString(Map.of(key, jsonValue));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid value for form field '" + key + "'");
+        }
+    }
+
+    /**
+     * Chuẩn hóa giá trị so sánh theo loại field (số -> BigDecimal, ngày -> chuỗi ISO)
+     */
+    private Object normalize(FormDataFields.Kind kind, String key, Object value) {
+        String text = value.toString().trim();
+        try {
+            return switch (kind) {
+                case NUMBER -> new BigDecimal(text);
+                case DATE -> LocalDate.parse(text).toString();
+                case DATETIME -> LocalDateTime.parse(text).toString();
+                case TEXT -> text;
+            };
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + kind.name().toLowerCase(Locale.ROOT)
+                    + " value for form field '" + key + "': " + text);
+        }
+    }
+
+    private String nextParam(Map<String, Object> params) {
+        return "p" + params.size();
+    }
+}
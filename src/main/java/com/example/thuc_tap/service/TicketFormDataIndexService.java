@@ -0,0 +1,148 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.common.CompiledFormSchema;
+import com.example.thuc_tap.common.FormDataFields;
+import com.example.thuc_tap.entity.FormTemplate;
+import com.example.thuc_tap.repository.FormTemplateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Tạo / xóa expression index trên tickets.form_data cho các field có meta.filterable = true
+ * - Mỗi field NUMBER / DATE / DATETIME được đánh dấu có 1 partial index riêng (WHERE form_template_id = id)
+ * - Field dạng chữ không cần index riêng: đã có GIN jsonb_path_ops cho toán tử @>
+ * - Chạy trên formDataIndexExecutor bằng CREATE INDEX CONCURRENTLY (không khóa ghi bảng tickets)
+ */
+@Slf4j
+@Service
+public class TicketFormDataIndexService {
+
+    private final FormTemplateRepository formTemplateRepository;
+    private final FormSchemaRegistry formSchemaRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor formDataIndexExecutor;
+
+    public TicketFormDataIndexService(FormTemplateRepository formTemplateRepository,
+                                      FormSchemaRegistry formSchemaRegistry,
+                                      JdbcTemplate jdbcTemplate,
+                                      @Qualifier("formDataIndexExecutor") Executor formDataIndexExecutor) {
+        this.formTemplateRepository = formTemplateRepository;
+        this.formSchemaRegistry = formSchemaRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.formDataIndexExecutor = formDataIndexExecutor;
+    }
+
+    /**
+     * Đồng bộ index cho mọi template lúc khởi động (bù cho template sửa trực tiếp trong DB hoặc lần tạo index bị lỗi)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void syncAllOnStartup() {
+        formDataIndexExecutor.execute(() -> {
+            for (FormTemplate template : formTemplateRepository.findAll()) {
+                syncIndexes(template.getId(), template);
+            }
+        });
+    }
+
+    /**
+     * Đồng bộ index của template sau khi transaction hiện tại commit (template tạo / sửa / xóa)
+     */
+    public void syncIndexesAfterCommit(Long templateId) {
+        if (templateId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submitSync(templateId);
+                }
+            });
+        } else {
+            submitSync(templateId);
+        }
+    }
+
+    private void submitSync(Long templateId) {
+        formDataIndexExecutor.execute(() ->
+                syncIndexes(templateId, formTemplateRepository.findById(templateId).orElse(null)));
+    }
+
+    /**
+     * Tạo index còn thiếu (hoặc đang INVALID do lần tạo trước lỗi) và xóa index của field không còn filterable
+     * @param template null nếu template đã bị xóa -> xóa hết index của nó
+     */
+    private void syncIndexes(Long templateId, FormTemplate template) {
+        Map<String, String> desired = template != null
+                ? desiredIndexes(templateId, formSchemaRegistry.getCompiledSchema(template))
+                : Map.of();
+
+        String prefix = FormDataFields.INDEX_PREFIX + templateId + "_";
+        Map<String, Boolean> existing = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT c.relname, i.indisvalid
+                FROM pg_class c JOIN pg_index i ON i.indexrelid = c.oid
+                WHERE c.relname LIKE ?
+                """,
+                rs -> {
+                    String name = rs.getString(1);
+                    if (name.startsWith(prefix)) {
+                        existing.put(name, rs.getBoolean(2));
+                    }
+                },
+                prefix + "%");
+
+        for (Map.Entry<String, Boolean> index : existing.entrySet()) {
+            if (!desired.containsKey(index.getKey()) || !index.getValue()) {
+                execute("DROP INDEX CONCURRENTLY IF EXISTS " + index.getKey());
+            }
+        }
+        for (Map.Entry<String, String> index : desired.entrySet()) {
+            if (!Boolean.TRUE.equals(existing.get(index.getKey()))) {
+                log.info("Creating form data index {}", index.getKey());
+                execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index.getKey()
+                        + " ON tickets (" + index.getValue() + ") WHERE form_template_id = " + templateId);
+            }
+        }
+    }
+
+    /**
+     * Tên index -> biểu thức, cho các field cấp 1 filterable có so sánh khoảng
+     */
+    private Map<String, String> desiredIndexes(Long templateId, CompiledFormSchema schema) {
+        Map<String, String> desired = new LinkedHashMap<>();
+        for (CompiledFormSchema.FieldDescriptor field : schema.getTopLevelFields()) {
+            FormDataFields.Kind kind = FormDataFields.kindOf(field.type());
+            if (kind == null || !kind.supportsRange() || !FormDataFields.isFilterable(field)) {
+                continue;
+            }
+            if (!FormDataFields.isSafeKey(field.key())) {
+                log.warn("Form template {}: field key '{}' cannot be indexed", templateId, field.key());
+                continue;
+            }
+            desired.put(FormDataFields.indexName(templateId, field.key()),
+                    FormDataFields.valueExpression(kind, "form_data", field.key()));
+        }
+        return desired;
+    }
+
+    private void execute(String ddl) {
+        try {
+            jdbcTemplate.execute(ddl);
+        } catch (DataAccessException e) {
+            log.warn("Form data index DDL failed: {} - {}", ddl, e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.thuc_tap.service;
 
+import com.example.thuc_tap.dto.response.TicketHistoryDto;
 import com.example.thuc_tap.entity.*;
 import com.example.thuc_tap.repository.TicketHistoryRepository;
 import lombok.RequiredArgsConstructor;
@@ -82,4 +83,12 @@ public class TicketHistoryService {
     public List<TicketHistory> getTicketHistory(Long ticketId) {
         return ticketHistoryRepository.findByTicketIdOrderByCreatedAtDesc(ticketId);
     }
+
+    /**
+     * Lấy lịch sử của ticket dạng DTO (mới nhất trước)
+     */
+    @Transactional(readOnly = true)
+    public List<TicketHistoryDto> getTicketHistoryDtos(Long ticketId) {
+        return ticketHistoryRepository.findDtosByTicketId(ticketId);
+    }
 }
@@ -0,0 +1,572 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.dto.response.TicketImportResultDto;
+import com.example.thuc_tap.entity.*;
+import com.example.thuc_tap.repository.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.MutationQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service import ticket hàng loạt (dữ liệu lịch sử) từ file NDJSON hoặc CSV
+ * - Đọc file dạng stream bằng Jackson, không nạp cả file vào bộ nhớ
+ * - Template, người yêu cầu, priority, status được tra từ bảng nạp sẵn 1 lần
+ * - Ghi theo lô qua StatelessSession (không persistence context, JDBC batch)
+ * - Lô lỗi được rollback và ghi lại từng dòng để chỉ dòng lỗi bị bỏ qua
+ *
+ * Cột hỗ trợ: templateId, requesterCode | requesterId, departmentId, title, description, priority, status,
+ * ticketCode, createdAt, dueDate, closedAt, formData (NDJSON) hoặc các cột "form.&lt;key&gt;" (CSV)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TicketImportService {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final String CSV_FORM_PREFIX = "form.";
+    private static final Set<String> TERMINAL_STATUSES = Set.of("COMPLETED", "REJECTED", "CANCELLED");
+    private static final TypeReference<LinkedHashMap<String, Object>> ROW_TYPE = new TypeReference<>() {};
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final FormTemplateRepository formTemplateRepository;
+    private final UserRepository userRepository;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final FormSchemaRegistry formSchemaRegistry;
+    private final TicketCodeAllocator ticketCodeAllocator;
+    private final TicketStatsRollupService ticketStatsRollupService;
+    private final ProcessingTimeStatsService processingTimeStatsService;
+    private final EmployeeTicketStatsService employeeTicketStatsService;
+    private final SlaDeadlineService slaDeadlineService;
+
+    @Value("${ticket.import.batch-size:500}")
+    private int defaultBatchSize;
+
+    /**
+     * Import ticket từ stream
+     * @param format "ndjson" hoặc "csv"
+     * @param batchSize số dòng mỗi lô ghi DB (null = mặc định cấu hình)
+     */
+    public TicketImportResultDto importTickets(InputStream inputStream, String format, Integer batchSize) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        int effectiveBatchSize = Math.min(batchSize != null && batchSize > 0 ? batchSize : defaultBatchSize, MAX_BATCH_SIZE);
+        ImportLookups lookups = loadLookups();
+        TicketImportResultDto result = new TicketImportResultDto();
+
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        try (Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+             StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.setJdbcBatchSize(effectiveBatchSize);
+
+            RowReader rowReader = FORMAT_CSV.equals(format) ? csvRowReader(reader) : ndjsonRowReader((BufferedReader) reader);
+            List<PreparedRow> batch = new ArrayList<>(effectiveBatchSize);
+            RawRow raw;
+            while ((raw = rowReader.next()) != null) {
+                result.setTotalRows(result.getTotalRows() + 1);
+                if (raw.parseError() != null) {
+                    addError(result, raw.rowNumber(), raw.parseError());
+                    continue;
+                }
+                try {
+                    batch.add(prepareRow(raw.rowNumber(), raw.data(), lookups));
+                } catch (IllegalArgumentException e) {
+                    addError(result, raw.rowNumber(), e.getMessage());
+                }
+                if (batch.size() >= effectiveBatchSize) {
+                    persistBatch(session, batch, lookups, result);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                persistBatch(session, batch, lookups, result);
+            }
+        }
+
+        if (result.getImportedRows() > 0) {
+            // Dữ liệu ghi thẳng xuống DB nên dựng lại các số liệu tổng hợp
+            ticketStatsRollupService.rebuildFromHistory();
+            processingTimeStatsService.evictAll();
+            employeeTicketStatsService.evictAll();
+            slaDeadlineService.reloadAll();
+        }
+
+        result.setDurationMs(System.currentTimeMillis() - startedAt);
+        log.info("Ticket import finished: {} rows, {} imported, {} failed in {} ms",
+                result.getTotalRows(), result.getImportedRows(), result.getFailedRows(), result.getDurationMs());
+        return result;
+    }
+
+    // ========== PARSING ==========
+
+    private RowReader ndjsonRowReader(BufferedReader reader) {
+        long[] rowNumber = {0};
+        return () -> {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                rowNumber[0]++;
+                try {
+                    return new RawRow(rowNumber[0], objectMapper.readValue(line, ROW_TYPE), null);
+                } catch (JsonProcessingException e) {
+                    return new RawRow(rowNumber[0], null, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        };
+    }
+
+    private RowReader csvRowReader(Reader reader) throws IOException {
+        CsvMapper csvMapper = new CsvMapper();
+        CsvSchema schema = CsvSchema.emptySchema().withHeader();
+        MappingIterator<Map<String, String>> iterator = csvMapper.readerForMapOf(String.class).with(schema).readValues(reader);
+        long[] rowNumber = {0};
+        return () -> {
+            if (!iterator.hasNextValue()) {
+                return null;
+            }
+            rowNumber[0]++;
+            try {
+                Map<String, Object> row = new LinkedHashMap<>();
+                Map<String, Object> formData = new LinkedHashMap<>();
+                for (Map.Entry<String, String> column : iterator.nextValue().entrySet()) {
+                    String value = column.getValue() != null && !column.getValue().isEmpty() ? column.getValue() : null;
+                    if (column.getKey().startsWith(CSV_FORM_PREFIX)) {
+                        if (value != null) {
+                            formData.put(column.getKey().substring(CSV_FORM_PREFIX.length()), value);
+                        }
+                    } else {
+                        row.put(column.getKey(), value);
+                    }
+                }
+                row.put("formData", formData);
+                return new RawRow(rowNumber[0], row, null);
+            } catch (RuntimeException e) {
+                return new RawRow(rowNumber[0], null, "Invalid CSV row: " + e.getMessage());
+            }
+        };
+    }
+
+    // ========== VALIDATION ==========
+
+    private ImportLookups loadLookups() {
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        return readOnlyTransaction.execute(status -> {
+            Map<Long, TemplateInfo> templates = new HashMap<>();
+            for (FormTemplate template : formTemplateRepository.findAllWithApprovalWorkflows()) {
+                List<long[]> steps = new ArrayList<>();
+                if (template.getApprovalWorkflows() != null) {
+                    template.getApprovalWorkflows().stream()
+                            .sorted(Comparator.comparing(ApprovalWorkflow::getStepOrder))
+                            .forEach(workflow -> steps.add(new long[] { workflow.getId(), workflow.getStepOrder() }));
+                }
+                templates.put(template.getId(), new TemplateInfo(template, steps));
+            }
+
+            Map<String, long[]> usersByCode = new HashMap<>();
+            Map<Long, long[]> usersById = new HashMap<>();
+            for (Object[] row : userRepository.findUserLookupRaw()) {
+                long[] user = { (Long) row[0], row[2] != null ? (Long) row[2] : 0L };
+                usersByCode.put((String) row[1], user);
+                usersById.put((Long) row[0], user);
+            }
+
+            Map<String, Long> priorities = new HashMap<>();
+            referenceDataRegistry.getPriorities().forEach(priority -> priorities.put(priority.getName().toUpperCase(), priority.getId()));
+            Map<String, Long> statuses = new HashMap<>();
+            referenceDataRegistry.getStatuses().forEach(ticketStatus -> statuses.put(ticketStatus.getName().toUpperCase(), ticketStatus.getId()));
+
+            return new ImportLookups(templates, usersByCode, usersById, priorities, statuses);
+        });
+    }
+
+    /**
+     * Kiểm tra và chuẩn hóa 1 dòng; dòng không hợp lệ ném IllegalArgumentException với thông điệp lỗi
+     */
+    @SuppressWarnings("unchecked")
+    private PreparedRow prepareRow(long rowNumber, Map<String, Object> data, ImportLookups lookups) {
+        Long templateId = toLong(data.get("templateId"), "templateId");
+        if (templateId == null) {
+            throw new IllegalArgumentException("templateId is required");
+        }
+        TemplateInfo template = lookups.templates().get(templateId);
+        if (template == null) {
+            throw new IllegalArgumentException("Form template not found: " + templateId);
+        }
+
+        long[] requester;
+        Long requesterId = toLong(data.get("requesterId"), "requesterId");
+        String requesterCode = toText(data.get("requesterCode"));
+        if (requesterId != null) {
+            requester = lookups.usersById().get(requesterId);
+        } else if (requesterCode != null) {
+            requester = lookups.usersByCode().get(requesterCode);
+        } else {
+            throw new IllegalArgumentException("requesterCode or requesterId is required");
+        }
+        if (requester == null) {
+            throw new IllegalArgumentException("Requester not found: " + (requesterId != null ? requesterId : requesterCode));
+        }
+
+        Long departmentId = toLong(data.get("departmentId"), "departmentId");
+        if (departmentId == null) {
+            departmentId = requester[1] != 0L ? requester[1] : null;
+        }
+        if (departmentId == null) {
+            throw new IllegalArgumentException("departmentId is required for requesters without department");
+        }
+
+        String priorityName = toText(data.get("priority"));
+        Long priorityId = lookups.priorities().get(priorityName != null ? priorityName.toUpperCase() : "MEDIUM");
+        if (priorityId == null) {
+            throw new IllegalArgumentException("Priority not found: " + priorityName);
+        }
+
+        String statusName = toText(data.get("status"));
+        statusName = statusName != null ? statusName.toUpperCase() : "PENDING";
+        Long statusId = lookups.statuses().get(statusName);
+        Long pendingStatusId = lookups.statuses().get("PENDING");
+        if (statusId == null || pendingStatusId == null) {
+            throw new IllegalArgumentException("Ticket status not found: " + statusName);
+        }
+
+        Object rawFormData = data.get("formData");
+        if (rawFormData != null && !(rawFormData instanceof Map)) {
+            throw new IllegalArgumentException("formData must be an object");
+        }
+        Map<String, Object> formData = rawFormData != null ? (Map<String, Object>) rawFormData : Map.of();
+        List<String> missingFields = formSchemaRegistry.findMissingRequiredFields(template.template(), formData);
+        if (!missingFields.isEmpty()) {
+            throw new IllegalArgumentException("Missing required form fields: " + String.join(", ", missingFields));
+        }
+
+        LocalDateTime createdAt = toDateTime(data.get("createdAt"), "createdAt");
+        LocalDateTime closedAt = toDateTime(data.get("closedAt"), "closedAt");
+        LocalDateTime dueDate = toDateTime(data.get("dueDate"), "dueDate");
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (dueDate == null && template.template().getDueInDays() != null && template.template().getDueInDays() > 0) {
+            dueDate = createdAt.plusDays(template.template().getDueInDays());
+        }
+
+        String title = toText(data.get("title"));
+        String description = toText(data.get("description"));
+        return new PreparedRow(
+                rowNumber,
+                toText(data.get("ticketCode")),
+                title != null ? title : template.template().getName(),
+                description != null ? description : template.template().getDescription(),
+                template,
+                requester[0],
+                departmentId,
+                priorityId,
+                statusName,
+                statusId,
+                pendingStatusId,
+                formData.isEmpty() ? null : new LinkedHashMap<>(formData),
+                createdAt,
+                closedAt != null ? closedAt : createdAt,
+                dueDate);
+    }
+
+    // ========== PERSISTENCE ==========
+
+    /**
+     * Ghi 1 lô trong 1 transaction; nếu lô lỗi thì rollback và ghi lại từng dòng để tìm dòng lỗi
+     */
+    private void persistBatch(StatelessSession session, List<PreparedRow> batch, ImportLookups lookups, TicketImportResultDto result) {
+        Transaction transaction = session.beginTransaction();
+        try {
+            insertRows(session, batch);
+            transaction.commit();
+            result.setImportedRows(result.getImportedRows() + batch.size());
+            return;
+        } catch (RuntimeException e) {
+            rollbackQuietly(transaction);
+            log.debug("Import batch failed, retrying row by row: {}", e.getMessage());
+        }
+
+        for (PreparedRow row : batch) {
+            Transaction rowTransaction = session.beginTransaction();
+            try {
+                insertRows(session, List.of(row));
+                rowTransaction.commit();
+                result.setImportedRows(result.getImportedRows() + 1);
+            } catch (RuntimeException e) {
+                rollbackQuietly(rowTransaction);
+                addError(result, row.rowNumber(), rootMessage(e));
+            }
+        }
+    }
+
+    private void insertRows(StatelessSession session, List<PreparedRow> rows) {
+        List<Object[]> ticketTimestamps = new ArrayList<>(rows.size());
+        List<Object[]> historyTimestamps = new ArrayList<>(rows.size() * 2);
+
+        for (PreparedRow row : rows) {
+            Ticket ticket = new Ticket();
+            ticket.setTicketCode(row.ticketCode() != null ? row.ticketCode() : ticketCodeAllocator.nextTicketCode());
+            ticket.setTitle(row.title());
+            ticket.setDescription(row.description());
+            ticket.setRequester(reference(new User(), row.requesterId()));
+            ticket.setDepartment(reference(new Department(), row.departmentId()));
+            ticket.setCurrentStatus(reference(new TicketStatus(), row.statusId()));
+            ticket.setPriority(reference(new PriorityLevel(), row.priorityId()));
+            ticket.setFormTemplate(reference(new FormTemplate(), row.template().template().getId()));
+            ticket.setDueDate(row.dueDate());
+            ticket.setFormData(row.formData());
+            session.insert(ticket);
+            ticketTimestamps.add(new Object[] { ticket.getId(), row.createdAt(), row.updatedAt() });
+
+            TicketHistory created = new TicketHistory();
+            created.setTicket(ticket);
+            created.setActionByUser(ticket.getRequester());
+            created.setActionType(TicketHistory.TicketHistoryAction.CREATED);
+            created.setActionDescription("Ticket được tạo (import)");
+            created.setToStatus("PENDING");
+            session.insert(created);
+            historyTimestamps.add(new Object[] { created.getId(), row.createdAt(), null });
+
+            if (!"PENDING".equals(row.statusName())) {
+                TicketHistory statusChanged = new TicketHistory();
+                statusChanged.setTicket(ticket);
+                statusChanged.setActionType(TicketHistory.TicketHistoryAction.STATUS_CHANGED);
+                statusChanged.setActionDescription("Trạng thái được import");
+                statusChanged.setFromStatus("PENDING");
+                statusChanged.setToStatus(row.statusName());
+                session.insert(statusChanged);
+                historyTimestamps.add(new Object[] { statusChanged.getId(), row.updatedAt(), null });
+            }
+
+            // Ticket chưa kết thúc cần có các bước duyệt đang chờ như ticket tạo qua API
+            if (!TERMINAL_STATUSES.contains(row.statusName())) {
+                for (long[] step : row.template().steps()) {
+                    ApprovalWorkflow workflow = reference(new ApprovalWorkflow(), step[0]);
+
+                    ApprovalTask task = new ApprovalTask();
+                    task.setTicket(ticket);
+                    task.setStepIndex((int) step[1]);
+                    task.setWorkflowStep(workflow);
+                    task.setStatus(ApprovalTaskStatus.PENDING);
+                    task.setAssignedAt(row.createdAt());
+                    task.setTimeoutAt(slaDeadlineService.approvalTimeoutFor(row.createdAt(), (int) step[1]));
+                    session.insert(task);
+
+                    TicketApproval approval = new TicketApproval();
+                    approval.setTicket(ticket);
+                    approval.setWorkflowStep(workflow);
+                    approval.setAction(ApprovalAction.PENDING);
+                    approval.setStatus(reference(new TicketStatus(), row.pendingStatusId()));
+                    session.insert(approval);
+                }
+            }
+        }
+
+        // @CreationTimestamp/@UpdateTimestamp luôn ghi thời điểm hiện tại, ghi đè lại bằng thời điểm lịch sử
+        overrideTimestamps(session, "tickets", true, ticketTimestamps);
+        overrideTimestamps(session, "ticket_history", false, historyTimestamps);
+    }
+
+    /**
+     * Cập nhật created_at (và updated_at) của các dòng vừa insert bằng 1 câu UPDATE ... FROM (VALUES ...)
+     * Mỗi phần tử: [id, createdAt, updatedAt]
+     */
+    private void overrideTimestamps(StatelessSession session, String table, boolean withUpdatedAt, List<Object[]> timestamps) {
+        if (timestamps.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" x SET created_at = v.created_at");
+        if (withUpdatedAt) {
+            sql.append(", updated_at = v.updated_at");
+        }
+        sql.append(" FROM (VALUES ");
+        for (int i = 0; i < timestamps.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(:id").append(i).append(" AS bigint), CAST(:c").append(i).append(" AS timestamp)");
+            if (withUpdatedAt) {
+                sql.append(", CAST(:u").append(i).append(" AS timestamp)");
+            }
+            sql.append(")");
+        }
+        sql.append(withUpdatedAt ? ") AS v(id, created_at, updated_at)" : ") AS v(id, created_at)");
+        sql.append(" WHERE x.id = v.id");
+
+        MutationQuery query = session.createNativeMutationQuery(sql.toString());
+        for (int i = 0; i < timestamps.size(); i++) {
+            Object[] row = timestamps.get(i);
+            query.setParameter("id" + i, row[0]);
+            query.setParameter("c" + i, row[1]);
+            if (withUpdatedAt) {
+                query.setParameter("u" + i, row[2]);
+            }
+        }
+        query.executeUpdate();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Tạo đối tượng tham chiếu chỉ có id (StatelessSession chỉ cần id để ghi khóa ngoại)
+     */
+    private <T> T reference(T entity, Long id) {
+        if (entity instanceof User user) {
+            user.setId(id);
+        } else if (entity instanceof Department department) {
+            department.setId(id);
+        } else if (entity instanceof TicketStatus ticketStatus) {
+            ticketStatus.setId(id);
+        } else if (entity instanceof PriorityLevel priorityLevel) {
+            priorityLevel.setId(id);
+        } else if (entity instanceof FormTemplate formTemplate) {
+            formTemplate.setId(id);
+        } else if (entity instanceof ApprovalWorkflow workflow) {
+            workflow.setId(id);
+        }
+        return entity;
+    }
+
+    private void addError(TicketImportResultDto result, long rowNumber, String message) {
+        result.setFailedRows(result.getFailedRows() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new TicketImportResultDto.RowError(rowNumber, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private void rollbackQuietly(Transaction transaction) {
+        try {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Rollback of import batch failed", e);
+        }
+    }
+
+    private String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    private String toText(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private Long toLong(Object value, String column) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        String text = toText(value);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + column + ": " + text);
+        }
+    }
+
+    /**
+     * Nhận "yyyy-MM-ddTHH:mm:ss" hoặc "yyyy-MM-dd" (đầu ngày)
+     */
+    private LocalDateTime toDateTime(Object value, String column) {
+        String text = toText(value);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return text.length() <= 10 ? LocalDate.parse(text).atStartOfDay() : LocalDateTime.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date for " + column + ": " + text);
+        }
+    }
+
+    // ========== INNER TYPES ==========
+
+    @FunctionalInterface
+    private interface RowReader {
+        RawRow next() throws IOException;
+    }
+
+    private record RawRow(long rowNumber, Map<String, Object> data, String parseError) {
+    }
+
+    // steps: [workflowId, stepOrder] theo thứ tự step
+    private record TemplateInfo(FormTemplate template, List<long[]> steps) {
+    }
+
+    // usersByCode/usersById: [userId, departmentId (0 nếu không có)]
+    private record ImportLookups(Map<Long, TemplateInfo> templates,
+                                 Map<String, long[]> usersByCode,
+                                 Map<Long, long[]> usersById,
+                                 Map<String, Long> priorities,
+                                 Map<String, Long> statuses) {
+    }
+
+    private record PreparedRow(long rowNumber,
+                               String ticketCode,
+                               String title,
+                               String description,
+                               TemplateInfo template,
+                               Long requesterId,
+                               Long departmentId,
+                               Long priorityId,
+                               String statusName,
+                               Long statusId,
+                               Long pendingStatusId,
+                               Map<String, Object> formData,
+                               LocalDateTime createdAt,
+                               LocalDateTime updatedAt,
+                               LocalDateTime dueDate) {
+    }
+}
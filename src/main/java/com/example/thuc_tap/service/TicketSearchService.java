@@ -0,0 +1,68 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.repository.TicketRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Service tìm kiếm ticket toàn văn - mọi chức năng tìm ticket theo từ khóa đều đi qua đây
+ * - Dùng cột tickets.search_vector (mã ticket, tiêu đề, mô tả, tên người yêu cầu) với GIN index
+ * - Bỏ dấu tiếng Việt ở cả dữ liệu và từ khóa (f_unaccent), mỗi từ khớp theo tiền tố
+ * - Kết quả là danh sách id đã xếp theo độ liên quan (ts_rank_cd)
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TicketSearchService {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MAX_TOKENS = 8;
+
+    private final TicketRepository ticketRepository;
+
+    /**
+     * Tìm ticket trên toàn hệ thống, hoặc chỉ của 1 người yêu cầu nếu requesterId != null
+     */
+    public List<Long> searchTicketIds(String keyword, Long requesterId, int limit) {
+        String query = toTsQuery(keyword);
+        if (query == null) {
+            return List.of();
+        }
+        return ticketRepository.searchIdsRanked(query, requesterId, clampLimit(limit));
+    }
+
+    /**
+     * Chuyển từ khóa người dùng thành tsquery an toàn: tách theo ký tự không phải chữ/số,
+     * mỗi từ thành "tu:*" (khớp tiền tố) và nối bằng AND
+     * Hàng chờ / đã xử lý của approver truyền thẳng kết quả này vào truy vấn (ticket_matches_search)
+     * @return null nếu từ khóa không có từ nào dùng được
+     */
+    public String toTsQuery(String keyword) {
+        if (keyword == null || keyword.isBlank()) {
+            return null;
+        }
+        List<String> terms = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(keyword.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty() && terms.size() < MAX_TOKENS) {
+                terms.add(token + ":*");
+            }
+        }
+        return terms.isEmpty() ? null : String.join(" & ", terms);
+    }
+
+    private int clampLimit(int limit) {
+        if (limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
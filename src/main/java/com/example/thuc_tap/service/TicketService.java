@@ -1,11 +1,18 @@
 package com.example.thuc_tap.service;
 
+import com.example.thuc_tap.common.KeysetCursor;
+import com.example.thuc_tap.common.TicketVersion;
+import com.example.thuc_tap.dto.TicketApprovalDto;
 import com.example.thuc_tap.dto.TicketDto;
-import com.example.thuc_tap.dto.TicketFormDataDto;
 import com.example.thuc_tap.dto.request.CreateTicketFromTemplateRequest;
+import com.example.thuc_tap.dto.response.CursorPage;
 import com.example.thuc_tap.entity.*;
+import com.example.thuc_tap.event.TicketChangedEvent;
 import com.example.thuc_tap.repository.*;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -13,13 +20,16 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Service xử lý nghiệp vụ ticket cho nhân viên
  */
+@Slf4j
 @Service
 @Transactional
 public class TicketService {
@@ -37,10 +47,7 @@ public class TicketService {
     private FormTemplateRepository formTemplateRepository;
 
     @Autowired
-    private TicketStatusRepository ticketStatusRepository;
-
-    @Autowired
-    private PriorityLevelRepository priorityLevelRepository;
+    private ReferenceDataRegistry referenceDataRegistry;
     
     // Removed unused TicketFormDataService since form data is stored as JSON in ticket
     
@@ -53,36 +60,96 @@ public class TicketService {
     @Autowired
     private TicketHistoryService ticketHistoryService;
 
+    @Autowired
+    private TicketHistoryRepository ticketHistoryRepository;
+
+    @Autowired
+    private TicketStatsRollupService ticketStatsRollupService;
+
+    @Autowired
+    private TicketSearchService ticketSearchService;
+
+    @Autowired
+    private EmployeeTicketStatsService employeeTicketStatsService;
+
+    @Autowired
+    private SlaDeadlineService slaDeadlineService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TicketCodeAllocator ticketCodeAllocator;
+
+    @Autowired
+    private FormSchemaRegistry formSchemaRegistry;
+
+    @Autowired
+    private TicketArchiveService ticketArchiveService;
+
     /**
      * Lấy danh sách ticket của nhân viên với phân trang
+     * Dùng projection (không kèm formData / approvals), chi tiết xem getTicketById
      */
     public Page<TicketDto> getEmployeeTickets(Long employeeId, Pageable pageable) {
-        Page<Ticket> tickets = ticketRepository.findByRequesterIdWithPagination(employeeId, pageable);
-        return tickets.map(this::convertToDto);
+        return ticketRepository.findByRequesterIdWithPagination(employeeId, pageable);
+    }
+
+    /**
+     * Lấy danh sách ticket của nhân viên theo cursor (mới nhất trước) - chi phí mỗi trang không phụ thuộc độ sâu
+     * @param cursor cursor từ trang trước, null cho trang đầu
+     */
+    public CursorPage<TicketDto> getEmployeeTicketsByCursor(Long employeeId, String cursor, int size) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        List<TicketDto> tickets = ticketRepository.findByRequesterIdBeforeCursor(
+                employeeId, position.createdAt(), position.id(), Limit.of(size + 1));
+        return CursorPage.of(tickets, size, ticket -> new KeysetCursor(ticket.getCreatedAt(), ticket.getId()), Function.identity());
     }
 
     /**
-     * Lấy danh sách ticket của nhân viên theo trạng thái
+     * Lấy danh sách ticket của nhân viên theo trạng thái (lọc theo status_code, trạng thái chưa có mã thì theo tên)
      */
     public List<TicketDto> getEmployeeTicketsByStatus(Long employeeId, String statusName) {
-        List<Ticket> tickets = ticketRepository.findByRequesterIdAndStatusName(employeeId, statusName);
-        return tickets.stream().map(this::convertToDto).toList();
+        return TicketStatusCode.fromName(statusName)
+                .map(statusCode -> ticketRepository.findByRequesterIdAndStatusCode(employeeId, statusCode))
+                .orElseGet(() -> ticketRepository.findByRequesterIdAndStatusName(employeeId, statusName));
     }
 
     /**
      * Tìm kiếm ticket theo từ khóa
      */
     public List<TicketDto> searchEmployeeTickets(Long employeeId, String keyword) {
-        List<Ticket> tickets = ticketRepository.findByRequesterIdAndTitleContainingIgnoreCase(employeeId, keyword);
-        return tickets.stream().map(this::convertToDto).toList();
+        return searchTickets(keyword, employeeId, TicketSearchService.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Tìm kiếm toàn văn, kết quả xếp theo độ liên quan
+     * @param requesterId chỉ tìm trong ticket của người này (null = toàn hệ thống)
+     */
+    public List<TicketDto> searchTickets(String keyword, Long requesterId, int limit) {
+        List<Long> rankedIds = ticketSearchService.searchTicketIds(keyword, requesterId, limit);
+        if (rankedIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Ticket> ticketsById = new HashMap<>();
+        for (Ticket ticket : ticketRepository.findAllWithDetailsByIdIn(rankedIds)) {
+            ticketsById.put(ticket.getId(), ticket);
+        }
+        List<Ticket> ranked = new ArrayList<>(rankedIds.size());
+        for (Long id : rankedIds) {
+            Ticket ticket = ticketsById.get(id);
+            if (ticket != null) {
+                ranked.add(ticket);
+            }
+        }
+        return convertToDtos(ranked);
     }
 
     /**
      * Lấy ticket theo khoảng thời gian
      */
     public List<TicketDto> getEmployeeTicketsByDateRange(Long employeeId, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Ticket> tickets = ticketRepository.findByRequesterIdAndCreatedAtBetween(employeeId, startDate, endDate);
-        return tickets.stream().map(this::convertToDto).toList();
+        return ticketRepository.findByRequesterIdAndCreatedAtBetween(employeeId, startDate, endDate);
     }
 
     /**
@@ -98,22 +165,22 @@ public class TicketService {
                 .orElseThrow(() -> new RuntimeException("Department not found"));
 
         // Get default status (PENDING)
-        TicketStatus pendingStatus = ticketStatusRepository.findByName("PENDING")
+        TicketStatus pendingStatus = referenceDataRegistry.findStatusByName("PENDING")
                 .orElseThrow(() -> new RuntimeException("PENDING status not found"));
 
         // Get default priority if not specified
         PriorityLevel priority = null;
         if (ticketDto.getPriorityId() != null) {
-            priority = priorityLevelRepository.findById(ticketDto.getPriorityId())
+            priority = referenceDataRegistry.findPriorityById(ticketDto.getPriorityId())
                     .orElseThrow(() -> new RuntimeException("Priority not found"));
         } else {
-            priority = priorityLevelRepository.findByName("MEDIUM")
+            priority = referenceDataRegistry.findPriorityByName("MEDIUM")
                     .orElseThrow(() -> new RuntimeException("MEDIUM priority not found"));
         }
 
         // Create ticket
         Ticket ticket = new Ticket();
-        ticket.setTicketCode(generateTicketCode());
+        ticket.setTicketCode(ticketCodeAllocator.nextTicketCode());
         ticket.setTitle(ticketDto.getTitle());
         ticket.setDescription(ticketDto.getDescription());
         ticket.setRequester(requester);
@@ -133,6 +200,8 @@ public class TicketService {
         
         // Tạo lịch sử khi tạo ticket
         ticketHistoryService.createTicketCreatedHistory(savedTicket, requester);
+        ticketStatsRollupService.recordCreated(savedTicket);
+        eventPublisher.publishEvent(TicketChangedEvent.created(savedTicket));
         
         // Tạo approval tasks từ template workflows
         // TODO: Implement createApprovalTasksFromTemplate method
@@ -145,7 +214,7 @@ public class TicketService {
      * Tạo ticket từ form template với form data và workflow approvers
      */
     public TicketDto createTicketFromTemplate(CreateTicketFromTemplateRequest request) {
-        System.out.println("Creating ticket from template. Request: " + request);
+        log.debug("Creating ticket from template {} for requester {}", request.getTemplateId(), request.getRequesterId());
         
         // Validate form template
         FormTemplate formTemplate = formTemplateRepository.findById(request.getTemplateId())
@@ -156,22 +225,22 @@ public class TicketService {
                 .orElseThrow(() -> new RuntimeException("Requester not found with ID: " + request.getRequesterId()));
 
         // Get default status (PENDING)
-        TicketStatus pendingStatus = ticketStatusRepository.findByName("PENDING")
+        TicketStatus pendingStatus = referenceDataRegistry.findStatusByName("PENDING")
                 .orElseThrow(() -> new RuntimeException("PENDING status not found"));
 
         // Resolve priority: user-selected or default MEDIUM
         PriorityLevel priority;
         if (request.getPriorityId() != null) {
-            priority = priorityLevelRepository.findById(request.getPriorityId())
+            priority = referenceDataRegistry.findPriorityById(request.getPriorityId())
                     .orElseThrow(() -> new RuntimeException("Priority not found with ID: " + request.getPriorityId()));
         } else {
-            priority = priorityLevelRepository.findByName("MEDIUM")
+            priority = referenceDataRegistry.findPriorityByName("MEDIUM")
                     .orElseThrow(() -> new RuntimeException("MEDIUM priority not found"));
         }
 
         // Create ticket
         Ticket ticket = new Ticket();
-        ticket.setTicketCode(generateTicketCode());
+        ticket.setTicketCode(ticketCodeAllocator.nextTicketCode());
         ticket.setTitle(request.getTitle() != null ? request.getTitle() : formTemplate.getName());
         ticket.setDescription(request.getDescription() != null ? request.getDescription() : formTemplate.getDescription());
         ticket.setRequester(requester);
@@ -184,17 +253,22 @@ public class TicketService {
             ticket.setDueDate(LocalDateTime.now().plusDays(formTemplate.getDueInDays()));
         }
 
-        Ticket savedTicket = ticketRepository.save(ticket);
+        // Kiểm tra các field bắt buộc theo schema của template
+        List<String> missingFields = formSchemaRegistry.findMissingRequiredFields(formTemplate, request.getFormData());
+        if (!missingFields.isEmpty()) {
+            throw new IllegalArgumentException("Missing required form fields: " + String.join(", ", missingFields));
+        }
 
-        // Save form data directly to ticket JSON field
+        // Save form data directly to ticket JSON field (1 lần save duy nhất, INSERT được gom batch khi flush)
         if (request.getFormData() != null && !request.getFormData().isEmpty()) {
-            savedTicket.setFormData(request.getFormData());
-            ticketRepository.save(savedTicket); // Update với form data
+            ticket.setFormData(request.getFormData());
         }
 
+        Ticket savedTicket = ticketRepository.save(ticket);
+
         // Create approval tasks (accepts keys as workflowStepId or stepOrder)
         Map<String, String> workflowApprovers = request.getWorkflowApprovers();
-        System.out.println("Raw workflowApprovers: " + workflowApprovers);
+        log.debug("Workflow approvers for ticket {}: {}", savedTicket.getId(), workflowApprovers);
         if (workflowApprovers != null && !workflowApprovers.isEmpty()) {
             approvalService.createApprovalTasksWithFlexibleApprovers(savedTicket, workflowApprovers);
         } else {
@@ -203,6 +277,8 @@ public class TicketService {
         
         // Tạo lịch sử khi tạo ticket từ template
         ticketHistoryService.createTicketCreatedHistory(savedTicket, requester);
+        ticketStatsRollupService.recordCreated(savedTicket);
+        eventPublisher.publishEvent(TicketChangedEvent.created(savedTicket));
 
         return convertToDto(savedTicket);
     }
@@ -211,10 +287,42 @@ public class TicketService {
     // No need for separate TicketFormData entities for JSON-based forms
 
     /**
-     * Lấy chi tiết ticket
+     * Phiên bản hiện tại của ticket (ETag / Last-Modified) - 1 truy vấn nhẹ, chạy trước khi dựng payload chi tiết
+     * Rỗng nếu ticket không có trong bảng live (không tồn tại hoặc đã lưu trữ)
+     */
+    @Transactional(readOnly = true)
+    public Optional<TicketVersion> getTicketVersion(Long ticketId) {
+        return getTicketVersion(ticketId, false);
+    }
+
+    /**
+     * Như getTicketVersion(ticketId); includeHistory = true thì phiên bản tính cả ticket_history
+     * (cho biểu diễn có kèm lịch sử)
+     */
+    @Transactional(readOnly = true)
+    public Optional<TicketVersion> getTicketVersion(Long ticketId, boolean includeHistory) {
+        List<Object[]> rows = ticketRepository.findVersionRaw(ticketId);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] row = rows.get(0);
+        TicketVersion version = new TicketVersion(ticketId, (LocalDateTime) row[0], (LocalDateTime) row[1],
+                row[2] != null ? ((Number) row[2]).longValue() : 0);
+        if (includeHistory) {
+            Object[] historyRow = ticketHistoryRepository.findVersionRaw(ticketId).get(0);
+            version = version.withHistory(historyRow[0] != null ? ((Number) historyRow[0]).longValue() : 0,
+                    (LocalDateTime) historyRow[1]);
+        }
+        return Optional.of(version);
+    }
+
+    /**
+     * Lấy chi tiết ticket (ticket đã lưu trữ được đọc từ bảng archive)
      */
     public Optional<TicketDto> getTicketById(Long ticketId) {
-        return ticketRepository.findById(ticketId).map(this::convertToDto);
+        return ticketRepository.findById(ticketId)
+                .map(this::convertToDto)
+                .or(() -> ticketArchiveService.findArchivedTicket(ticketId));
     }
 
     /**
@@ -233,17 +341,21 @@ public class TicketService {
                     if (ticketDto.getDepartmentId() != null) {
                         Department department = departmentRepository.findById(ticketDto.getDepartmentId())
                                 .orElseThrow(() -> new RuntimeException("Department not found"));
+                        Long fromDepartmentId = ticket.getDepartment() != null ? ticket.getDepartment().getId() : null;
                         ticket.setDepartment(department);
+                        ticketStatsRollupService.recordDepartmentMoved(ticket, fromDepartmentId);
                     }
 
                     // Update priority if changed
                     if (ticketDto.getPriorityId() != null) {
-                        PriorityLevel priority = priorityLevelRepository.findById(ticketDto.getPriorityId())
+                        PriorityLevel priority = referenceDataRegistry.findPriorityById(ticketDto.getPriorityId())
                                 .orElseThrow(() -> new RuntimeException("Priority not found"));
                         ticket.setPriority(priority);
                     }
 
                     Ticket savedTicket = ticketRepository.save(ticket);
+                    // dueDate có thể đã đổi
+                    slaDeadlineService.refreshTicketAfterCommit(savedTicket.getId());
                     return convertToDto(savedTicket);
                 });
     }
@@ -256,6 +368,8 @@ public class TicketService {
                 .filter(ticket -> ticket.getRequester().getId().equals(employeeId))
                 .filter(ticket -> "PENDING".equals(ticket.getCurrentStatus().getName()))
                 .map(ticket -> {
+                    ticketStatsRollupService.recordDeleted(ticket);
+                    eventPublisher.publishEvent(TicketChangedEvent.deleted(ticket));
                     ticketRepository.delete(ticket);
                     return true;
                 })
@@ -266,28 +380,41 @@ public class TicketService {
      * Thống kê ticket của nhân viên
      */
     public EmployeeTicketStats getEmployeeTicketStats(Long employeeId) {
-        Long totalTickets = ticketRepository.countByRequesterId(employeeId);
-        Long pendingTickets = ticketRepository.countByRequesterIdAndStatusName(employeeId, "PENDING");
-        Long approvedTickets = ticketRepository.countByRequesterIdAndStatusName(employeeId, "APPROVED");
-        Long rejectedTickets = ticketRepository.countByRequesterIdAndStatusName(employeeId, "REJECTED");
-        Long inProgressTickets = ticketRepository.countByRequesterIdAndStatusName(employeeId, "IN_PROGRESS");
-
-        return new EmployeeTicketStats(totalTickets, pendingTickets, approvedTickets, rejectedTickets, inProgressTickets);
+        return employeeTicketStatsService.getStats(employeeId);
     }
 
     /**
-     * Generate ticket code
+     * Convert danh sách ticket (1 trang) sang DTO
+     * Approvals của cả trang được lấy trong 1 truy vấn rồi ghép theo ticketId
      */
-    private String generateTicketCode() {
-        String year = String.valueOf(LocalDateTime.now().getYear());
-        Long count = ticketRepository.count() + 1;
-        return String.format("TICKET-%s-%05d", year, count);
+    private List<TicketDto> convertToDtos(List<Ticket> tickets) {
+        if (tickets.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ticketIds = tickets.stream().map(Ticket::getId).toList();
+        Map<Long, List<TicketApprovalDto>> approvalsByTicket = ticketApprovalService.getTicketApprovalsByTicketIds(ticketIds);
+        return tickets.stream()
+                .map(ticket -> convertToDto(ticket, approvalsByTicket.getOrDefault(ticket.getId(), List.of())))
+                .toList();
     }
 
     /**
      * Convert Entity to DTO
      */
     private TicketDto convertToDto(Ticket ticket) {
+        List<TicketApprovalDto> approvals = null;
+        // Load approvals if ticket already persisted
+        if (ticket.getId() != null) {
+            try {
+                approvals = ticketApprovalService.getTicketApprovals(ticket.getId());
+            } catch (Exception ignored) {
+                // In case approval service is not available, keep approvals as null
+            }
+        }
+        return convertToDto(ticket, approvals);
+    }
+
+    private TicketDto convertToDto(Ticket ticket, List<TicketApprovalDto> approvals) {
         TicketDto dto = new TicketDto();
         dto.setId(ticket.getId());
         dto.setTicketCode(ticket.getTicketCode());
@@ -314,38 +441,9 @@ public class TicketService {
         }
         
         // Convert JSON form data to DTO format with label/type from schema
-        if (ticket.getFormData() != null && !ticket.getFormData().isEmpty()) {
-            List<TicketFormDataDto> formDataList = new ArrayList<>();
-            ticket.getFormData().forEach((key, value) -> {
-                TicketFormDataDto formDataDto = new TicketFormDataDto();
-                formDataDto.setTicketId(ticket.getId());
-                formDataDto.setFieldName(key);
-                formDataDto.setFieldValue(value != null ? value.toString() : null);
-
-                if (ticket.getFormTemplate() != null && ticket.getFormTemplate().getFormSchema() != null
-                        && ticket.getFormTemplate().getFormSchema().getFields() != null) {
-                    ticket.getFormTemplate().getFormSchema().getFields().stream()
-                            .filter(field -> key.equals(field.getKey()))
-                            .findFirst()
-                            .ifPresent(schemaField -> {
-                                formDataDto.setFieldLabel(schemaField.getLabel() != null ? schemaField.getLabel().toString() : null);
-                                formDataDto.setFieldType(schemaField.getType());
-                            });
-                }
-
-                formDataList.add(formDataDto);
-            });
-            dto.setFormData(formDataList);
-        }
+        dto.setFormData(formSchemaRegistry.toFormDataDtos(ticket.getFormTemplate(), ticket.getId(), ticket.getFormData()));
         
-        // Load approvals if ticket already persisted
-        if (ticket.getId() != null) {
-            try {
-                dto.setApprovals(ticketApprovalService.getTicketApprovals(ticket.getId()));
-            } catch (Exception ignored) {
-                // In case approval service is not available, keep approvals as null
-            }
-        }
+        dto.setApprovals(approvals);
 
         return dto;
     }
@@ -0,0 +1,134 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.entity.Ticket;
+import com.example.thuc_tap.repository.TicketRepository;
+import com.example.thuc_tap.repository.TicketStatsRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Service duy trì bảng tổng hợp ticket_stats_rollup
+ * Các method ghi chạy trong transaction của nghiệp vụ gọi tới (tạo / duyệt / từ chối ticket)
+ * để rollup luôn khớp với dữ liệu ticket
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class TicketStatsRollupService {
+
+    private static final long NO_FORM_TEMPLATE = 0L;
+
+    private final TicketStatsRollupRepository ticketStatsRollupRepository;
+    private final TicketRepository ticketRepository;
+
+    /**
+     * Ghi nhận ticket mới tạo vào bucket trạng thái hiện tại
+     */
+    public void recordCreated(Ticket ticket) {
+        ticketStatsRollupRepository.upsertDelta(bucketDate(ticket), ticket.getDepartment().getId(),
+                formTemplateId(ticket), ticket.getCurrentStatus().getName(), 1L);
+    }
+
+    /**
+     * Chuyển ticket từ bucket trạng thái cũ sang bucket trạng thái mới
+     */
+    public void recordTransition(Ticket ticket, String fromStatus, String toStatus) {
+        if (fromStatus == null || toStatus == null || fromStatus.equals(toStatus)) {
+            return;
+        }
+        LocalDate statDate = bucketDate(ticket);
+        Long departmentId = ticket.getDepartment().getId();
+        Long formTemplateId = formTemplateId(ticket);
+        ticketStatsRollupRepository.upsertDelta(statDate, departmentId, formTemplateId, fromStatus, -1L);
+        ticketStatsRollupRepository.upsertDelta(statDate, departmentId, formTemplateId, toStatus, 1L);
+    }
+
+    /**
+     * Chuyển ticket sang bucket của phòng ban mới (cùng ngày tạo, biểu mẫu, trạng thái)
+     */
+    public void recordDepartmentMoved(Ticket ticket, Long fromDepartmentId) {
+        Long toDepartmentId = ticket.getDepartment().getId();
+        if (fromDepartmentId == null || fromDepartmentId.equals(toDepartmentId)) {
+            return;
+        }
+        LocalDate statDate = bucketDate(ticket);
+        Long formTemplateId = formTemplateId(ticket);
+        String status = ticket.getCurrentStatus().getName();
+        ticketStatsRollupRepository.upsertDelta(statDate, fromDepartmentId, formTemplateId, status, -1L);
+        ticketStatsRollupRepository.upsertDelta(statDate, toDepartmentId, formTemplateId, status, 1L);
+    }
+
+    /**
+     * Ghi nhận ticket bị xóa
+     */
+    public void recordDeleted(Ticket ticket) {
+        ticketStatsRollupRepository.upsertDelta(bucketDate(ticket), ticket.getDepartment().getId(),
+                formTemplateId(ticket), ticket.getCurrentStatus().getName(), -1L);
+    }
+
+    /**
+     * Dựng lại toàn bộ rollup từ ticket_history
+     * @return số bucket được tạo
+     */
+    public int rebuildFromHistory() {
+        ticketStatsRollupRepository.deleteAllBuckets();
+        int buckets = ticketStatsRollupRepository.rebuildFromHistory();
+        log.info("Rebuilt ticket_stats_rollup with {} buckets", buckets);
+        return buckets;
+    }
+
+    /**
+     * Số lượng ticket theo trạng thái (toàn hệ thống)
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> getStatusCounts() {
+        List<Object[]> results = ticketStatsRollupRepository.sumGroupByStatusRaw();
+        return results.stream()
+                .collect(Collectors.toMap(
+                    result -> (String) result[0],
+                    result -> ((Number) result[1]).longValue()
+                ));
+    }
+
+    /**
+     * Số lượng ticket theo phòng ban và trạng thái: departmentId -> (statusName -> count)
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Map<String, Long>> getDepartmentStatusCounts() {
+        Map<Long, Map<String, Long>> counts = new HashMap<>();
+        for (Object[] row : ticketStatsRollupRepository.sumGroupByDepartmentAndStatusRaw()) {
+            counts.computeIfAbsent((Long) row[0], id -> new HashMap<>())
+                    .merge((String) row[1], ((Number) row[2]).longValue(), Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Lần đầu chạy (bảng rollup còn trống) thì dựng lại từ dữ liệu hiện có
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeIfEmpty() {
+        if (ticketStatsRollupRepository.count() == 0 && ticketRepository.count() > 0) {
+            rebuildFromHistory();
+        }
+    }
+
+    private LocalDate bucketDate(Ticket ticket) {
+        return ticket.getCreatedAt() != null ? ticket.getCreatedAt().toLocalDate() : LocalDate.now();
+    }
+
+    private Long formTemplateId(Ticket ticket) {
+        return ticket.getFormTemplate() != null ? ticket.getFormTemplate().getId() : NO_FORM_TEMPLATE;
+    }
+}
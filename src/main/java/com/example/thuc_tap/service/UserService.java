@@ -6,11 +6,12 @@ import com.example.thuc_tap.entity.Role;
 import com.example.thuc_tap.entity.User;
 import com.example.thuc_tap.mapper.UserMapper;
 import com.example.thuc_tap.repository.DepartmentRepository;
-import com.example.thuc_tap.repository.RoleRepository;
 import com.example.thuc_tap.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,7 +31,7 @@ public class UserService {
     private DepartmentRepository departmentRepository;
 
     @Autowired
-    private RoleRepository roleRepository;
+    private ReferenceDataRegistry referenceDataRegistry;
 
     @Autowired
     private UserMapper userMapper; // Loại bỏ method convertToDto trùng lặp - sử dụng Mapper thay thế
@@ -57,6 +58,14 @@ public class UserService {
         return userRepository.findByUsername(username).map(userMapper::toDto);
     }
 
+    /**
+     * Ghi nhận thời điểm đăng nhập thành công của người dùng
+     */
+    @Transactional
+    public void recordLogin(Long userId) {
+        userRepository.updateLastLoginAt(userId, LocalDateTime.now());
+    }
+
     /**
      * Tạo người dùng mới
      * Logic đặc biệt: ADMIN role (role_id = 3) không bắt buộc phải có phòng ban
@@ -79,7 +88,7 @@ public class UserService {
         user.setIsActive(userDto.getIsActive());
 
         // Gán role (bắt buộc)
-        Role role = roleRepository.findById(userDto.getRoleId())
+        Role role = referenceDataRegistry.findRoleById(userDto.getRoleId())
                 .orElseThrow(() -> new RuntimeException("Role not found with ID: " + userDto.getRoleId()));
         user.setRole(role);
 
@@ -122,7 +131,7 @@ public class UserService {
 
             // Cập nhật role nếu có
             if (userDto.getRoleId() != null) {
-                Role role = roleRepository.findById(userDto.getRoleId())
+                Role role = referenceDataRegistry.findRoleById(userDto.getRoleId())
                         .orElseThrow(() -> new RuntimeException("Role not found with ID: " + userDto.getRoleId()));
                 user.setRole(role);
             }
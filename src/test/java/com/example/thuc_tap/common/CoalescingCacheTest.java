@@ -0,0 +1,218 @@
+package com.example.thuc_tap.common;
+
+import com.example.thuc_tap.dto.response.CacheMetricsDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoalescingCacheTest {
+
+    private CoalescingCache<String, String> newCache() {
+        return new CoalescingCache<>("test", 10, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void secondReadIsServedFromCache() {
+        CoalescingCache<String, String> cache = newCache();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v1", cache.getOrLoad("k", key -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", cache.getOrLoad("k", key -> "v" + loads.incrementAndGet()));
+
+        CacheMetricsDto metrics = cache.metrics();
+        assertEquals(1, loads.get());
+        assertEquals(1L, metrics.getHits());
+        assertEquals(1L, metrics.getMisses());
+        assertEquals(1L, metrics.getLoads());
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CoalescingCache<String, String> cache = newCache();
+        int threads = 4;
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> cache.getOrLoad("k", key -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "value";
+                })));
+            }
+            // Chờ đến khi các thread còn lại đều đang đợi lần load đầu tiên rồi mới cho load xong
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (cache.metrics().getCoalescedLoads() < threads - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals((long) threads - 1, cache.metrics().getCoalescedLoads());
+        assertEquals("value", cache.getIfPresent("k"));
+    }
+
+    @Test
+    void valueRejectedByShouldCacheIsNotStored() {
+        CoalescingCache<String, String> cache = newCache();
+
+        assertEquals("partial", cache.getOrLoad("k", key -> "partial", value -> false));
+        assertNull(cache.getIfPresent("k"));
+    }
+
+    @Test
+    void invalidationDuringLoadDiscardsTheLoadedValue() {
+        CoalescingCache<String, String> cache = newCache();
+
+        String value = cache.getOrLoad("k", key -> {
+            cache.invalidateAll();
+            return "stale";
+        });
+
+        assertEquals("stale", value);
+        assertNull(cache.getIfPresent("k"));
+        assertEquals(1L, cache.metrics().getInvalidations());
+    }
+
+    @Test
+    void invalidateAllRacingWithLoadNeverLeavesStaleValue() throws Exception {
+        CoalescingCache<String, String> cache = newCache();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            // Giữ khóa của cache bận để lưu kết quả load và invalidateAll hay phải chờ nhau
+            Future<?> contention = executor.submit(() -> {
+                while (running.get()) {
+                    cache.getIfPresent("other");
+                }
+            });
+            // invalidateAll luôn xảy ra sau khi load đã bắt đầu: dù chen vào lúc nào, kết quả load không được ở lại cache
+            for (int i = 0; i < 5000; i++) {
+                CountDownLatch loadStarted = new CountDownLatch(1);
+                Future<?> invalidation = executor.submit(() -> {
+                    await(loadStarted);
+                    cache.invalidateAll();
+                });
+                int spins = i % 64;
+                cache.getOrLoad("k", key -> {
+                    loadStarted.countDown();
+                    for (int spin = 0; spin < spins; spin++) {
+                        Thread.onSpinWait();
+                    }
+                    return "stale";
+                });
+                invalidation.get(5, TimeUnit.SECONDS);
+
+                assertNull(cache.getIfPresent("k"), "iteration " + i);
+            }
+            running.set(false);
+            contention.get(5, TimeUnit.SECONDS);
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void computeIfPresentDuringLoadBumpsGeneration() {
+        CoalescingCache<String, String> cache = newCache();
+
+        // Sự kiện tới khi lần load đang chạy (key chưa có trong cache): kết quả load có thể đã cũ, không được lưu
+        String value = cache.getOrLoad("k", key -> {
+            cache.computeIfPresent("k", (k, current) -> current + "+event");
+            return "loaded-before-event";
+        });
+
+        assertEquals("loaded-before-event", value);
+        assertNull(cache.getIfPresent("k"));
+    }
+
+    @Test
+    void computeIfPresentUpdatesOrRemovesCachedValue() {
+        CoalescingCache<String, String> cache = newCache();
+        cache.put("k", "v");
+
+        cache.computeIfPresent("k", (key, current) -> current + "2");
+        assertEquals("v2", cache.getIfPresent("k"));
+
+        cache.computeIfPresent("k", (key, current) -> null);
+        assertNull(cache.getIfPresent("k"));
+
+        // Không có trong cache và không có load đang chạy: không làm gì
+        cache.computeIfPresent("missing", (key, current) -> "x");
+        assertNull(cache.getIfPresent("missing"));
+    }
+
+    @Test
+    void failedLoadIsRethrownAndNotCached() {
+        CoalescingCache<String, String> cache = newCache();
+
+        assertThrows(IllegalStateException.class, () -> cache.getOrLoad("k", key -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(1L, cache.metrics().getLoadFailures());
+        assertEquals("ok", cache.getOrLoad("k", key -> "ok"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        CoalescingCache<String, String> cache = new CoalescingCache<>("test", 2, Duration.ofMinutes(1));
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.getIfPresent("a");
+        cache.put("c", "3");
+
+        assertEquals("1", cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertEquals("3", cache.getIfPresent("c"));
+        assertEquals(1L, cache.metrics().getEvictions());
+    }
+
+    @Test
+    void expiredEntryIsDropped() throws InterruptedException {
+        CoalescingCache<String, String> cache = new CoalescingCache<>("test", 10, Duration.ofMillis(1));
+        cache.put("k", "old");
+        Thread.sleep(5);
+
+        assertNull(cache.getIfPresent("k"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void rejectsNonPositiveMaximumSize() {
+        assertThrows(IllegalArgumentException.class, () -> new CoalescingCache<String, String>("test", 0, Duration.ofMinutes(1)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.thuc_tap.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledFormSchemaTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2024, 5, 1, 9, 0);
+
+    @Test
+    void subFieldsAreFlattenedUnderTheirParentKey() {
+        FormSchema.FieldSchema items = field("items", "repeater");
+        items.setSubFields(List.of(field("name", "text"), field("quantity", "number")));
+        CompiledFormSchema compiled = CompiledFormSchema.compile(1L, UPDATED_AT, schema(3, field("title", "text"), items));
+
+        assertEquals(List.of("title", "items", "items.name", "items.quantity"), List.copyOf(compiled.getFields().keySet()));
+        assertEquals(List.of("title", "items"),
+                compiled.getTopLevelFields().stream().map(CompiledFormSchema.FieldDescriptor::key).toList());
+
+        CompiledFormSchema.FieldDescriptor quantity = compiled.getField("items.quantity");
+        assertEquals("quantity", quantity.key());
+        assertEquals("items", quantity.parentKey());
+        assertEquals("number", quantity.type());
+        assertNull(compiled.getField("quantity"));
+        assertNull(compiled.getField("title").parentKey());
+    }
+
+    @Test
+    void fieldsWithoutKeyAreSkippedAndDuplicatesKeepTheFirst() {
+        FormSchema.FieldSchema first = field("amount", "number");
+        FormSchema.FieldSchema duplicate = field("amount", "text");
+        FormSchema.FieldSchema noKey = field(null, "text");
+        FormSchema schema = schema(1, first, noKey, duplicate);
+        schema.getFields().add(null);
+
+        CompiledFormSchema compiled = CompiledFormSchema.compile(1L, UPDATED_AT, schema);
+
+        assertEquals(1, compiled.getFields().size());
+        assertEquals("number", compiled.getField("amount").type());
+    }
+
+    @Test
+    void onlyRequiredFieldsWithoutConditionsAreUnconditionallyRequired() {
+        FormSchema.FieldSchema plain = required(field("reason", "text"));
+        FormSchema.FieldSchema optional = field("note", "text");
+
+        FormSchema.FieldSchema conditionallyRequired = required(field("attachment", "file"));
+        FormSchema.ConditionalRequired condition = new FormSchema.ConditionalRequired();
+        condition.setDependsOn("reason");
+        condition.setOperator("eq");
+        condition.setValue("other");
+        conditionallyRequired.getValidation().setConditionalRequired(condition);
+
+        FormSchema.FieldSchema hidden = required(field("manager", "text"));
+        FormSchema.Visibility visibility = new FormSchema.Visibility();
+        visibility.setConditions(List.of(new FormSchema.Condition()));
+        hidden.setVisibility(visibility);
+
+        // Visibility không có điều kiện nào thì field luôn hiện
+        FormSchema.FieldSchema emptyVisibility = required(field("department", "text"));
+        emptyVisibility.setVisibility(new FormSchema.Visibility());
+
+        CompiledFormSchema compiled = CompiledFormSchema.compile(1L, UPDATED_AT,
+                schema(1, plain, optional, conditionallyRequired, hidden, emptyVisibility));
+
+        assertEquals(List.of("reason", "department"), compiled.getUnconditionallyRequiredKeys());
+        assertTrue(compiled.getField("attachment").required());
+        assertTrue(compiled.getField("attachment").conditional());
+    }
+
+    @Test
+    void matchesComparesVersionAndUpdatedAt() {
+        CompiledFormSchema compiled = CompiledFormSchema.compile(1L, UPDATED_AT, schema(2, field("title", "text")));
+
+        assertTrue(compiled.matches(UPDATED_AT, schema(2)));
+        assertFalse(compiled.matches(UPDATED_AT.plusSeconds(1), schema(2)));
+        assertFalse(compiled.matches(UPDATED_AT, schema(3)));
+        assertFalse(compiled.matches(UPDATED_AT, null));
+    }
+
+    @Test
+    void nullSchemaCompilesToEmpty() {
+        CompiledFormSchema compiled = CompiledFormSchema.compile(1L, UPDATED_AT, null);
+
+        assertTrue(compiled.getFields().isEmpty());
+        assertTrue(compiled.getTopLevelFields().isEmpty());
+        assertNull(compiled.getVersion());
+        assertTrue(compiled.matches(UPDATED_AT, null));
+    }
+
+    @Test
+    void compiledSchemaIsImmutable() {
+        FormSchema.FieldSchema title = field("title", "text");
+        title.setMeta(new HashMap<>(Map.of("maxRows", 3)));
+        CompiledFormSchema compiled = CompiledFormSchema.compile(1L, UPDATED_AT, schema(1, title));
+        // Sửa schema gốc sau khi biên dịch không ảnh hưởng bản đã biên dịch
+        title.getMeta().put("maxRows", 5);
+
+        assertEquals(3, compiled.getField("title").meta().get("maxRows"));
+        assertThrows(UnsupportedOperationException.class, () -> compiled.getFields().remove("title"));
+        assertThrows(UnsupportedOperationException.class, () -> compiled.getField("title").meta().put("x", 1));
+    }
+
+    private static FormSchema schema(Integer version, FormSchema.FieldSchema... fields) {
+        FormSchema schema = new FormSchema();
+        schema.setVersion(version);
+        schema.setFields(new ArrayList<>(List.of(fields)));
+        return schema;
+    }
+
+    private static FormSchema.FieldSchema field(String key, String type) {
+        FormSchema.FieldSchema field = new FormSchema.FieldSchema();
+        field.setKey(key);
+        field.setLabel(key);
+        field.setType(type);
+        return field;
+    }
+
+    private static FormSchema.FieldSchema required(FormSchema.FieldSchema field) {
+        FormSchema.ValidationConfig validation = new FormSchema.ValidationConfig();
+        validation.setRequired(true);
+        field.setValidation(validation);
+        return field;
+    }
+}
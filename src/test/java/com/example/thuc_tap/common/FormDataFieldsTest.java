@@ -0,0 +1,89 @@
+package com.example.thuc_tap.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormDataFieldsTest {
+
+    @Test
+    void valueExpressionMatchesTheIndexedExpression() {
+        assertEquals("form_data_numeric(t.form_data, 'amount')",
+                FormDataFields.valueExpression(FormDataFields.Kind.NUMBER, "t.form_data", "amount"));
+        assertEquals("(t.form_data ->> 'startDate')",
+                FormDataFields.valueExpression(FormDataFields.Kind.DATE, "t.form_data", "startDate"));
+        // Index tạo trên cột không alias
+        assertEquals("(form_data ->> 'startDate')",
+                FormDataFields.valueExpression(FormDataFields.Kind.DATE, "form_data", "startDate"));
+    }
+
+    @Test
+    void unsafeKeysAreNeverEmbeddedInSql() {
+        for (String key : new String[]{null, "", "1amount", "_amount", "amount'; DROP TABLE tickets; --",
+                "a-b", "a.b", "số_tiền", "a".repeat(64)}) {
+            assertFalse(FormDataFields.isSafeKey(key), String.valueOf(key));
+            assertThrows(IllegalArgumentException.class,
+                    () -> FormDataFields.valueExpression(FormDataFields.Kind.TEXT, "t.form_data", key));
+            assertThrows(IllegalArgumentException.class, () -> FormDataFields.indexName(1L, key));
+        }
+        assertTrue(FormDataFields.isSafeKey("a".repeat(63)));
+    }
+
+    @Test
+    void indexNameIsLowercasedAndHashed() {
+        String name = FormDataFields.indexName(12L, "startDate");
+
+        assertEquals("idx_tickets_fd_12_startdate_" + String.format("%08x", "startDate".hashCode()), name);
+        assertEquals(name, FormDataFields.indexName(12L, "startDate"));
+        assertNotEquals(name, FormDataFields.indexName(13L, "startDate"));
+    }
+
+    @Test
+    void keysDifferingOnlyInCaseGetDifferentIndexNames() {
+        assertNotEquals(FormDataFields.indexName(1L, "Amount"), FormDataFields.indexName(1L, "amount"));
+    }
+
+    @Test
+    void longKeysStayWithinPostgresIdentifierLimit() {
+        String longKey = "a".repeat(63);
+        String otherLongKey = "a".repeat(62) + "b";
+
+        String name = FormDataFields.indexName(999_999_999_999L, longKey);
+
+        assertTrue(name.length() <= 63, name);
+        assertTrue(name.startsWith(FormDataFields.INDEX_PREFIX + "999999999999_" + "a".repeat(21) + "_"), name);
+        // Phần key bị cắt giống nhau, hash khác nhau
+        assertNotEquals(name, FormDataFields.indexName(999_999_999_999L, otherLongKey));
+    }
+
+    @Test
+    void kindOfMapsFieldTypes() {
+        assertEquals(FormDataFields.Kind.TEXT, FormDataFields.kindOf("dropdown"));
+        assertEquals(FormDataFields.Kind.NUMBER, FormDataFields.kindOf("NUMBER"));
+        assertEquals(FormDataFields.Kind.DATE, FormDataFields.kindOf("date"));
+        assertEquals(FormDataFields.Kind.DATETIME, FormDataFields.kindOf("DateTime"));
+        assertNull(FormDataFields.kindOf("repeater"));
+        assertNull(FormDataFields.kindOf(null));
+        assertFalse(FormDataFields.Kind.TEXT.supportsRange());
+        assertTrue(FormDataFields.Kind.NUMBER.supportsRange());
+    }
+
+    @Test
+    void filterableAcceptsBooleanOrString() {
+        assertTrue(FormDataFields.isFilterable(descriptor(Map.of("filterable", true))));
+        assertTrue(FormDataFields.isFilterable(descriptor(Map.of("filterable", "TRUE"))));
+        assertFalse(FormDataFields.isFilterable(descriptor(Map.of("filterable", "yes"))));
+        assertFalse(FormDataFields.isFilterable(descriptor(Map.of())));
+    }
+
+    private static CompiledFormSchema.FieldDescriptor descriptor(Map<String, Object> meta) {
+        return new CompiledFormSchema.FieldDescriptor("amount", "amount", null, "Amount", "number", false, false, meta);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.thuc_tap.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 1000;
+
+    // 8 ô x 3 tầng: tầng 0 < 8 tick, tầng 1 < 64 tick, tầng 2 < 512 tick, xa hơn nằm ở vùng tràn
+    private HierarchicalTimingWheel<String> newWheel() {
+        return new HierarchicalTimingWheel<>(TICK, 8, 3, 0);
+    }
+
+    /**
+     * Quay từng tick tới untilMillis, ghi lại thời điểm mỗi key được trả về
+     */
+    private Map<String, Long> runTicks(HierarchicalTimingWheel<String> wheel, long fromMillis, long untilMillis) {
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long now = fromMillis; now <= untilMillis; now += TICK) {
+            for (String key : wheel.advance(now)) {
+                assertFalse(firedAt.containsKey(key), "fired twice: " + key);
+                firedAt.put(key, now);
+            }
+        }
+        return firedAt;
+    }
+
+    @Test
+    void firesOnTheDeadlineTickOfEachLevel() {
+        HierarchicalTimingWheel<String> wheel = newWheel();
+        wheel.schedule("level0", 5 * TICK);
+        wheel.schedule("level1", 40 * TICK);
+        wheel.schedule("level2", 300 * TICK);
+        wheel.schedule("overflow", 2000 * TICK);
+
+        Map<String, Long> firedAt = runTicks(wheel, TICK, 2100 * TICK);
+
+        assertEquals(5 * TICK, (long) firedAt.get("level0"));
+        assertEquals(40 * TICK, (long) firedAt.get("level1"));
+        assertEquals(300 * TICK, (long) firedAt.get("level2"));
+        assertEquals(2000 * TICK, (long) firedAt.get("overflow"));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void neverFiresBeforeTheDeadline() {
+        HierarchicalTimingWheel<String> wheel = newWheel();
+        // Hạn không tròn tick được làm tròn lên
+        wheel.schedule("partial", 2 * TICK + 1);
+
+        assertTrue(wheel.advance(2 * TICK).isEmpty());
+        assertEquals(List.of("partial"), wheel.advance(3 * TICK));
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = newWheel();
+        wheel.advance(10 * TICK);
+        wheel.schedule("late", 3 * TICK);
+
+        assertEquals(List.of("late"), wheel.advance(10 * TICK));
+        assertFalse(wheel.contains("late"));
+    }
+
+    @Test
+    void cancelAndRescheduleReplaceThePreviousDeadline() {
+        HierarchicalTimingWheel<String> wheel = newWheel();
+        wheel.schedule("cancelled", 5 * TICK);
+        wheel.schedule("moved", 5 * TICK);
+        assertTrue(wheel.cancel("cancelled"));
+        assertFalse(wheel.cancel("cancelled"));
+        wheel.schedule("moved", 100 * TICK);
+
+        Map<String, Long> firedAt = runTicks(wheel, TICK, 200 * TICK);
+
+        assertFalse(firedAt.containsKey("cancelled"));
+        assertEquals(100 * TICK, (long) firedAt.get("moved"));
+    }
+
+    @Test
+    void longPauseRebuildsAndKeepsFutureDeadlines() {
+        HierarchicalTimingWheel<String> wheel = newWheel();
+        wheel.schedule("due", 100 * TICK);
+        wheel.schedule("future", 5000 * TICK);
+
+        // Nhảy xa hơn 1 vòng tầng cao nhất (512 tick)
+        assertEquals(List.of("due"), wheel.advance(4000 * TICK));
+        assertTrue(wheel.contains("future"));
+
+        Map<String, Long> firedAt = runTicks(wheel, 4001 * TICK, 5100 * TICK);
+        assertEquals(5000 * TICK, (long) firedAt.get("future"));
+    }
+
+    @Test
+    void randomDeadlinesFireExactlyOnce() {
+        HierarchicalTimingWheel<String> wheel = newWheel();
+        Random random = new Random(42);
+        Map<String, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            long deadline = 1 + random.nextInt(3000) * TICK + random.nextInt((int) TICK);
+            deadlines.put("k" + i, deadline);
+            wheel.schedule("k" + i, deadline);
+        }
+
+        Map<String, Long> firedAt = runTicks(wheel, TICK, 3100 * TICK);
+
+        List<String> wrong = new ArrayList<>();
+        deadlines.forEach((key, deadline) -> {
+            Long fired = firedAt.get(key);
+            if (fired == null || fired < deadline || fired - deadline >= TICK) {
+                wrong.add(key + " deadline=" + deadline + " fired=" + fired);
+            }
+        });
+        assertTrue(wrong.isEmpty(), wrong.toString());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimingWheel<String>(0, 8, 3, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimingWheel<String>(TICK, 1, 3, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimingWheel<String>(TICK, 8, 0, 0));
+    }
+}
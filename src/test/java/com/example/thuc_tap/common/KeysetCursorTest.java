@@ -0,0 +1,51 @@
+package com.example.thuc_tap.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2024, 3, 15, 8, 30, 0, 123456000), 42L);
+
+        String token = cursor.encode();
+
+        // Token đi trên query string: chỉ dùng ký tự URL-safe, không padding
+        assertFalse(token.contains("=") || token.contains("+") || token.contains("/"), token);
+        assertEquals(cursor, KeysetCursor.decode(token));
+    }
+
+    @Test
+    void firstCursorRoundTrips() {
+        assertEquals(KeysetCursor.FIRST, KeysetCursor.decode(KeysetCursor.FIRST.encode()));
+    }
+
+    @Test
+    void missingTokenMeansFirstPage() {
+        assertSame(KeysetCursor.FIRST, KeysetCursor.decode(null));
+        assertSame(KeysetCursor.FIRST, KeysetCursor.decode(""));
+        assertSame(KeysetCursor.FIRST, KeysetCursor.decode("   "));
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encodeRaw("2024-03-15T08:30")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encodeRaw("|42")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encodeRaw("yesterday|42")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encodeRaw("2024-03-15T08:30|abc")));
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
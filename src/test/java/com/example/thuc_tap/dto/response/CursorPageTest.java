@@ -0,0 +1,62 @@
+package com.example.thuc_tap.dto.response;
+
+import com.example.thuc_tap.common.KeysetCursor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CursorPageTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final Function<Long, KeysetCursor> CURSOR_OF = id -> new KeysetCursor(BASE.minusMinutes(id), id);
+    private static final Function<List<Long>, List<String>> MAPPER = ids -> ids.stream().map(id -> "t" + id).toList();
+
+    @Test
+    void extraRowMeansThereIsANextPage() {
+        // Truy vấn lấy dư 1 dòng (size + 1)
+        CursorPage<String> page = CursorPage.of(List.of(1L, 2L, 3L, 4L), 3, CURSOR_OF, MAPPER);
+
+        assertEquals(List.of("t1", "t2", "t3"), page.getContent());
+        assertEquals(3, page.getSize());
+        assertTrue(page.isHasNext());
+        // Cursor trỏ tới dòng cuối của trang, không phải dòng dư
+        assertEquals(CURSOR_OF.apply(3L), KeysetCursor.decode(page.getNextCursor()));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        CursorPage<String> page = CursorPage.of(List.of(1L, 2L), 3, CURSOR_OF, MAPPER);
+
+        assertEquals(List.of("t1", "t2"), page.getContent());
+        assertEquals(2, page.getSize());
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void exactlyFullPageIsTheLastPage() {
+        CursorPage<String> page = CursorPage.of(List.of(1L, 2L, 3L), 3, CURSOR_OF, MAPPER);
+
+        assertEquals(3, page.getSize());
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void emptyResult() {
+        CursorPage<String> page = CursorPage.of(List.of(), 3, CURSOR_OF, MAPPER);
+
+        assertTrue(page.getContent().isEmpty());
+        assertEquals(0, page.getSize());
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCursor());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.thuc_tap.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TicketStatusCodeTest {
+
+    // Migration nằm ở thư mục gốc project (thư mục làm việc khi chạy test)
+    private static final Path MIGRATION = Path.of("add_ticket_status_code.sql");
+
+    private static final Pattern WHEN_CLAUSE = Pattern.compile("WHEN '([A-Z_]+)' THEN (\\d+)");
+    private static final Pattern ELSE_CLAUSE = Pattern.compile("ELSE (\\d+)");
+
+    @Test
+    void sqlFunctionMatchesEnumOrdinals() throws IOException {
+        String function = ticketStatusCodeFunction();
+
+        Map<String, Integer> sqlCodes = new HashMap<>();
+        Matcher when = WHEN_CLAUSE.matcher(function);
+        while (when.find()) {
+            sqlCodes.put(when.group(1), Integer.parseInt(when.group(2)));
+        }
+        Matcher otherwise = ELSE_CLAUSE.matcher(function);
+        assertTrue(otherwise.find(), "ticket_status_code() has no ELSE branch");
+
+        // Mỗi mã trừ OTHER có đúng 1 nhánh WHEN, OTHER là nhánh ELSE
+        for (TicketStatusCode code : TicketStatusCode.values()) {
+            if (code == TicketStatusCode.OTHER) {
+                continue;
+            }
+            assertEquals(Integer.valueOf(code.ordinal()), sqlCodes.get(code.name()), "code of " + code.name());
+        }
+        assertEquals(TicketStatusCode.values().length - 1, sqlCodes.size());
+        assertEquals(TicketStatusCode.OTHER.ordinal(), Integer.parseInt(otherwise.group(1)));
+    }
+
+    @Test
+    void fromNameResolvesKnownStatusesOnly() {
+        assertEquals(Optional.of(TicketStatusCode.APPROVED), TicketStatusCode.fromName("APPROVED"));
+        assertEquals(Optional.empty(), TicketStatusCode.fromName("OTHER"));
+        assertEquals(Optional.empty(), TicketStatusCode.fromName("approved"));
+        assertEquals(Optional.empty(), TicketStatusCode.fromName("ON_HOLD"));
+        assertEquals(Optional.empty(), TicketStatusCode.fromName(null));
+    }
+
+    private static String ticketStatusCodeFunction() throws IOException {
+        String sql = Files.readString(MIGRATION, StandardCharsets.UTF_8);
+        int start = sql.indexOf("FUNCTION ticket_status_code(");
+        assertTrue(start >= 0, "ticket_status_code() not found in " + MIGRATION);
+        int end = sql.indexOf("$$ LANGUAGE", start);
+        return sql.substring(start, end);
+    }
+}
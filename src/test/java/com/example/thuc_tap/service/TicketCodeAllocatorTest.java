@@ -0,0 +1,109 @@
+package com.example.thuc_tap.service;
+
+import com.example.thuc_tap.repository.TicketCodeCounterRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TicketCodeAllocatorTest {
+
+    private final TicketCodeCounterRepository repository = mock(TicketCodeCounterRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final int year = Year.now().getValue();
+
+    @Test
+    void firstBlockOfTheYearInitializesTheCounter() {
+        when(repository.reserveBlock(year, 3L)).thenReturn(null, 7L);
+        when(repository.initializeAndReserveBlock(year, 3L)).thenReturn(4L);
+        TicketCodeAllocator allocator = new TicketCodeAllocator(repository, transactionManager, 3);
+
+        assertEquals(code(1), allocator.nextTicketCode());
+        assertEquals(code(2), allocator.nextTicketCode());
+        assertEquals(code(3), allocator.nextTicketCode());
+        // Hết khối [1, 4): đặt khối kế tiếp [4, 7)
+        assertEquals(code(4), allocator.nextTicketCode());
+
+        verify(repository, times(1)).initializeAndReserveBlock(year, 3L);
+        verify(repository, times(2)).reserveBlock(year, 3L);
+    }
+
+    @Test
+    void codesInsideABlockDoNotTouchTheDatabase() {
+        when(repository.reserveBlock(year, 50L)).thenReturn(150L);
+        TicketCodeAllocator allocator = new TicketCodeAllocator(repository, transactionManager, 50);
+
+        for (int i = 100; i < 150; i++) {
+            assertEquals(code(i), allocator.nextTicketCode());
+        }
+
+        verify(repository, times(1)).reserveBlock(year, 50L);
+    }
+
+    @Test
+    void concurrentCallersGetUniqueContiguousCodes() throws Exception {
+        AtomicLong counter = new AtomicLong(1);
+        when(repository.reserveBlock(anyInt(), anyLong()))
+                .thenAnswer(invocation -> counter.addAndGet(invocation.getArgument(1, Long.class)));
+        TicketCodeAllocator allocator = new TicketCodeAllocator(repository, transactionManager, 10);
+
+        int threads = 8;
+        int perThread = 50;
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        assertTrue(codes.add(allocator.nextTicketCode()));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * perThread, codes.size());
+        for (int i = 1; i <= threads * perThread; i++) {
+            assertTrue(codes.contains(code(i)), "missing " + code(i));
+        }
+        // Mỗi khối 10 mã: đúng 40 lần đặt khối
+        verify(repository, times(threads * perThread / 10)).reserveBlock(anyInt(), anyLong());
+    }
+
+    @Test
+    void failsWhenNoBlockCanBeReserved() {
+        when(repository.reserveBlock(year, 5L)).thenReturn(null);
+        when(repository.initializeAndReserveBlock(year, 5L)).thenReturn(null);
+        TicketCodeAllocator allocator = new TicketCodeAllocator(repository, transactionManager, 5);
+
+        assertThrows(RuntimeException.class, allocator::nextTicketCode);
+    }
+
+    private String code(int value) {
+        return String.format("TICKET-%d-%05d", year, value);
+    }
+}
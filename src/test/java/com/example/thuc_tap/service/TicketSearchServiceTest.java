@@ -0,0 +1,51 @@
+package com.example.thuc_tap.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TicketSearchServiceTest {
+
+    // toTsQuery / từ khóa rỗng không chạm tới repository
+    private final TicketSearchService ticketSearchService = new TicketSearchService(null);
+
+    @Test
+    void eachWordBecomesAPrefixTerm() {
+        assertEquals("nghi:* & phep:*", ticketSearchService.toTsQuery("nghi phep"));
+        assertEquals("ticket:* & 2024:* & 00012:*", ticketSearchService.toTsQuery("TICKET-2024-00012"));
+    }
+
+    @Test
+    void vietnameseLettersAreKeptAndLowercased() {
+        // Bỏ dấu làm ở phía DB (f_unaccent), ở đây chỉ hạ chữ thường
+        assertEquals("đơn:* & nghỉ:* & phép:*", ticketSearchService.toTsQuery("Đơn NGHỈ phép"));
+    }
+
+    @Test
+    void tsqueryOperatorsInTheKeywordAreStripped() {
+        assertEquals("a:* & b:* & c:*", ticketSearchService.toTsQuery("a & b | !c"));
+        assertEquals("x:*", ticketSearchService.toTsQuery("  ('x':*) <-> "));
+    }
+
+    @Test
+    void keywordWithoutWordsGivesNull() {
+        assertNull(ticketSearchService.toTsQuery(null));
+        assertNull(ticketSearchService.toTsQuery(""));
+        assertNull(ticketSearchService.toTsQuery("   "));
+        assertNull(ticketSearchService.toTsQuery("&|!:*()'"));
+    }
+
+    @Test
+    void atMostEightWordsAreUsed() {
+        assertEquals("a:* & b:* & c:* & d:* & e:* & f:* & g:* & h:*",
+                ticketSearchService.toTsQuery("a b c d e f g h i j"));
+    }
+
+    @Test
+    void blankKeywordSearchReturnsNothing() {
+        assertEquals(List.of(), ticketSearchService.searchTicketIds(" ", null, 10));
+    }
+}